@@ -0,0 +1,811 @@
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Headless Minesweeper board holding all game rules without any JavaFX dependency.
+ * Each cell is packed into a single byte: the low four bits hold the number of
+ * adjacent mines and the upper bits hold the mine, revealed and flagged states.
+ */
+public class Board implements CellGrid {
+    // Bit layout of a packed cell
+    private static final int COUNT_MASK = 0x0F;
+    private static final int MINE_SHIFT = 4;
+    private static final int MINE = 1 << MINE_SHIFT;
+    private static final int REVEALED = 0x20;
+    private static final int FLAGGED = 0x40;
+
+    // A cell can be opened by the flood fill only if none of these bits are set
+    private static final int HIDDEN_EMPTY_MASK = COUNT_MASK | MINE | REVEALED | FLAGGED;
+
+    // Boards with at least this many cells build their count table in parallel
+    private static final int PARALLEL_COUNT_THRESHOLD = 1 << 20;
+
+    // Number of rows handled by one task of the count table build
+    private static final int COUNT_BAND_ROWS = 64;
+
+    // Board dimensions and number of mines
+    private final int rows;
+    private final int cols;
+    private final int mines;
+
+    // Packed cell state, indexed by row * cols + col
+    private final byte[] cells;
+
+    // Live counters kept up to date by the reveal and flag operations
+    private int safeCellsRemaining;
+    private int flagsPlaced;
+    private int correctFlags;
+
+    // Seed the mines were generated from, valid once they are placed
+    private long seed;
+    private boolean minesPlaced;
+
+    // Set once a mine has been revealed
+    private boolean exploded;
+
+    // Cells revealed by the last action, stored as (first index, length) row spans
+    private int[] revealedSpans = new int[0];
+    private int revealedSpanCount;
+    private int revealedCount;
+
+    // Reusable work stack for the flood fill
+    private int[] seedStack = new int[0];
+
+    /**
+     * Creates an empty board without any mines.
+     *
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @param mines The number of mines to place.
+     */
+    public Board(int rows, int cols, int mines) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + cols);
+        }
+        if (mines < 0 || mines > rows * cols) {
+            throw new IllegalArgumentException("Invalid number of mines: " + mines);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        this.cells = new byte[rows * cols];
+        this.safeCellsRemaining = rows * cols - mines;
+    }
+
+    /**
+     * Clears all mines, flags and revealed cells so the board can be reused for a
+     * new game of the same size without allocating new cell storage.
+     */
+    public void reset() {
+        Arrays.fill(cells, (byte) 0);
+        safeCellsRemaining = cells.length - mines;
+        flagsPlaced = 0;
+        correctFlags = 0;
+        seed = 0;
+        minesPlaced = false;
+        exploded = false;
+        clearRevealed();
+    }
+
+    /**
+     * Randomly places mines anywhere on the board and builds the adjacent mine
+     * count table. The same seed always produces the same board.
+     *
+     * @param seed The seed of the random generator choosing mine positions.
+     */
+    public void placeMines(long seed) {
+        placeMines(seed, -1, -1);
+    }
+
+    /**
+     * Randomly places mines while keeping the first clicked cell and its
+     * neighbours free of mines, then builds the adjacent mine count table. The
+     * same seed and safe cell always produce the same board.
+     *
+     * Positions are drawn with Floyd's sampling over the flat cell indices that
+     * are not excluded, using the mine bits themselves as the set of chosen
+     * cells, so every layout is equally likely and generation takes O(mines)
+     * steps at any density.
+     *
+     * @param seed    The seed of the random generator choosing mine positions.
+     * @param safeRow The row of the cell that must not hold a mine, or -1 for none.
+     * @param safeCol The column of the cell that must not hold a mine, or -1 for none.
+     */
+    public void placeMines(long seed, int safeRow, int safeCol) {
+        if (minesPlaced) {
+            throw new IllegalStateException("Mines have already been placed");
+        }
+        int[] excluded = safeZone(safeRow, safeCol);
+        int candidates = cells.length - excluded.length;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int bound = candidates - mines; bound < candidates; bound++) {
+            int index = skipExcluded(random.nextInt(bound + 1), excluded);
+            if ((cells[index] & MINE) != 0) {
+                index = skipExcluded(bound, excluded);
+            }
+            cells[index] |= MINE;
+
+            // Flags placed before the first click may now sit on a mine
+            if ((cells[index] & FLAGGED) != 0) {
+                correctFlags++;
+            }
+        }
+
+        this.seed = seed;
+        this.minesPlaced = true;
+        computeAdjacentCounts();
+    }
+
+    /**
+     * Gets the sorted flat indices of the cells that must stay free of mines: the
+     * safe cell and its neighbours, only the safe cell when the board is too
+     * dense for that, or nothing at all.
+     *
+     * @param safeRow The row of the safe cell, or -1 for none.
+     * @param safeCol The column of the safe cell, or -1 for none.
+     * @return The sorted indices of the excluded cells.
+     */
+    private int[] safeZone(int safeRow, int safeCol) {
+        if (!isInBounds(safeRow, safeCol) || mines > cells.length - 1) {
+            return new int[0];
+        }
+        int fromRow = Math.max(0, safeRow - 1);
+        int toRow = Math.min(rows - 1, safeRow + 1);
+        int fromCol = Math.max(0, safeCol - 1);
+        int toCol = Math.min(cols - 1, safeCol + 1);
+        int zoneSize = (toRow - fromRow + 1) * (toCol - fromCol + 1);
+        if (mines > cells.length - zoneSize) {
+            return new int[] {safeRow * cols + safeCol};
+        }
+
+        int[] zone = new int[zoneSize];
+        int i = 0;
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromCol; c <= toCol; c++) {
+                zone[i++] = r * cols + c;
+            }
+        }
+        return zone;
+    }
+
+    /**
+     * Maps a position among the candidate cells to its flat cell index by
+     * stepping over the excluded cells in front of it.
+     *
+     * @param candidate The position among the cells that are not excluded.
+     * @param excluded  The sorted indices of the excluded cells.
+     * @return The flat cell index.
+     */
+    private static int skipExcluded(int candidate, int[] excluded) {
+        int index = candidate;
+        for (int excludedIndex : excluded) {
+            if (index >= excludedIndex) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Stores the adjacent mine count of every cell once all mines are placed, so
+     * later lookups are a single array read. The counts are a separable 3x3 sum:
+     * each row is first summed horizontally and the count of a cell is then the
+     * sum of the three horizontal sums above, on and below it, minus its own mine.
+     * Large boards are split into row bands that are built in parallel.
+     */
+    private void computeAdjacentCounts() {
+        int bands = (rows + COUNT_BAND_ROWS - 1) / COUNT_BAND_ROWS;
+        IntStream bandStream = IntStream.range(0, bands);
+        if (cells.length >= PARALLEL_COUNT_THRESHOLD) {
+            bandStream = bandStream.parallel();
+        }
+        bandStream.forEach(band -> computeBandCounts(band * COUNT_BAND_ROWS,
+                Math.min(rows, (band + 1) * COUNT_BAND_ROWS)));
+    }
+
+    /**
+     * Builds the adjacent mine counts for a band of rows.
+     *
+     * @param fromRow The first row of the band.
+     * @param toRow   The row after the last row of the band.
+     */
+    private void computeBandCounts(int fromRow, int toRow) {
+        // Rolling horizontal sums of the rows above, on and below the current row
+        byte[] above = new byte[cols];
+        byte[] current = new byte[cols];
+        byte[] below = new byte[cols];
+        if (fromRow > 0) {
+            sumRowMines(fromRow - 1, above);
+        }
+        sumRowMines(fromRow, current);
+
+        for (int row = fromRow; row < toRow; row++) {
+            if (row + 1 < rows) {
+                sumRowMines(row + 1, below);
+            } else {
+                Arrays.fill(below, (byte) 0);
+            }
+
+            int rowStart = row * cols;
+            for (int col = 0; col < cols; col++) {
+                int index = rowStart + col;
+                int count = above[col] + current[col] + below[col] - ((cells[index] >> MINE_SHIFT) & 1);
+                cells[index] = (byte) ((cells[index] & ~COUNT_MASK) | count);
+            }
+
+            byte[] recycled = above;
+            above = current;
+            current = below;
+            below = recycled;
+        }
+    }
+
+    /**
+     * Sums the mines of each cell and its left and right neighbours in one row.
+     *
+     * @param row  The row to sum.
+     * @param sums The array receiving one sum per column.
+     */
+    private void sumRowMines(int row, byte[] sums) {
+        int rowStart = row * cols;
+        int left = 0;
+        int middle = (cells[rowStart] >> MINE_SHIFT) & 1;
+        for (int col = 0; col < cols; col++) {
+            int right = col + 1 < cols ? (cells[rowStart + col + 1] >> MINE_SHIFT) & 1 : 0;
+            sums[col] = (byte) (left + middle + right);
+            left = middle;
+            middle = right;
+        }
+    }
+
+    /**
+     * Reveals a cell and, if it has no adjacent mines, the surrounding area.
+     * Flagged and already revealed cells are left untouched. The newly revealed
+     * cells are available from {@link #getRevealedSpans()} afterwards.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The number of newly revealed cells.
+     */
+    public int reveal(int row, int col) {
+        clearRevealed();
+        if (isInBounds(row, col)) {
+            revealFrom(row * cols + col);
+        }
+        return revealedCount;
+    }
+
+    /**
+     * Reveals a cell and flood-fills the area around it with an iterative scanline
+     * fill. Each pending seed opens a whole horizontal run of empty cells at once,
+     * then queues one seed per run of empty cells found in the rows above and below,
+     * so the work stack only grows with the outline of the opening.
+     *
+     * @param start The flat index of the cell to reveal.
+     */
+    private void revealFrom(int start) {
+        if ((cells[start] & (REVEALED | FLAGGED)) != 0) {
+            return;
+        }
+        if ((cells[start] & MINE) != 0) {
+            exploded = true;
+            cells[start] |= REVEALED;
+            recordSpan(start, 1);
+            return;
+        }
+        if ((cells[start] & COUNT_MASK) != 0) {
+            markRevealed(start, start);
+            return;
+        }
+
+        int stackSize = 0;
+        seedStack = pushSeed(seedStack, stackSize++, start);
+        while (stackSize > 0) {
+            int seed = seedStack[--stackSize];
+            if ((cells[seed] & REVEALED) != 0) {
+                continue;
+            }
+
+            // Extend the seed to the full run of empty cells in its row
+            int rowStart = seed - seed % cols;
+            int rowEnd = rowStart + cols - 1;
+            int left = seed;
+            while (left > rowStart && (cells[left - 1] & HIDDEN_EMPTY_MASK) == 0) {
+                left--;
+            }
+            int right = seed;
+            while (right < rowEnd && (cells[right + 1] & HIDDEN_EMPTY_MASK) == 0) {
+                right++;
+            }
+
+            // Hidden cells bordering an empty run are always safe numbers
+            int first = left > rowStart && (cells[left - 1] & (REVEALED | FLAGGED)) == 0 ? left - 1 : left;
+            int last = right < rowEnd && (cells[right + 1] & (REVEALED | FLAGGED)) == 0 ? right + 1 : right;
+            markRevealed(first, last);
+
+            // Scan the rows above and below, revealing numbers and seeding empty runs
+            int fromCol = Math.max(0, left - rowStart - 1);
+            int toCol = Math.min(cols - 1, right - rowStart + 1);
+            for (int adjacentStart = rowStart - cols; adjacentStart <= rowStart + cols; adjacentStart += 2 * cols) {
+                if (adjacentStart < 0 || adjacentStart >= cells.length) {
+                    continue;
+                }
+                int index = adjacentStart + fromCol;
+                int end = adjacentStart + toCol;
+                while (index <= end) {
+                    if ((cells[index] & HIDDEN_EMPTY_MASK) == 0) {
+                        seedStack = pushSeed(seedStack, stackSize++, index);
+                        while (index <= end && (cells[index] & HIDDEN_EMPTY_MASK) == 0) {
+                            index++;
+                        }
+                    } else if ((cells[index] & (REVEALED | FLAGGED)) == 0) {
+                        int numbersStart = index;
+                        while (index + 1 <= end && (cells[index + 1] & (REVEALED | FLAGGED)) == 0
+                                && (cells[index + 1] & COUNT_MASK) != 0) {
+                            index++;
+                        }
+                        markRevealed(numbersStart, index);
+                        index++;
+                    } else {
+                        index++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes a seed onto the flood-fill work stack, growing the stack if needed.
+     *
+     * @param stack The current work stack.
+     * @param size  The number of seeds already on the stack.
+     * @param seed  The flat index of the seed.
+     * @return The work stack holding the new seed.
+     */
+    private static int[] pushSeed(int[] stack, int size, int seed) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(16, stack.length * 2));
+        }
+        stack[size] = seed;
+        return stack;
+    }
+
+    /**
+     * Reveals a run of safe cells within one row and records it as a revealed span.
+     *
+     * @param first The flat index of the first cell of the run.
+     * @param last  The flat index of the last cell of the run.
+     */
+    private void markRevealed(int first, int last) {
+        for (int index = first; index <= last; index++) {
+            cells[index] |= REVEALED;
+        }
+        safeCellsRemaining -= last - first + 1;
+        recordSpan(first, last - first + 1);
+    }
+
+    /**
+     * Records a run of cells revealed by the current action.
+     *
+     * @param first  The flat index of the first cell of the run.
+     * @param length The number of cells in the run.
+     */
+    private void recordSpan(int first, int length) {
+        if (revealedSpanCount * 2 == revealedSpans.length) {
+            revealedSpans = Arrays.copyOf(revealedSpans, Math.max(16, revealedSpans.length * 2));
+        }
+        revealedSpans[revealedSpanCount * 2] = first;
+        revealedSpans[revealedSpanCount * 2 + 1] = length;
+        revealedSpanCount++;
+        revealedCount += length;
+    }
+
+    /**
+     * Forgets the cells revealed by the previous action.
+     */
+    private void clearRevealed() {
+        revealedSpanCount = 0;
+        revealedCount = 0;
+    }
+
+    /**
+     * Places or removes a flag on an unrevealed cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the flag state of the cell changed.
+     */
+    public boolean toggleFlag(int row, int col) {
+        int index = checkedIndex(row, col);
+        if ((cells[index] & REVEALED) != 0) {
+            return false;
+        }
+        cells[index] ^= FLAGGED;
+        int change = (cells[index] & FLAGGED) != 0 ? 1 : -1;
+        flagsPlaced += change;
+        if ((cells[index] & MINE) != 0) {
+            correctFlags += change;
+        }
+        return true;
+    }
+
+    /**
+     * Reveals all unflagged neighbours of a revealed number once the number of
+     * flags around it matches its adjacent mine count. The newly revealed cells
+     * are available from {@link #getRevealedSpans()} afterwards.
+     *
+     * @param row The row of the revealed number.
+     * @param col The column of the revealed number.
+     * @return The number of newly revealed cells.
+     */
+    public int chord(int row, int col) {
+        int index = checkedIndex(row, col);
+        int count = cells[index] & COUNT_MASK;
+        if ((cells[index] & REVEALED) == 0 || count == 0) {
+            return 0;
+        }
+
+        // Only chord when the surrounding flags account for every adjacent mine
+        int flags = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                if ((cells[r * cols + c] & FLAGGED) != 0) {
+                    flags++;
+                }
+            }
+        }
+        if (flags != count) {
+            return 0;
+        }
+
+        clearRevealed();
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                revealFrom(r * cols + c);
+            }
+        }
+        return revealedCount;
+    }
+
+    /**
+     * Checks if every cell without a mine has been revealed.
+     *
+     * @return True if the board is cleared.
+     */
+    public boolean isWon() {
+        return !exploded && safeCellsRemaining == 0;
+    }
+
+    /**
+     * Checks if a mine has been revealed.
+     *
+     * @return True if the game is lost.
+     */
+    public boolean isLost() {
+        return exploded;
+    }
+
+    /**
+     * Checks if a cell contains a mine.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell contains a mine.
+     */
+    public boolean isMine(int row, int col) {
+        return (cells[checkedIndex(row, col)] & MINE) != 0;
+    }
+
+    /**
+     * Checks if a cell has been revealed.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell has been revealed.
+     */
+    public boolean isRevealed(int row, int col) {
+        return (cells[checkedIndex(row, col)] & REVEALED) != 0;
+    }
+
+    /**
+     * Checks if a cell is marked with a flag.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell is flagged.
+     */
+    public boolean isFlagged(int row, int col) {
+        return (cells[checkedIndex(row, col)] & FLAGGED) != 0;
+    }
+
+    /**
+     * Gets the number of mines in the cells adjacent to a cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The number of adjacent mines.
+     */
+    public int getAdjacentMines(int row, int col) {
+        return cells[checkedIndex(row, col)] & COUNT_MASK;
+    }
+
+    /**
+     * Gets the cells revealed by the last reveal or chord as row spans. Span i
+     * starts at flat index (row * cols + col) {@code spans[2 * i]} and covers
+     * {@code spans[2 * i + 1]} consecutive cells of the same row. The array is
+     * reused by the next call.
+     *
+     * @return The shared buffer of revealed spans.
+     */
+    public int[] getRevealedSpans() {
+        return revealedSpans;
+    }
+
+    /**
+     * Gets the number of spans revealed by the last reveal or chord.
+     *
+     * @return The number of valid spans in {@link #getRevealedSpans()}.
+     */
+    public int getRevealedSpanCount() {
+        return revealedSpanCount;
+    }
+
+    /**
+     * Checks if a position lies on the board.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the position is within the bounds of the board.
+     */
+    public boolean isInBounds(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the total number of mines.
+     *
+     * @return The number of mines.
+     */
+    public int getMines() {
+        return mines;
+    }
+
+    /**
+     * Checks if the mines have been placed on the board.
+     *
+     * @return True once the mines are placed.
+     */
+    public boolean isMinesPlaced() {
+        return minesPlaced;
+    }
+
+    /**
+     * Gets the seed the mines were generated from, which reproduces the board.
+     *
+     * @return The seed of the mine layout.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of flags currently placed.
+     *
+     * @return The number of flags placed.
+     */
+    public int getFlagsPlaced() {
+        return flagsPlaced;
+    }
+
+    /**
+     * Gets the number of flags placed on cells that really contain a mine.
+     *
+     * @return The number of correct flags.
+     */
+    public int getCorrectFlags() {
+        return correctFlags;
+    }
+
+    /**
+     * Gets the number of cells without a mine that are still hidden.
+     *
+     * @return The number of safe cells left to reveal.
+     */
+    public int getSafeCellsRemaining() {
+        return safeCellsRemaining;
+    }
+
+    /**
+     * Creates an independent copy of the board, for example to save it on another
+     * thread while the game goes on.
+     *
+     * @return The copy of the board.
+     */
+    public Board copy() {
+        Board copy = new Board(rows, cols, mines);
+        System.arraycopy(cells, 0, copy.cells, 0, cells.length);
+        copy.safeCellsRemaining = safeCellsRemaining;
+        copy.flagsPlaced = flagsPlaced;
+        copy.correctFlags = correctFlags;
+        copy.seed = seed;
+        copy.minesPlaced = minesPlaced;
+        copy.exploded = exploded;
+        return copy;
+    }
+
+    /**
+     * Hides a run of revealed cells again, taking back part of a reveal or chord.
+     * Undo replays the spans an action revealed through here, so taking back an
+     * opening costs as much as making it did.
+     *
+     * @param first  The flat index of the first cell.
+     * @param length The number of cells in the run.
+     */
+    void hideRun(int first, int length) {
+        for (int index = first; index < first + length; index++) {
+            if ((cells[index] & REVEALED) == 0) {
+                continue;
+            }
+            cells[index] &= ~REVEALED;
+            if ((cells[index] & MINE) != 0) {
+                exploded = false;
+            } else {
+                safeCellsRemaining++;
+            }
+        }
+        clearRevealed();
+    }
+
+    /**
+     * Removes the mines and hides every cell, keeping the flags, so the mines
+     * can be placed again around another first click. Used to take back the
+     * click that placed the mines.
+     */
+    void clearMines() {
+        for (int index = 0; index < cells.length; index++) {
+            cells[index] &= FLAGGED;
+        }
+        safeCellsRemaining = cells.length - mines;
+        correctFlags = 0;
+        seed = 0;
+        minesPlaced = false;
+        exploded = false;
+        clearRevealed();
+    }
+
+    /**
+     * Gets the adjacent mine count of a cell by flat index without a bounds
+     * check, for scans over the whole board.
+     *
+     * @param index The flat index of the cell.
+     * @return The number of adjacent mines, or -1 if the cell is a mine.
+     */
+    int getValueAt(int index) {
+        return (cells[index] & MINE) != 0 ? -1 : cells[index] & COUNT_MASK;
+    }
+
+    /**
+     * Gets the number of longs in one bit plane of {@link #writeStates}.
+     *
+     * @return The number of longs needed for one bit per cell.
+     */
+    int getBitPlaneLength() {
+        return (cells.length + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Writes the mine, revealed and flagged states as three consecutive bit planes
+     * of {@link #getBitPlaneLength()} longs each. Cell i is bit i % 64 of long
+     * i / 64 of a plane. The adjacent counts are not written, they are rebuilt on
+     * load.
+     *
+     * @param buffer The buffer receiving the planes at its current position.
+     */
+    void writeStates(LongBuffer buffer) {
+        int planeLength = getBitPlaneLength();
+        int base = buffer.position();
+        for (int word = 0; word < planeLength; word++) {
+            long mineBits = 0;
+            long revealedBits = 0;
+            long flaggedBits = 0;
+            int first = word * Long.SIZE;
+            int last = Math.min(cells.length, first + Long.SIZE);
+            for (int index = first; index < last; index++) {
+                long bit = 1L << (index - first);
+                int cell = cells[index];
+                mineBits |= (cell & MINE) != 0 ? bit : 0;
+                revealedBits |= (cell & REVEALED) != 0 ? bit : 0;
+                flaggedBits |= (cell & FLAGGED) != 0 ? bit : 0;
+            }
+            buffer.put(base + word, mineBits);
+            buffer.put(base + planeLength + word, revealedBits);
+            buffer.put(base + 2 * planeLength + word, flaggedBits);
+        }
+        buffer.position(base + 3 * planeLength);
+    }
+
+    /**
+     * Replaces the state of the board with bit planes written by
+     * {@link #writeStates}, then rebuilds the adjacent counts and the counters.
+     *
+     * @param buffer      The buffer holding the planes at its current position.
+     * @param seed        The seed the mines were generated from.
+     * @param minesPlaced Whether the mines had been placed when the planes were written.
+     * @throws IllegalArgumentException If the planes do not hold the board's number of mines.
+     */
+    void readStates(LongBuffer buffer, long seed, boolean minesPlaced) {
+        int planeLength = getBitPlaneLength();
+        int base = buffer.position();
+        int mineCount = 0;
+        int revealedSafe = 0;
+        flagsPlaced = 0;
+        correctFlags = 0;
+        exploded = false;
+        for (int word = 0; word < planeLength; word++) {
+            long mineBits = buffer.get(base + word);
+            long revealedBits = buffer.get(base + planeLength + word);
+            long flaggedBits = buffer.get(base + 2 * planeLength + word);
+            int first = word * Long.SIZE;
+            int last = Math.min(cells.length, first + Long.SIZE);
+            for (int index = first; index < last; index++) {
+                int shift = index - first;
+                boolean mine = (mineBits >>> shift & 1) != 0;
+                boolean revealed = (revealedBits >>> shift & 1) != 0;
+                boolean flagged = (flaggedBits >>> shift & 1) != 0;
+                cells[index] = (byte) ((mine ? MINE : 0) | (revealed ? REVEALED : 0) | (flagged ? FLAGGED : 0));
+                mineCount += mine ? 1 : 0;
+                revealedSafe += revealed && !mine ? 1 : 0;
+                flagsPlaced += flagged ? 1 : 0;
+                correctFlags += flagged && mine ? 1 : 0;
+                exploded |= revealed && mine;
+            }
+        }
+        buffer.position(base + 3 * planeLength);
+
+        if (mineCount != (minesPlaced ? mines : 0)) {
+            throw new IllegalArgumentException("Expected " + (minesPlaced ? mines : 0) + " mines but found " + mineCount);
+        }
+        this.seed = seed;
+        this.minesPlaced = minesPlaced;
+        safeCellsRemaining = cells.length - mines - revealedSafe;
+        clearRevealed();
+        if (minesPlaced) {
+            computeAdjacentCounts();
+        }
+    }
+
+    /**
+     * Converts a position to a flat cell index, rejecting positions off the board.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The flat cell index.
+     */
+    private int checkedIndex(int row, int col) {
+        if (!isInBounds(row, col)) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside the board");
+        }
+        return row * cols + col;
+    }
+}
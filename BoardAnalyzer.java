@@ -0,0 +1,304 @@
+import java.util.Arrays;
+
+/**
+ * Computes the difficulty metrics of a board with mines placed: its 3BV (the
+ * least number of clicks that clear it), its openings and their sizes, and
+ * the isolated numbers that no opening reveals.
+ *
+ * The empty cells are grouped into openings with a union-find over the flat
+ * cell array in a single row-major pass, joining each empty cell to the empty
+ * neighbours already visited (left, up-left, up and up-right). A second pass
+ * over the empty cells credits the numbers around them to their openings;
+ * numbers that no opening reaches are the isolated ones. Both passes are
+ * linear in the number of cells, and an analyzer keeps its work arrays between
+ * calls, so analysing a board of the same size again allocates nothing. An
+ * analyzer is not thread-safe; use one per thread.
+ */
+public class BoardAnalyzer {
+    // Union-find parents by flat index, only meaningful for empty cells
+    private int[] parent = new int[0];
+
+    // Opening number of each empty cell, and the cells each opening reveals
+    private int[] openingOf = new int[0];
+    private int[] openingSizes = new int[16];
+
+    // Opening + 1 each number was first credited to, and the numbers between openings
+    private int[] firstOpening = new int[0];
+    private int[] shared = new int[16];
+    private int sharedCount;
+
+    // Distinct openings around a number between openings
+    private final int[] touched = new int[9];
+
+    // Results of the last analysis
+    private int openingCount;
+    private int isolatedNumbers;
+    private int emptyCells;
+    private int openedCells;
+    private int safeCells;
+    private int largestOpening;
+
+    /**
+     * Analyses a board. The results are available from the getters until the
+     * next call.
+     *
+     * @param board A board with its mines placed; revealed cells and flags are ignored.
+     */
+    public void analyze(Board board) {
+        if (!board.isMinesPlaced()) {
+            throw new IllegalStateException("The mines of the board are not placed yet");
+        }
+        int rows = board.getRows();
+        int cols = board.getCols();
+        int cellCount = rows * cols;
+        if (parent.length < cellCount) {
+            parent = new int[cellCount];
+            openingOf = new int[cellCount];
+            firstOpening = new int[cellCount];
+        }
+
+        // First pass: join every empty cell to the empty neighbours visited before it
+        emptyCells = 0;
+        for (int row = 0; row < rows; row++) {
+            int index = row * cols;
+            for (int col = 0; col < cols; col++, index++) {
+                if (board.getValueAt(index) != 0) {
+                    continue;
+                }
+                emptyCells++;
+                parent[index] = index;
+                if (col > 0 && board.getValueAt(index - 1) == 0) {
+                    union(index, index - 1);
+                }
+                if (row > 0) {
+                    int above = index - cols;
+                    if (col > 0 && board.getValueAt(above - 1) == 0) {
+                        union(index, above - 1);
+                    }
+                    if (board.getValueAt(above) == 0) {
+                        union(index, above);
+                    }
+                    if (col < cols - 1 && board.getValueAt(above + 1) == 0) {
+                        union(index, above + 1);
+                    }
+                }
+            }
+        }
+
+        // Number the openings and label every empty cell with its opening. A root is
+        // the first cell of its opening, so it is labelled before the rest of it
+        openingCount = 0;
+        for (int index = 0; index < cellCount; index++) {
+            if (board.getValueAt(index) != 0) {
+                continue;
+            }
+            int root = find(index);
+            if (root == index) {
+                if (openingCount == openingSizes.length) {
+                    openingSizes = Arrays.copyOf(openingSizes, openingSizes.length * 2);
+                }
+                openingSizes[openingCount] = 0;
+                openingOf[index] = openingCount++;
+            } else {
+                openingOf[index] = openingOf[root];
+            }
+        }
+
+        // Second pass, over the empty cells only: each opening reveals its empty cells
+        // and the numbers around them. A number is credited to the first opening that
+        // reaches it; the few numbers between two openings are counted exactly below
+        Arrays.fill(firstOpening, 0, cellCount, 0);
+        sharedCount = 0;
+        openedCells = emptyCells;
+        for (int row = 0; row < rows; row++) {
+            int index = row * cols;
+            for (int col = 0; col < cols; col++, index++) {
+                if (board.getValueAt(index) != 0) {
+                    continue;
+                }
+                int opening = openingOf[index];
+                openingSizes[opening]++;
+                for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                    for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                        int neighbour = r * cols + c;
+                        if (board.getValueAt(neighbour) > 0) {
+                            creditNumber(neighbour, opening);
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < sharedCount; i++) {
+            creditOtherOpenings(board, shared[i], rows, cols);
+        }
+
+        safeCells = cellCount - board.getMines();
+        isolatedNumbers = safeCells - openedCells;
+        largestOpening = 0;
+        for (int opening = 0; opening < openingCount; opening++) {
+            largestOpening = Math.max(largestOpening, openingSizes[opening]);
+        }
+    }
+
+    /**
+     * Credits a number next to an empty cell to the cell's opening, unless the
+     * number was already reached from it. A number reached from a second opening
+     * is remembered for {@link #creditOtherOpenings}.
+     */
+    private void creditNumber(int index, int opening) {
+        int first = firstOpening[index];
+        if (first == 0) {
+            firstOpening[index] = opening + 1;
+            openingSizes[opening]++;
+            openedCells++;
+        } else if (first > 0 && first != opening + 1) {
+            // Negative while the number waits in the shared list
+            firstOpening[index] = -first;
+            if (sharedCount == shared.length) {
+                shared = Arrays.copyOf(shared, shared.length * 2);
+            }
+            shared[sharedCount++] = index;
+        }
+    }
+
+    /**
+     * Credits a number between several openings to every opening around it
+     * except the one it was first credited to.
+     */
+    private void creditOtherOpenings(Board board, int index, int rows, int cols) {
+        int row = index / cols;
+        int col = index % cols;
+        int touchedCount = 0;
+        touched[touchedCount++] = -firstOpening[index] - 1;
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                int neighbour = r * cols + c;
+                if (board.getValueAt(neighbour) != 0) {
+                    continue;
+                }
+                int opening = openingOf[neighbour];
+                if (!contains(touched, touchedCount, opening)) {
+                    touched[touchedCount++] = opening;
+                    openingSizes[opening]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the 3BV of the board: one click per opening plus one per isolated number.
+     *
+     * @return The least number of left clicks that clear the board.
+     */
+    public int getThreeBV() {
+        return openingCount + isolatedNumbers;
+    }
+
+    /**
+     * Gets the number of openings, the connected areas of empty cells.
+     *
+     * @return The number of openings.
+     */
+    public int getOpeningCount() {
+        return openingCount;
+    }
+
+    /**
+     * Gets the number of cells one click on an opening reveals: its empty cells
+     * and the numbers around them.
+     *
+     * @param opening The opening, between 0 and {@link #getOpeningCount()} - 1, in row-major order.
+     * @return The size of the opening.
+     */
+    public int getOpeningSize(int opening) {
+        if (opening < 0 || opening >= openingCount) {
+            throw new IndexOutOfBoundsException("Opening " + opening + " of " + openingCount);
+        }
+        return openingSizes[opening];
+    }
+
+    /**
+     * Gets the size of the largest opening.
+     *
+     * @return The number of cells of the largest opening, or 0 without openings.
+     */
+    public int getLargestOpening() {
+        return largestOpening;
+    }
+
+    /**
+     * Gets the number of isolated numbers, which touch no opening and have to be
+     * clicked one by one.
+     *
+     * @return The number of isolated numbers.
+     */
+    public int getIsolatedNumberCount() {
+        return isolatedNumbers;
+    }
+
+    /**
+     * Gets the number of safe cells revealed by clicking every opening once.
+     *
+     * @return The number of cells in at least one opening.
+     */
+    public int getOpenedCellCount() {
+        return openedCells;
+    }
+
+    /**
+     * Gets the number of cells without a mine.
+     *
+     * @return The number of safe cells.
+     */
+    public int getSafeCellCount() {
+        return safeCells;
+    }
+
+    /**
+     * Gets the 3BV per second of a game that cleared the board, the usual speed
+     * score for comparing games on boards of different difficulty.
+     *
+     * @param seconds The time the game took in seconds.
+     * @return The 3BV per second.
+     */
+    public double getThreeBVPerSecond(double seconds) {
+        return getThreeBV() / Math.max(seconds, 1e-3);
+    }
+
+    /**
+     * Finds the root of a cell's opening, halving the path on the way.
+     */
+    private int find(int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    /**
+     * Joins the openings of two empty cells, keeping the smaller root so roots
+     * stay the first cell of their opening in row-major order.
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /**
+     * Checks whether the first entries of an array hold a value.
+     */
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * A batch of changed cells, produced by one or more game actions and applied
+ * to a view at once. Cells are stored as runs of consecutive flat indices (row
+ * * cols + col), so an opening of thousands of cells takes a few runs per row;
+ * a run appended right after the previous one extends it. The delta only names
+ * the cells, the view reads their current state from the board when it
+ * applies the batch, so applying a cell twice is harmless and batches can be
+ * merged by appending.
+ */
+public class BoardDelta {
+    private int[] runs = new int[32];
+    private int runCount;
+    private long cellCount;
+
+    // Set when every cell may have changed
+    private boolean all;
+
+    /**
+     * Adds a run of consecutive cells.
+     *
+     * @param first  The flat index of the first cell.
+     * @param length The number of cells.
+     */
+    public void addRun(int first, int length) {
+        if (all || length <= 0) {
+            return;
+        }
+        cellCount += length;
+
+        // Extend the previous run when the new one continues it
+        if (runCount > 0 && runs[2 * runCount - 2] + runs[2 * runCount - 1] == first) {
+            runs[2 * runCount - 1] += length;
+            return;
+        }
+        if (2 * runCount == runs.length) {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        runs[2 * runCount] = first;
+        runs[2 * runCount + 1] = length;
+        runCount++;
+    }
+
+    /**
+     * Adds a single cell.
+     *
+     * @param index The flat index of the cell.
+     */
+    public void addCell(int index) {
+        addRun(index, 1);
+    }
+
+    /**
+     * Adds the cells revealed by the last reveal or chord of a board.
+     *
+     * @param board The board that was just revealed on.
+     */
+    public void addRevealed(Board board) {
+        int[] spans = board.getRevealedSpans();
+        for (int span = 0; span < board.getRevealedSpanCount(); span++) {
+            addRun(spans[2 * span], spans[2 * span + 1]);
+        }
+    }
+
+    /**
+     * Adds every cell of another delta.
+     *
+     * @param other The delta to merge into this one.
+     */
+    public void addAll(BoardDelta other) {
+        if (other.all) {
+            markAll();
+            return;
+        }
+        for (int run = 0; run < other.runCount; run++) {
+            addRun(other.runs[2 * run], other.runs[2 * run + 1]);
+        }
+    }
+
+    /**
+     * Marks every cell of the board as changed, dropping the individual runs.
+     */
+    public void markAll() {
+        all = true;
+        runCount = 0;
+        cellCount = 0;
+    }
+
+    /**
+     * Removes all changes.
+     */
+    public void clear() {
+        all = false;
+        runCount = 0;
+        cellCount = 0;
+    }
+
+    /**
+     * Checks if the delta holds no changes.
+     *
+     * @return True if nothing changed.
+     */
+    public boolean isEmpty() {
+        return !all && runCount == 0;
+    }
+
+    /**
+     * Checks if every cell may have changed.
+     *
+     * @return True if the whole board must be refreshed.
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * Gets the number of runs.
+     *
+     * @return The number of valid runs in {@link #getRuns()}.
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Gets the runs of changed cells. Run i starts at flat index
+     * {@code runs[2 * i]} and covers {@code runs[2 * i + 1]} cells, which may
+     * continue into the following rows. The array is reused as runs are added.
+     *
+     * @return The shared buffer of runs.
+     */
+    public int[] getRuns() {
+        return runs;
+    }
+
+    /**
+     * Gets the number of changed cells, counting a cell added twice twice.
+     *
+     * @return The number of cells in all runs.
+     */
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Builds the delta that brings an untouched view up to date with a board:
+     * every revealed or flagged cell. This scans the whole board, so for a large
+     * board it is meant to run in the background on a copy of the board.
+     *
+     * @param board The board to scan.
+     * @return The delta of all revealed and flagged cells.
+     */
+    public static BoardDelta ofVisibleCells(Board board) {
+        BoardDelta delta = new BoardDelta();
+        int cols = board.getCols();
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < cols; col++) {
+                if (board.isRevealed(row, col) || board.isFlagged(row, col)) {
+                    delta.addCell(row * cols + col);
+                }
+            }
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a bounded number of ready-made no-guess boards per difficulty so a new
+ * game can start without waiting for generation.
+ *
+ * A single background thread refills the pools and hands the candidate checks
+ * to a fork-join pool that leaves one core free for the JavaFX thread. Taking
+ * a board never blocks while the pool has one; when it is empty the board is
+ * generated on the calling thread instead and counted as a miss. Callers on the
+ * JavaFX thread poll the pool and take from it on another thread on a miss.
+ */
+public class BoardPool {
+    // Default number of ready boards kept per difficulty
+    public static final int DEFAULT_CAPACITY = 3;
+
+    /**
+     * Hit, miss and refill counters of one difficulty. All methods may be called
+     * from any thread.
+     */
+    public static class Metrics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong refills = new AtomicLong();
+        private final AtomicLong totalRefillNanos = new AtomicLong();
+        private final AtomicLong maxRefillNanos = new AtomicLong();
+
+        /**
+         * Gets the number of boards taken straight from the pool.
+         *
+         * @return The number of hits.
+         */
+        public long getHits() {
+            return hits.get();
+        }
+
+        /**
+         * Gets the number of boards generated on demand because the pool was empty.
+         *
+         * @return The number of misses.
+         */
+        public long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * Gets the number of boards generated in the background.
+         *
+         * @return The number of refills.
+         */
+        public long getRefills() {
+            return refills.get();
+        }
+
+        /**
+         * Gets the average time taken to generate one board in the background.
+         *
+         * @return The average refill latency in milliseconds.
+         */
+        public double getAverageRefillMillis() {
+            long count = refills.get();
+            return count == 0 ? 0 : totalRefillNanos.get() / 1e6 / count;
+        }
+
+        /**
+         * Gets the longest time taken to generate one board in the background.
+         *
+         * @return The maximum refill latency in milliseconds.
+         */
+        public double getMaxRefillMillis() {
+            return maxRefillNanos.get() / 1e6;
+        }
+
+        private void recordRefill(long nanos) {
+            refills.incrementAndGet();
+            totalRefillNanos.addAndGet(nanos);
+            maxRefillNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d refills=%d avgRefill=%.1fms maxRefill=%.1fms",
+                    getHits(), getMisses(), getRefills(), getAverageRefillMillis(), getMaxRefillMillis());
+        }
+    }
+
+    private final Map<Difficulty, ArrayBlockingQueue<Board>> boards = new EnumMap<>(Difficulty.class);
+    private final Map<Difficulty, Metrics> metrics = new EnumMap<>(Difficulty.class);
+    private final Map<Difficulty, AtomicBoolean> refillScheduled = new EnumMap<>(Difficulty.class);
+
+    private final ForkJoinPool generatorPool;
+    private final NoGuessGenerator generator;
+    private final ExecutorService refiller;
+
+    // Seeds of the generated boards; only used by one thread at a time
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    /**
+     * Creates a pool with the default capacity and starts filling it.
+     */
+    public BoardPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a pool and starts filling it in the background.
+     *
+     * @param capacity The number of ready boards kept per difficulty.
+     */
+    public BoardPool(int capacity) {
+        for (Difficulty difficulty : Difficulty.values()) {
+            boards.put(difficulty, new ArrayBlockingQueue<>(capacity));
+            metrics.put(difficulty, new Metrics());
+            refillScheduled.put(difficulty, new AtomicBoolean());
+        }
+
+        generatorPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        generator = new NoGuessGenerator(generatorPool);
+        refiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "board-pool-refill");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        // Fill the easy difficulties first, they are ready within milliseconds
+        for (Difficulty difficulty : Difficulty.values()) {
+            scheduleRefill(difficulty);
+        }
+    }
+
+    /**
+     * Takes a ready no-guess board of a difficulty, with its first click opened.
+     * If none is ready, one is generated on the calling thread.
+     *
+     * @param difficulty The difficulty of the board.
+     * @return The board.
+     */
+    public Board take(Difficulty difficulty) {
+        Board board = boards.get(difficulty).poll();
+        if (board != null) {
+            metrics.get(difficulty).hits.incrementAndGet();
+        } else {
+            metrics.get(difficulty).misses.incrementAndGet();
+            board = generate(difficulty, new SplittableRandom().nextLong());
+        }
+        scheduleRefill(difficulty);
+        return board;
+    }
+
+    /**
+     * Takes a ready no-guess board of a difficulty if the pool has one. Never
+     * generates a board, so it may be called from the JavaFX thread; on a miss
+     * the caller is expected to {@link #take} a board on another thread, which
+     * counts the miss.
+     *
+     * @param difficulty The difficulty of the board.
+     * @return The board, with its first click opened, or null if none is ready.
+     */
+    public Board poll(Difficulty difficulty) {
+        Board board = boards.get(difficulty).poll();
+        if (board != null) {
+            metrics.get(difficulty).hits.incrementAndGet();
+            scheduleRefill(difficulty);
+        }
+        return board;
+    }
+
+    /**
+     * Generates a no-guess board of a custom size on the calling thread. Only the
+     * difficulties are pooled, custom sizes rarely repeat.
+     *
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @param mines The number of mines.
+     * @param seed  The seed of the first candidate board.
+     * @return The board, with its first click opened.
+     */
+    public Board generate(int rows, int cols, int mines, long seed) {
+        return generator.generate(rows, cols, mines, seed);
+    }
+
+    /**
+     * Gets the hit, miss and refill counters of a difficulty.
+     *
+     * @param difficulty The difficulty.
+     * @return The metrics of the difficulty.
+     */
+    public Metrics getMetrics(Difficulty difficulty) {
+        return metrics.get(difficulty);
+    }
+
+    /**
+     * Gets the number of ready boards of a difficulty.
+     *
+     * @param difficulty The difficulty.
+     * @return The number of boards in the pool.
+     */
+    public int getReadyCount(Difficulty difficulty) {
+        return boards.get(difficulty).size();
+    }
+
+    /**
+     * Stops the background refill.
+     */
+    public void shutdown() {
+        refiller.shutdownNow();
+        generatorPool.shutdownNow();
+    }
+
+    /**
+     * Queues a refill of a difficulty unless one is already queued.
+     *
+     * @param difficulty The difficulty to refill.
+     */
+    private void scheduleRefill(Difficulty difficulty) {
+        if (refillScheduled.get(difficulty).compareAndSet(false, true) && !refiller.isShutdown()) {
+            refiller.execute(() -> refill(difficulty));
+        }
+    }
+
+    /**
+     * Generates boards until the pool of a difficulty is full.
+     *
+     * @param difficulty The difficulty to refill.
+     */
+    private void refill(Difficulty difficulty) {
+        ArrayBlockingQueue<Board> queue = boards.get(difficulty);
+        try {
+            while (queue.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                long start = System.nanoTime();
+                Board board = generate(difficulty, seeds.nextLong());
+                metrics.get(difficulty).recordRefill(System.nanoTime() - start);
+                queue.offer(board);
+            }
+        } finally {
+            refillScheduled.get(difficulty).set(false);
+        }
+
+        // A board taken while the flag was still set would otherwise not be replaced
+        if (queue.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+            scheduleRefill(difficulty);
+        }
+    }
+
+    /**
+     * Generates one no-guess board of a difficulty.
+     */
+    private Board generate(Difficulty difficulty, long seed) {
+        return generator.generate(difficulty.getRows(), difficulty.getCols(), difficulty.getMines(), seed);
+    }
+}
@@ -0,0 +1,212 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Carries batches of changed cells from the game logic to a view, applying
+ * them once per JavaFX pulse instead of touching the view while an action is
+ * still running.
+ *
+ * Batches can be posted from any thread: work that scans or rebuilds a large
+ * part of the board can build its {@link BoardDelta} in the background and
+ * post it when done. Batches posted before the next pulse are coalesced into
+ * one. A view that pays per cell, like a grid of buttons, gets a budget of
+ * cells per pulse and the rest of a large opening is applied over the next
+ * pulses, so a click is painted in the next frame whatever the size of the
+ * opening it caused.
+ */
+public class BoardUpdatePipeline {
+    /**
+     * Applies changed cells to a view. All methods are called on the JavaFX
+     * Application Thread.
+     */
+    public interface CellRenderer {
+        /**
+         * Refreshes a run of cells within one row from the board.
+         *
+         * @param row      The row of the run.
+         * @param firstCol The column of the first cell.
+         * @param length   The number of cells in the run.
+         */
+        void updateRun(int row, int firstCol, int length);
+
+        /**
+         * Refreshes every cell from the board.
+         */
+        void updateAll();
+
+        /**
+         * Called after the cells of a pulse have been refreshed, so a view that
+         * paints itself can do so within the same pulse.
+         */
+        default void batchApplied() {
+        }
+    }
+
+    private final int cols;
+    private final CellRenderer renderer;
+    private final int cellsPerPulse;
+    private final long fullUpdateCells;
+
+    // Batches posted since the last pulse, guarded by its own lock
+    private final BoardDelta posted = new BoardDelta();
+    private boolean pulseScheduled;
+
+    // Batch being applied, only used on the JavaFX Application Thread
+    private final BoardDelta applying = new BoardDelta();
+    private int nextRun;
+    private int nextOffset;
+
+    private final AnimationTimer pulseTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyPending(cellsPerPulse);
+        }
+    };
+
+    /**
+     * Creates a pipeline for a view.
+     *
+     * @param cols            The number of columns of the board.
+     * @param renderer        The view that applies the changes.
+     * @param cellsPerPulse   The most cells applied in one pulse; the rest wait for the next pulses.
+     * @param fullUpdateCells Batches with more cells than this refresh the whole view instead.
+     */
+    public BoardUpdatePipeline(int cols, CellRenderer renderer, int cellsPerPulse, long fullUpdateCells) {
+        this.cols = cols;
+        this.renderer = renderer;
+        this.cellsPerPulse = cellsPerPulse;
+        this.fullUpdateCells = fullUpdateCells;
+    }
+
+    /**
+     * Posts a batch of changed cells to be applied in the next pulse. The batch
+     * is copied, so the caller can clear and reuse it.
+     *
+     * @param delta The changed cells.
+     */
+    public void post(BoardDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        boolean schedule;
+        synchronized (posted) {
+            posted.addAll(delta);
+            schedule = !pulseScheduled;
+            pulseScheduled = true;
+        }
+        if (schedule) {
+            if (Platform.isFxApplicationThread()) {
+                pulseTimer.start();
+            } else {
+                Platform.runLater(pulseTimer::start);
+            }
+        }
+    }
+
+    /**
+     * Applies everything pending right away, ignoring the budget. Used before
+     * the view is changed in another way, such as marking the mines at the end
+     * of a game. Must be called on the JavaFX Application Thread.
+     */
+    public void flush() {
+        applyPending(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Drops everything pending, for a view that is being reset or replaced. Must
+     * be called on the JavaFX Application Thread.
+     */
+    public void clear() {
+        synchronized (posted) {
+            posted.clear();
+            pulseScheduled = false;
+        }
+        applying.clear();
+        nextRun = 0;
+        nextOffset = 0;
+        pulseTimer.stop();
+    }
+
+    /**
+     * Moves the posted batches into the batch being applied and applies up to
+     * a number of cells of it.
+     */
+    private void applyPending(int budget) {
+        long start = GameMetrics.start();
+        GameEvents.BoardUpdateEvent event = new GameEvents.BoardUpdateEvent();
+        event.begin();
+        synchronized (posted) {
+            applying.addAll(posted);
+            posted.clear();
+            pulseScheduled = false;
+        }
+
+        if (applying.isAll() || applying.getCellCount() > fullUpdateCells) {
+            long cells = applying.getCellCount();
+            renderer.updateAll();
+            finishBatch();
+            renderer.batchApplied();
+            event.full = true;
+            endPulse(event, start, cells);
+            GameMetrics.painted();
+            return;
+        }
+
+        int[] runs = applying.getRuns();
+        int remaining = budget;
+        while (nextRun < applying.getRunCount() && remaining > 0) {
+            int first = runs[2 * nextRun] + nextOffset;
+            int end = runs[2 * nextRun] + runs[2 * nextRun + 1];
+
+            // Split the run at the end of the row and at the end of the budget
+            int row = first / cols;
+            int length = Math.min(Math.min(end - first, cols - first % cols), remaining);
+            renderer.updateRun(row, first % cols, length);
+            remaining -= length;
+            nextOffset += length;
+            if (first + length == end) {
+                nextRun++;
+                nextOffset = 0;
+            }
+        }
+
+        boolean finished = nextRun == applying.getRunCount();
+        if (finished) {
+            finishBatch();
+        } else {
+            // Keep pulsing until the rest of the batch is applied
+            pulseTimer.start();
+        }
+        renderer.batchApplied();
+        endPulse(event, start, budget - remaining);
+        if (finished) {
+            GameMetrics.painted();
+        }
+    }
+
+    /**
+     * Records the time and cells of a pulse.
+     */
+    private static void endPulse(GameEvents.BoardUpdateEvent event, long start, long cells) {
+        GameMetrics.recordSince(GameMetrics.Metric.PULSE_UPDATE, start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    /**
+     * Forgets the applied batch and stops pulsing until the next post.
+     */
+    private void finishBatch() {
+        applying.clear();
+        nextRun = 0;
+        nextOffset = 0;
+        synchronized (posted) {
+            if (!pulseScheduled) {
+                pulseTimer.stop();
+            }
+        }
+    }
+}
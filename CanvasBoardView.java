@@ -0,0 +1,500 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Renders a board on a single Canvas instead of one Button per cell. Any
+ * {@link CellGrid} can be shown, including the unbounded {@link ChunkedBoard}.
+ * Only the cells inside the visible viewport are drawn, clicks are mapped to
+ * cells arithmetically, and changed cells are repainted once per pulse.
+ * Dragging pans the board and Ctrl + scroll zooms around the mouse pointer.
+ * As a {@link BoardUpdatePipeline.CellRenderer} the view paints the cells of a
+ * batch in the same pulse the batch is applied in.
+ */
+public class CanvasBoardView extends Region implements BoardUpdatePipeline.CellRenderer {
+    /**
+     * Receives clicks on board cells.
+     */
+    public interface CellClickListener {
+        /**
+         * Called when a cell is clicked without dragging.
+         *
+         * @param row    The row of the clicked cell.
+         * @param col    The column of the clicked cell.
+         * @param button The MouseButton representing the type of click.
+         */
+        void cellClicked(int row, int col, MouseButton button);
+    }
+
+    // Zoom limits for the cell size in pixels
+    private static final double MIN_CELL_SIZE = 4;
+    private static final double MAX_CELL_SIZE = 64;
+    private static final double ZOOM_FACTOR = 1.1;
+
+    // Cells smaller than this are drawn without text
+    private static final double MIN_TEXT_CELL_SIZE = 10;
+
+    // Largest preferred size of the view before it has to be scrolled
+    private static final double MAX_PREF_WIDTH = 1200;
+    private static final double MAX_PREF_HEIGHT = 800;
+
+    // Colors of the cell states and the adjacent mine counts
+    private static final Color HIDDEN_COLOR = Color.web("#c0c0c0");
+    private static final Color REVEALED_COLOR = Color.web("#eeeeee");
+    private static final Color GRID_COLOR = Color.web("#808080");
+    private static final Color[] NUMBER_COLORS = {
+            Color.BLACK, Color.BLUE, Color.GREEN, Color.RED, Color.NAVY,
+            Color.MAROON, Color.TEAL, Color.BLACK, Color.GRAY
+    };
+
+    private final Canvas canvas = new Canvas();
+    private CellGrid board;
+    private CellClickListener clickListener;
+
+    // Viewport: size of a cell and scroll position of the top-left corner in pixels
+    private double cellSize;
+    private double offsetX;
+    private double offsetY;
+
+    // Position of the last mouse press or drag, used for panning
+    private double dragX;
+    private double dragY;
+
+    // Whether mines and wrong flags are shown after the game is over
+    private boolean gameOver;
+
+    // Mines and wrong flags shown one at a time, by flat index, on bounded boards
+    private final BitSet shownCells = new BitSet();
+
+    // Cells waiting to be repainted in the next pulse, as (row, col) pairs
+    private int[] dirtyCells = new int[128];
+    private int dirtyCount;
+
+    // Cell to center the viewport on at the next layout, or -1 for none
+    private int centerRow = -1;
+    private int centerCol = -1;
+    private boolean fullRepaint = true;
+
+    private final AnimationTimer repaintTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            paint();
+        }
+    };
+
+    /**
+     * Creates a view of a board.
+     *
+     * @param board    The board to render.
+     * @param cellSize The initial size of a cell in pixels.
+     */
+    public CanvasBoardView(CellGrid board, double cellSize) {
+        this.board = board;
+        this.cellSize = cellSize;
+        getChildren().add(canvas);
+
+        canvas.setOnMousePressed(this::handleMousePressed);
+        canvas.setOnMouseDragged(this::handleMouseDragged);
+        canvas.setOnMouseClicked(this::handleMouseClicked);
+        canvas.setOnScroll(this::handleScroll);
+    }
+
+    /**
+     * Sets the listener notified when a cell is clicked.
+     *
+     * @param clickListener The listener receiving cell clicks.
+     */
+    public void setOnCellClicked(CellClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    /**
+     * Marks a cell as changed so it is repainted in the next pulse.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void markDirty(int row, int col) {
+        markDirtyRun(row, col, 1);
+    }
+
+    /**
+     * Marks a run of cells within one row as changed. Cells outside the viewport
+     * are skipped, since they are drawn from the board when scrolled into view.
+     *
+     * @param first  The flat index of the first cell.
+     * @param length The number of cells in the run.
+     */
+    public void markDirtySpan(int first, int length) {
+        markDirtyRun(first / board.getCols(), first % board.getCols(), length);
+    }
+
+    /**
+     * Marks a run of cells within one row as changed, skipping the cells outside
+     * the viewport.
+     *
+     * @param row      The row of the run.
+     * @param firstCol The column of the first cell.
+     * @param length   The number of cells in the run.
+     */
+    private void markDirtyRun(int row, int firstCol, int length) {
+        if (fullRepaint) {
+            return;
+        }
+        if (row < firstVisibleRow() || row > lastVisibleRow()) {
+            return;
+        }
+        int from = Math.max(firstCol, firstVisibleCol());
+        int to = Math.min(firstCol + length - 1, lastVisibleCol());
+        if (from > to) {
+            return;
+        }
+
+        // Once more cells changed than are visible, redrawing the viewport is cheaper
+        if (dirtyCount + (to - from + 1) > visibleCellCount()) {
+            markAllDirty();
+            return;
+        }
+        if (2 * (dirtyCount + to - from + 1) > dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, Math.max(dirtyCells.length * 2, 2 * (dirtyCount + to - from + 1)));
+        }
+        for (int col = from; col <= to; col++) {
+            dirtyCells[2 * dirtyCount] = row;
+            dirtyCells[2 * dirtyCount + 1] = col;
+            dirtyCount++;
+        }
+        repaintTimer.start();
+    }
+
+    /**
+     * Marks the whole viewport as changed.
+     */
+    public void markAllDirty() {
+        fullRepaint = true;
+        dirtyCount = 0;
+        repaintTimer.start();
+    }
+
+    @Override
+    public void updateRun(int row, int firstCol, int length) {
+        markDirtyRun(row, firstCol, length);
+    }
+
+    @Override
+    public void updateAll() {
+        markAllDirty();
+    }
+
+    // Paints right away instead of in the next pulse, the batch is applied during a pulse
+    @Override
+    public void batchApplied() {
+        if (fullRepaint || dirtyCount > 0) {
+            repaintTimer.stop();
+            paint();
+        }
+    }
+
+    /**
+     * Starts showing a new game on the same canvas, keeping the viewport. The
+     * new board must have the same size as the current one.
+     *
+     * @param board The board of the new game, which may be the current board after a reset.
+     */
+    public void showNewGame(CellGrid board) {
+        if (board.getRows() != this.board.getRows() || board.getCols() != this.board.getCols()) {
+            throw new IllegalArgumentException("Board size changed from " + this.board.getRows() + "x"
+                    + this.board.getCols() + " to " + board.getRows() + "x" + board.getCols());
+        }
+        this.board = board;
+        gameOver = false;
+        shownCells.clear();
+        markAllDirty();
+    }
+
+    /**
+     * Scrolls the viewport so a cell is in its center once the view is laid out.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void centerOn(int row, int col) {
+        centerRow = row;
+        centerCol = col;
+        requestLayout();
+    }
+
+    /**
+     * Shows a single cell as it is shown after the game is over: an unflagged
+     * mine with an "X" and a wrong flag with a red "X". Used to mark the mines
+     * one wave at a time on a bounded board.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void showCell(int row, int col) {
+        shownCells.set(row * board.getCols() + col);
+        markDirty(row, col);
+    }
+
+    /**
+     * Shows unflagged mines with an "X" and wrong flags with a red "X".
+     */
+    public void showMines() {
+        gameOver = true;
+        markAllDirty();
+    }
+
+    /**
+     * Hides the mines and wrong flags again, when the losing click is taken back.
+     */
+    public void hideMines() {
+        gameOver = false;
+        shownCells.clear();
+        markAllDirty();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        if (centerRow >= 0 && getWidth() > 0) {
+            offsetX = (centerCol + 0.5) * cellSize - getWidth() / 2;
+            offsetY = (centerRow + 0.5) * cellSize - getHeight() / 2;
+            centerRow = -1;
+            centerCol = -1;
+        }
+        clampOffsets();
+        markAllDirty();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return Math.min(board.getCols() * cellSize, MAX_PREF_WIDTH);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return Math.min(board.getRows() * cellSize, MAX_PREF_HEIGHT);
+    }
+
+    /**
+     * Records the mouse position at the start of a click or drag.
+     *
+     * @param event The mouse event.
+     */
+    private void handleMousePressed(MouseEvent event) {
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    /**
+     * Pans the board while the mouse is dragged.
+     *
+     * @param event The mouse event.
+     */
+    private void handleMouseDragged(MouseEvent event) {
+        scrollBy(dragX - event.getX(), dragY - event.getY());
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    /**
+     * Converts a click to cell coordinates and forwards it to the listener.
+     *
+     * @param event The mouse event.
+     */
+    private void handleMouseClicked(MouseEvent event) {
+        // Ignore the release at the end of a drag
+        if (!event.isStillSincePress() || clickListener == null) {
+            return;
+        }
+        int row = (int) Math.floor((event.getY() + offsetY) / cellSize);
+        int col = (int) Math.floor((event.getX() + offsetX) / cellSize);
+        if (board.isInBounds(row, col)) {
+            clickListener.cellClicked(row, col, event.getButton());
+        }
+    }
+
+    /**
+     * Scrolls the board, or zooms around the pointer when Ctrl is held down.
+     *
+     * @param event The scroll event.
+     */
+    private void handleScroll(ScrollEvent event) {
+        if (event.isControlDown()) {
+            double factor = event.getDeltaY() > 0 ? ZOOM_FACTOR : 1 / ZOOM_FACTOR;
+            double newCellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize * factor));
+
+            // Keep the board point under the pointer in place
+            offsetX = (offsetX + event.getX()) * newCellSize / cellSize - event.getX();
+            offsetY = (offsetY + event.getY()) * newCellSize / cellSize - event.getY();
+            cellSize = newCellSize;
+            clampOffsets();
+            markAllDirty();
+        } else {
+            scrollBy(-event.getDeltaX(), -event.getDeltaY());
+        }
+        event.consume();
+    }
+
+    /**
+     * Moves the viewport by a number of pixels.
+     *
+     * @param dx The horizontal distance in pixels.
+     * @param dy The vertical distance in pixels.
+     */
+    private void scrollBy(double dx, double dy) {
+        double oldX = offsetX;
+        double oldY = offsetY;
+        offsetX += dx;
+        offsetY += dy;
+        clampOffsets();
+        if (offsetX != oldX || offsetY != oldY) {
+            markAllDirty();
+        }
+    }
+
+    /**
+     * Keeps the viewport within the board.
+     */
+    private void clampOffsets() {
+        double maxX = Math.max(0, board.getCols() * cellSize - getWidth());
+        double maxY = Math.max(0, board.getRows() * cellSize - getHeight());
+        offsetX = Math.max(0, Math.min(maxX, offsetX));
+        offsetY = Math.max(0, Math.min(maxY, offsetY));
+    }
+
+    /**
+     * Draws the pending changes: the whole viewport or only the dirty cells.
+     */
+    private void paint() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setFont(Font.font(null, FontWeight.BOLD, cellSize * 0.55));
+
+        if (fullRepaint) {
+            gc.setFill(GRID_COLOR);
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            int lastRow = lastVisibleRow();
+            int lastCol = lastVisibleCol();
+            for (int row = firstVisibleRow(); row <= lastRow; row++) {
+                for (int col = firstVisibleCol(); col <= lastCol; col++) {
+                    paintCell(gc, row, col);
+                }
+            }
+        } else {
+            for (int i = 0; i < dirtyCount; i++) {
+                paintCell(gc, dirtyCells[2 * i], dirtyCells[2 * i + 1]);
+            }
+        }
+        fullRepaint = false;
+        dirtyCount = 0;
+    }
+
+    /**
+     * Draws a single cell from the board state.
+     *
+     * @param gc  The graphics context of the canvas.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    private void paintCell(GraphicsContext gc, int row, int col) {
+        double x = col * cellSize - offsetX;
+        double y = row * cellSize - offsetY;
+        double gap = cellSize >= MIN_TEXT_CELL_SIZE ? 1 : 0;
+
+        boolean revealed = board.isRevealed(row, col) && !board.isMine(row, col);
+        gc.setFill(GRID_COLOR);
+        gc.fillRect(x, y, cellSize, cellSize);
+        gc.setFill(revealed ? REVEALED_COLOR : HIDDEN_COLOR);
+        gc.fillRect(x, y, cellSize - gap, cellSize - gap);
+
+        // Pick the text shown on the cell
+        boolean shown = gameOver || !shownCells.isEmpty() && shownCells.get(row * board.getCols() + col);
+        String text = null;
+        Color textColor = Color.BLACK;
+        if (revealed) {
+            int mineCount = board.getAdjacentMines(row, col);
+            if (mineCount > 0) {
+                text = String.valueOf(mineCount);
+                textColor = NUMBER_COLORS[mineCount];
+            }
+        } else if (shown && board.isFlagged(row, col) && !board.isMine(row, col)) {
+            text = "X";
+            textColor = Color.RED;
+        } else if (board.isFlagged(row, col)) {
+            text = "F";
+        } else if (shown && board.isMine(row, col)) {
+            text = "X";
+        }
+
+        if (text != null) {
+            if (cellSize >= MIN_TEXT_CELL_SIZE) {
+                gc.setFill(textColor);
+                gc.fillText(text, x + cellSize / 2, y + cellSize / 2);
+            } else {
+                // Too small for text, mark the cell with a solid dot instead
+                gc.setFill(textColor);
+                gc.fillRect(x + cellSize / 4, y + cellSize / 4, cellSize / 2, cellSize / 2);
+            }
+        }
+    }
+
+    /**
+     * Gets the first row inside the viewport.
+     *
+     * @return The index of the first visible row.
+     */
+    private int firstVisibleRow() {
+        return (int) (offsetY / cellSize);
+    }
+
+    /**
+     * Gets the last row inside the viewport.
+     *
+     * @return The index of the last visible row.
+     */
+    private int lastVisibleRow() {
+        return Math.min(board.getRows() - 1, (int) ((offsetY + getHeight()) / cellSize));
+    }
+
+    /**
+     * Gets the first column inside the viewport.
+     *
+     * @return The index of the first visible column.
+     */
+    private int firstVisibleCol() {
+        return (int) (offsetX / cellSize);
+    }
+
+    /**
+     * Gets the last column inside the viewport.
+     *
+     * @return The index of the last visible column.
+     */
+    private int lastVisibleCol() {
+        return Math.min(board.getCols() - 1, (int) ((offsetX + getWidth()) / cellSize));
+    }
+
+    /**
+     * Gets the number of cells inside the viewport.
+     *
+     * @return The number of visible cells.
+     */
+    private int visibleCellCount() {
+        return (lastVisibleRow() - firstVisibleRow() + 1) * (lastVisibleCol() - firstVisibleCol() + 1);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Read-only view of the cells of a board, as needed to draw it. Implemented by
+ * the fixed-size {@link Board} and the unbounded {@link ChunkedBoard}.
+ */
+public interface CellGrid {
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    int getRows();
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    int getCols();
+
+    /**
+     * Checks if a position lies on the board.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the position is within the bounds of the board.
+     */
+    boolean isInBounds(int row, int col);
+
+    /**
+     * Checks if a cell contains a mine.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell contains a mine.
+     */
+    boolean isMine(int row, int col);
+
+    /**
+     * Checks if a cell has been revealed.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell has been revealed.
+     */
+    boolean isRevealed(int row, int col);
+
+    /**
+     * Checks if a cell is marked with a flag.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell is flagged.
+     */
+    boolean isFlagged(int row, int col);
+
+    /**
+     * Gets the number of mines in the cells adjacent to a cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The number of adjacent mines.
+     */
+    int getAdjacentMines(int row, int col);
+}
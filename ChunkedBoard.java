@@ -0,0 +1,627 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Unbounded board for the endless mode, split into square chunks that are
+ * created lazily when a reveal, a flag or the viewport first touches them.
+ *
+ * The mines of a chunk are a pure function of the world seed and the chunk
+ * coordinates, so a chunk can always be regenerated and its border counts can
+ * be computed from the mine layouts of its neighbours without loading them.
+ * Loaded chunks are kept in an LRU cache of bounded size; a chunk that was
+ * modified is written to the store directory when it is evicted and its
+ * revealed and flagged cells are read back when it is loaded again. Memory
+ * therefore stays bounded however far the board is explored.
+ *
+ * Coordinates run from 0 to Integer.MAX_VALUE - 1 on both axes and play starts
+ * at ({@link #ORIGIN}, {@link #ORIGIN}), whose neighbourhood never holds a mine.
+ * Cells are packed into bytes like in {@link Board}.
+ */
+public class ChunkedBoard implements CellGrid {
+    // Chunks are CHUNK_SIZE x CHUNK_SIZE cells
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    // Row and column of the first click, in the middle of the coordinate range
+    public static final int ORIGIN = 1 << 30;
+
+    // Below this density openings can percolate and a single click could reveal without end
+    public static final double MIN_DENSITY = 0.12;
+    public static final double MAX_DENSITY = 0.5;
+
+    // Bit layout of a packed cell, the same as in Board
+    private static final int COUNT_MASK = 0x0F;
+    private static final int MINE = 0x10;
+    private static final int REVEALED = 0x20;
+    private static final int FLAGGED = 0x40;
+
+    /**
+     * A loaded chunk: its packed cells and whether they differ from a freshly
+     * generated chunk.
+     */
+    private static class Chunk {
+        final long key;
+        final byte[] cells = new byte[CHUNK_CELLS];
+        boolean modified;
+
+        Chunk(long key) {
+            this.key = key;
+        }
+    }
+
+    private final long seed;
+    private final int minesPerChunk;
+    private final int maxLoadedChunks;
+    private final Path storeDirectory;
+
+    // Loaded chunks in least recently used order, keyed by packed chunk coordinates
+    private final LinkedHashMap<Long, Chunk> chunks;
+
+    // The chunk of the last lookup, which most accesses hit again
+    private Chunk lastChunk;
+
+    // Live counters
+    private long revealedCount;
+    private long flagsPlaced;
+    private boolean exploded;
+    private long chunksGenerated;
+    private long chunksRestored;
+    private long chunksWritten;
+
+    // Reusable ring buffer of (row, col) pairs for the flood fill: the empty
+    // cells that are revealed but whose neighbours are not opened yet
+    private int[] queue = new int[256];
+    private int queueHead;
+    private int queueSize;
+
+    // Scratch buffer of the mines around a chunk being generated, with a one-cell border
+    private final boolean[] mineWindow = new boolean[(CHUNK_SIZE + 2) * (CHUNK_SIZE + 2)];
+
+    /**
+     * Creates an endless board.
+     *
+     * @param seed            The world seed the mines of every chunk are derived from.
+     * @param density         The fraction of cells holding a mine.
+     * @param maxLoadedChunks The number of chunks kept in memory.
+     * @param storeDirectory  The directory modified chunks are written to when evicted.
+     */
+    public ChunkedBoard(long seed, double density, int maxLoadedChunks, Path storeDirectory) {
+        if (!(density >= MIN_DENSITY && density <= MAX_DENSITY)) {
+            throw new IllegalArgumentException("Mine density must be between " + MIN_DENSITY + " and "
+                    + MAX_DENSITY + ": " + density);
+        }
+        if (maxLoadedChunks < 16) {
+            throw new IllegalArgumentException("At least 16 chunks must fit in memory: " + maxLoadedChunks);
+        }
+        this.seed = seed;
+        this.minesPerChunk = (int) Math.round(density * CHUNK_CELLS);
+        this.maxLoadedChunks = maxLoadedChunks;
+        this.storeDirectory = storeDirectory;
+        this.chunks = new LinkedHashMap<>(maxLoadedChunks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= ChunkedBoard.this.maxLoadedChunks) {
+                    return false;
+                }
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Reveals a cell and, if it has no adjacent mines, the surrounding area. The
+     * flood fill loads the chunks it opens cells in and no others. Cells are
+     * revealed as they are queued, so each is queued at most once, and the queue
+     * is first in first out, so it only holds the edge of the growing opening.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The number of newly revealed cells.
+     */
+    public long reveal(int row, int col) {
+        if (!isInBounds(row, col)) {
+            return 0;
+        }
+        long before = revealedCount;
+        queueHead = 0;
+        queueSize = 0;
+        open(row, col);
+        while (queueSize > 0) {
+            int r = queue[queueHead];
+            int c = queue[queueHead + 1];
+            queueHead = (queueHead + 2) & (queue.length - 1);
+            queueSize -= 2;
+
+            // An empty cell opens all of its neighbours, none of which is a mine
+            for (int nr = r - 1; nr <= r + 1; nr++) {
+                for (int nc = c - 1; nc <= c + 1; nc++) {
+                    if (isInBounds(nr, nc)) {
+                        open(nr, nc);
+                    }
+                }
+            }
+        }
+        return revealedCount - before;
+    }
+
+    /**
+     * Reveals a hidden, unflagged cell and queues it if it has no adjacent mines.
+     */
+    private void open(int row, int col) {
+        Chunk chunk = chunk(row, col);
+        int index = cellIndex(row, col);
+        int cell = chunk.cells[index];
+        if ((cell & (REVEALED | FLAGGED)) != 0) {
+            return;
+        }
+        chunk.cells[index] |= REVEALED;
+        chunk.modified = true;
+        if ((cell & MINE) != 0) {
+            exploded = true;
+            return;
+        }
+        revealedCount++;
+        if ((cell & COUNT_MASK) == 0) {
+            push(row, col);
+        }
+    }
+
+    /**
+     * Reveals all unflagged neighbours of a revealed number once the number of
+     * flags around it matches its adjacent mine count.
+     *
+     * @param row The row of the revealed number.
+     * @param col The column of the revealed number.
+     * @return The number of newly revealed cells.
+     */
+    public long chord(int row, int col) {
+        int count = getAdjacentMines(row, col);
+        if (!isRevealed(row, col) || count == 0) {
+            return 0;
+        }
+        int flags = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (isInBounds(r, c) && isFlagged(r, c)) {
+                    flags++;
+                }
+            }
+        }
+        if (flags != count) {
+            return 0;
+        }
+
+        long revealed = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                revealed += reveal(r, c);
+            }
+        }
+        return revealed;
+    }
+
+    /**
+     * Places or removes a flag on an unrevealed cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the flag state of the cell changed.
+     */
+    public boolean toggleFlag(int row, int col) {
+        checkInBounds(row, col);
+        Chunk chunk = chunk(row, col);
+        int index = cellIndex(row, col);
+        if ((chunk.cells[index] & REVEALED) != 0) {
+            return false;
+        }
+        chunk.cells[index] ^= FLAGGED;
+        chunk.modified = true;
+        flagsPlaced += (chunk.cells[index] & FLAGGED) != 0 ? 1 : -1;
+        return true;
+    }
+
+    /**
+     * Checks if a cell contains a mine.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell contains a mine.
+     */
+    public boolean isMine(int row, int col) {
+        return (cell(row, col) & MINE) != 0;
+    }
+
+    /**
+     * Checks if a cell has been revealed.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell has been revealed.
+     */
+    public boolean isRevealed(int row, int col) {
+        return (cell(row, col) & REVEALED) != 0;
+    }
+
+    /**
+     * Checks if a cell is marked with a flag.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell is flagged.
+     */
+    public boolean isFlagged(int row, int col) {
+        return (cell(row, col) & FLAGGED) != 0;
+    }
+
+    /**
+     * Gets the number of mines in the cells adjacent to a cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The number of adjacent mines.
+     */
+    public int getAdjacentMines(int row, int col) {
+        return cell(row, col) & COUNT_MASK;
+    }
+
+    /**
+     * Checks if a position lies on the board, which covers all non-negative
+     * coordinates below Integer.MAX_VALUE.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the position is on the board.
+     */
+    public boolean isInBounds(int row, int col) {
+        return row >= 0 && col >= 0 && row < Integer.MAX_VALUE && col < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the number of rows, which is only limited by the coordinate range.
+     *
+     * @return Integer.MAX_VALUE.
+     */
+    public int getRows() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the number of columns, which is only limited by the coordinate range.
+     *
+     * @return Integer.MAX_VALUE.
+     */
+    public int getCols() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Checks if a mine has been revealed.
+     *
+     * @return True if the game is lost.
+     */
+    public boolean isLost() {
+        return exploded;
+    }
+
+    /**
+     * Gets the number of safe cells revealed so far, the score of the game.
+     *
+     * @return The number of revealed cells.
+     */
+    public long getRevealedCount() {
+        return revealedCount;
+    }
+
+    /**
+     * Gets the number of flags currently placed.
+     *
+     * @return The number of flags placed.
+     */
+    public long getFlagsPlaced() {
+        return flagsPlaced;
+    }
+
+    /**
+     * Gets the world seed, which reproduces the mines of every chunk.
+     *
+     * @return The world seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of chunks currently held in memory.
+     *
+     * @return The number of loaded chunks.
+     */
+    public int getLoadedChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Gets the number of times a chunk was generated from the seed.
+     *
+     * @return The number of generated chunks.
+     */
+    public long getChunksGenerated() {
+        return chunksGenerated;
+    }
+
+    /**
+     * Gets the number of times a chunk's saved state was read back from the store.
+     *
+     * @return The number of restored chunks.
+     */
+    public long getChunksRestored() {
+        return chunksRestored;
+    }
+
+    /**
+     * Gets the number of times a modified chunk was written to the store.
+     *
+     * @return The number of written chunks.
+     */
+    public long getChunksWritten() {
+        return chunksWritten;
+    }
+
+    /**
+     * Writes every loaded chunk that was modified to the store.
+     */
+    public void flush() {
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.modified) {
+                write(chunk);
+            }
+        }
+    }
+
+    /**
+     * Gets the packed state of a cell.
+     */
+    private int cell(int row, int col) {
+        checkInBounds(row, col);
+        return chunk(row, col).cells[cellIndex(row, col)];
+    }
+
+    /**
+     * Rejects positions off the board.
+     */
+    private void checkInBounds(int row, int col) {
+        if (!isInBounds(row, col)) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is off the board");
+        }
+    }
+
+    /**
+     * Gets the index of a cell within its chunk.
+     */
+    private static int cellIndex(int row, int col) {
+        return (row & CHUNK_MASK) << CHUNK_SHIFT | (col & CHUNK_MASK);
+    }
+
+    /**
+     * Packs chunk coordinates into a key.
+     */
+    private static long chunkKey(int chunkRow, int chunkCol) {
+        return (long) chunkRow << 32 | (chunkCol & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the chunk holding a cell, loading or generating it if needed.
+     */
+    private Chunk chunk(int row, int col) {
+        long key = chunkKey(row >> CHUNK_SHIFT, col >> CHUNK_SHIFT);
+        if (lastChunk != null && lastChunk.key == key) {
+            return lastChunk;
+        }
+
+        // Hits on the last chunk skip the map, so refresh its place in the
+        // order before anything is loaded that could evict it
+        if (lastChunk != null) {
+            chunks.get(lastChunk.key);
+        }
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = load(row >> CHUNK_SHIFT, col >> CHUNK_SHIFT);
+            chunks.put(key, chunk);
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Generates a chunk from the seed and applies its saved state, if any.
+     */
+    private Chunk load(int chunkRow, int chunkCol) {
+        Chunk chunk = new Chunk(chunkKey(chunkRow, chunkCol));
+
+        // Lay out the mines of the chunk and of the border cells around it
+        Arrays.fill(mineWindow, false);
+        int width = CHUNK_SIZE + 2;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                long[] mines = mineRows(chunkRow + dr, chunkCol + dc);
+                for (int r = 0; r < CHUNK_SIZE; r++) {
+                    int windowRow = r + dr * CHUNK_SIZE + 1;
+                    if (windowRow < 0 || windowRow >= width || mines[r] == 0) {
+                        continue;
+                    }
+                    for (int c = 0; c < CHUNK_SIZE; c++) {
+                        int windowCol = c + dc * CHUNK_SIZE + 1;
+                        if (windowCol >= 0 && windowCol < width && (mines[r] >>> c & 1) != 0) {
+                            mineWindow[windowRow * width + windowCol] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Count the mines around every cell of the chunk
+        for (int r = 0; r < CHUNK_SIZE; r++) {
+            for (int c = 0; c < CHUNK_SIZE; c++) {
+                int count = 0;
+                for (int wr = r; wr <= r + 2; wr++) {
+                    for (int wc = c; wc <= c + 2; wc++) {
+                        if (mineWindow[wr * width + wc] && (wr != r + 1 || wc != c + 1)) {
+                            count++;
+                        }
+                    }
+                }
+                boolean mine = mineWindow[(r + 1) * width + c + 1];
+                chunk.cells[r << CHUNK_SHIFT | c] = (byte) (count | (mine ? MINE : 0));
+            }
+        }
+        chunksGenerated++;
+
+        restore(chunk, chunkRow, chunkCol);
+        return chunk;
+    }
+
+    /**
+     * Lays out the mines of a chunk, one bit per cell and one long per row. The
+     * layout only depends on the world seed and the chunk coordinates.
+     *
+     * @param chunkRow The row of the chunk.
+     * @param chunkCol The column of the chunk.
+     * @return The mine bits of every row of the chunk.
+     */
+    private long[] mineRows(int chunkRow, int chunkCol) {
+        long[] mines = new long[CHUNK_SIZE];
+        SplittableRandom random = new SplittableRandom(seed ^ chunkKey(chunkRow, chunkCol) * 0x9E3779B97F4A7C15L);
+
+        // Floyd's sampling of minesPerChunk distinct cells
+        for (int bound = CHUNK_CELLS - minesPerChunk; bound < CHUNK_CELLS; bound++) {
+            int index = random.nextInt(bound + 1);
+            if ((mines[index >> CHUNK_SHIFT] >>> (index & CHUNK_MASK) & 1) != 0) {
+                index = bound;
+            }
+            mines[index >> CHUNK_SHIFT] |= 1L << (index & CHUNK_MASK);
+        }
+
+        // Keep the first click and its neighbours free of mines
+        for (int row = ORIGIN - 1; row <= ORIGIN + 1; row++) {
+            for (int col = ORIGIN - 1; col <= ORIGIN + 1; col++) {
+                if (row >> CHUNK_SHIFT == chunkRow && col >> CHUNK_SHIFT == chunkCol) {
+                    mines[row & CHUNK_MASK] &= ~(1L << (col & CHUNK_MASK));
+                }
+            }
+        }
+        return mines;
+    }
+
+    /**
+     * Writes a modified chunk to the store as it leaves the cache.
+     */
+    private void evict(Chunk chunk) {
+        if (chunk.modified) {
+            write(chunk);
+        }
+        if (lastChunk == chunk) {
+            lastChunk = null;
+        }
+    }
+
+    /**
+     * Writes the revealed and flagged cells of a chunk to its file in the store,
+     * as two bitmaps of one long per row.
+     */
+    private void write(Chunk chunk) {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * CHUNK_SIZE * Long.BYTES);
+        for (int bit : new int[] {REVEALED, FLAGGED}) {
+            for (int r = 0; r < CHUNK_SIZE; r++) {
+                long bits = 0;
+                for (int c = 0; c < CHUNK_SIZE; c++) {
+                    if ((chunk.cells[r << CHUNK_SHIFT | c] & bit) != 0) {
+                        bits |= 1L << c;
+                    }
+                }
+                buffer.putLong(bits);
+            }
+        }
+        buffer.flip();
+
+        Path file = chunkFile((int) (chunk.key >> 32), (int) chunk.key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write chunk to " + file, e);
+        }
+        chunk.modified = false;
+        chunksWritten++;
+    }
+
+    /**
+     * Applies the saved revealed and flagged cells of a chunk, if it was written
+     * to the store before.
+     */
+    private void restore(Chunk chunk, int chunkRow, int chunkCol) {
+        Path file = chunkFile(chunkRow, chunkCol);
+        if (!Files.exists(file)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 * CHUNK_SIZE * Long.BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read chunk from " + file, e);
+        }
+        buffer.flip();
+        for (int bit : new int[] {REVEALED, FLAGGED}) {
+            for (int r = 0; r < CHUNK_SIZE; r++) {
+                long bits = buffer.getLong();
+                for (int c = 0; c < CHUNK_SIZE; c++) {
+                    if ((bits >>> c & 1) != 0) {
+                        chunk.cells[r << CHUNK_SHIFT | c] |= bit;
+                    }
+                }
+            }
+        }
+        chunksRestored++;
+    }
+
+    /**
+     * Gets the store file of a chunk.
+     */
+    private Path chunkFile(int chunkRow, int chunkCol) {
+        return storeDirectory.resolve("chunk-" + chunkRow + "-" + chunkCol + ".bin");
+    }
+
+    /**
+     * Adds a cell to the end of the flood fill queue, growing it if needed. The
+     * queue length stays a power of two so positions wrap with a mask.
+     */
+    private void push(int row, int col) {
+        if (queueSize == queue.length) {
+            // Unwrap the queue into the front of the larger buffer
+            int[] grown = new int[queue.length * 2];
+            int firstPart = queue.length - queueHead;
+            System.arraycopy(queue, queueHead, grown, 0, firstPart);
+            System.arraycopy(queue, 0, grown, firstPart, queueHead);
+            queue = grown;
+            queueHead = 0;
+        }
+        int tail = (queueHead + queueSize) & (queue.length - 1);
+        queue[tail] = row;
+        queue[tail + 1] = col;
+        queueSize += 2;
+    }
+}
@@ -5,15 +5,74 @@ public enum Difficulty {
     /**
      * Beginner difficulty with smaller grid and fewer mines.
      */
-    BEGINNER,
+    BEGINNER(6, 9, 11, 60),
 
     /**
      * Intermediate difficulty with a moderate-sized grid and more mines.
      */
-    INTERMEDIATE,
+    INTERMEDIATE(12, 18, 36, 180),
 
     /**
      * Advanced difficulty with a larger grid and a higher number of mines.
      */
-    ADVANCED
+    ADVANCED(21, 26, 92, 660);
+
+    // Number of rows, number of columns and total number of mines
+    private final int rows;
+    private final int cols;
+    private final int mines;
+
+    // Time limit in seconds
+    private final int timeLimit;
+
+    /**
+     * Creates a difficulty level.
+     *
+     * @param rows      The number of rows of the board.
+     * @param cols      The number of columns of the board.
+     * @param mines     The number of mines on the board.
+     * @param timeLimit The time limit in seconds.
+     */
+    Difficulty(int rows, int cols, int mines, int timeLimit) {
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Gets the number of rows of the board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the board.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of mines on the board.
+     *
+     * @return The number of mines.
+     */
+    public int getMines() {
+        return mines;
+    }
+
+    /**
+     * Gets the time limit of a game.
+     *
+     * @return The time limit in seconds.
+     */
+    public int getTimeLimit() {
+        return timeLimit;
+    }
 }
@@ -4,17 +4,33 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
+import javafx.scene.control.Spinner;
 import javafx.scene.control.ToggleGroup;
+import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import java.util.List;
 
 /**
- * A dialog for selecting the difficulty level of the Minesweeper game.
+ * A dialog for selecting the difficulty level of the Minesweeper game, or a
+ * custom board size and number of mines.
  */
 public class DifficultySelectionDialog {
+    // Limits of a custom board; the largest boards take about 25 MB. The smallest
+    // sides still leave room for mines around the first click's 3x3 safe zone
+    private static final int MIN_SIDE = 4;
+    private static final int MAX_SIDE = 5000;
+    private static final long MAX_CELLS = 25_000_000L;
+
     private Difficulty selectedDifficulty;
 
+    // Set when a valid custom board was chosen
+    private boolean customSelected;
+    private int customRows;
+    private int customCols;
+    private int customMines;
+
     /**
      * Constructor to initialize the selected difficulty as null.
      */
@@ -53,17 +69,49 @@ public class DifficultySelectionDialog {
         // Set the selected difficulty when the Advanced radio button is clicked
         advancedRadioButton.setOnAction(event -> selectedDifficulty = Difficulty.ADVANCED);
 
+        // Custom board size and mines, only editable while Custom is selected
+        RadioButton customRadioButton = new RadioButton("Custom");
+        customRadioButton.setToggleGroup(toggleGroup);
+        Spinner<Integer> rowsSpinner = new Spinner<>(MIN_SIDE, MAX_SIDE, Difficulty.ADVANCED.getRows());
+        Spinner<Integer> colsSpinner = new Spinner<>(MIN_SIDE, MAX_SIDE, Difficulty.ADVANCED.getCols());
+        Spinner<Integer> minesSpinner = new Spinner<>(1, Integer.MAX_VALUE, Difficulty.ADVANCED.getMines());
+        GridPane customGrid = new GridPane();
+        customGrid.setHgap(10);
+        customGrid.setVgap(5);
+        customGrid.addRow(0, new Label("Rows:"), rowsSpinner);
+        customGrid.addRow(1, new Label("Columns:"), colsSpinner);
+        customGrid.addRow(2, new Label("Mines:"), minesSpinner);
+        for (Spinner<Integer> spinner : List.of(rowsSpinner, colsSpinner, minesSpinner)) {
+            spinner.setEditable(true);
+        }
+        customGrid.disableProperty().bind(customRadioButton.selectedProperty().not());
+        // Clear the preset difficulty when the Custom radio button is clicked
+        customRadioButton.setOnAction(event -> selectedDifficulty = null);
+
+        Label errorLabel = new Label();
+        errorLabel.setStyle("-fx-text-fill: red");
+
         Button startButton = new Button("Start");
-        // Close the dialog when the Start button is clicked
-        startButton.setOnAction(event -> dialogStage.close());
+        // Close the dialog when the Start button is clicked, once a custom board is valid
+        startButton.setOnAction(event -> {
+            if (customRadioButton.isSelected()) {
+                String error = selectCustom(valueOf(rowsSpinner), valueOf(colsSpinner), valueOf(minesSpinner));
+                if (error != null) {
+                    errorLabel.setText(error);
+                    return;
+                }
+            }
+            dialogStage.close();
+        });
 
         // Add UI components to the VBox
-        vBox.getChildren().addAll(label, beginnerRadioButton, intermediateRadioButton, advancedRadioButton, startButton);
+        vBox.getChildren().addAll(label, beginnerRadioButton, intermediateRadioButton, advancedRadioButton,
+                customRadioButton, customGrid, errorLabel, startButton);
 
         Scene scene = new Scene(vBox);
 
         dialogStage.setWidth(400);
-        dialogStage.setHeight(400);
+        dialogStage.setHeight(500);
 
         dialogStage.setScene(scene);
         // Show the dialog and wait for it to be closed
@@ -73,9 +121,87 @@ public class DifficultySelectionDialog {
     /**
      * Gets the selected difficulty.
      *
-     * @return The selected difficulty.
+     * @return The selected difficulty, or null for a custom board or if nothing was selected.
      */
     public Difficulty getSelectedDifficulty() {
         return selectedDifficulty;
     }
+
+    /**
+     * Checks whether a custom board was chosen.
+     *
+     * @return True if the custom rows, columns and mines apply.
+     */
+    public boolean isCustomSelected() {
+        return customSelected;
+    }
+
+    /**
+     * Gets the number of rows of the custom board.
+     *
+     * @return The number of rows.
+     */
+    public int getCustomRows() {
+        return customRows;
+    }
+
+    /**
+     * Gets the number of columns of the custom board.
+     *
+     * @return The number of columns.
+     */
+    public int getCustomCols() {
+        return customCols;
+    }
+
+    /**
+     * Gets the number of mines of the custom board.
+     *
+     * @return The number of mines.
+     */
+    public int getCustomMines() {
+        return customMines;
+    }
+
+    /**
+     * Checks a custom board and selects it if it is valid. The first click and
+     * its neighbours must stay free of mines.
+     *
+     * @param rows  The number of rows, or -1 if the field does not hold a number.
+     * @param cols  The number of columns, or -1 if the field does not hold a number.
+     * @param mines The number of mines, or -1 if the field does not hold a number.
+     * @return The reason the board is invalid, or null once it is selected.
+     */
+    private String selectCustom(int rows, int cols, int mines) {
+        if (rows < MIN_SIDE || rows > MAX_SIDE || cols < MIN_SIDE || cols > MAX_SIDE) {
+            return "Rows and columns must be between " + MIN_SIDE + " and " + MAX_SIDE + ".";
+        }
+        if ((long) rows * cols > MAX_CELLS) {
+            return "The board can have at most " + MAX_CELLS + " cells.";
+        }
+        if (mines < 1 || mines > rows * cols - 9) {
+            return "Mines must be between 1 and " + (rows * cols - 9)
+                    + ", leaving the first click and its neighbours free.";
+        }
+        customSelected = true;
+        customRows = rows;
+        customCols = cols;
+        customMines = mines;
+        return null;
+    }
+
+    /**
+     * Gets the number typed into a spinner, which is only committed to its value
+     * when Enter is pressed.
+     *
+     * @param spinner The spinner.
+     * @return The number, or -1 if the text is not a number.
+     */
+    private static int valueOf(Spinner<Integer> spinner) {
+        try {
+            return Integer.parseInt(spinner.getEditor().getText().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,139 @@
+import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Endless mode: an unbounded board drawn with the Canvas renderer. The game
+ * starts in the middle of the world and goes on until a mine is hit; the score
+ * is the number of revealed cells.
+ *
+ * Usage: java EndlessGame [--seed=N] [--density=D]
+ */
+public class EndlessGame extends Application {
+    // Constants for cell size
+    private static final int CELL_SIZE = 32;
+
+    // Default fraction of cells holding a mine, close to the Advanced difficulty
+    private static final double DEFAULT_DENSITY = 0.16;
+
+    // Chunks kept in memory, enough for several screens at the smallest zoom
+    private static final int MAX_LOADED_CHUNKS = 1024;
+
+    private ChunkedBoard board;
+    private CanvasBoardView canvasView;
+    private Path storeDirectory;
+
+    // Labels showing the score and the remaining state
+    private Label scoreLabel;
+    private Label flagsLabel;
+
+    // Entry point of the JavaFX application
+    @Override
+    public void start(Stage primaryStage) throws IOException {
+        String seedArgument = getParameters().getNamed().get("seed");
+        long seed = seedArgument != null ? Long.parseLong(seedArgument) : new SplittableRandom().nextLong();
+        String densityArgument = getParameters().getNamed().get("density");
+        double density = densityArgument != null ? Double.parseDouble(densityArgument) : DEFAULT_DENSITY;
+
+        // Chunks evicted from memory are spilled to a directory removed on exit
+        storeDirectory = Files.createTempDirectory("minesweeper-endless");
+        board = new ChunkedBoard(seed, density, MAX_LOADED_CHUNKS, storeDirectory);
+
+        canvasView = new CanvasBoardView(board, CELL_SIZE);
+        canvasView.setOnCellClicked(this::handleCellClick);
+        canvasView.centerOn(ChunkedBoard.ORIGIN, ChunkedBoard.ORIGIN);
+
+        scoreLabel = new Label();
+        flagsLabel = new Label();
+        VBox labels = new VBox(5, scoreLabel, flagsLabel);
+        labels.setPadding(new Insets(0, 0, 0, 10));
+        updateLabels();
+
+        BorderPane layout = new BorderPane(canvasView);
+        layout.setRight(labels);
+        layout.setPadding(new Insets(10));
+
+        primaryStage.setTitle("Minesweeper Endless - Seed " + seed);
+        primaryStage.setScene(new Scene(layout));
+        primaryStage.show();
+    }
+
+    /**
+     * Handles a click on a cell. Clicks are ignored once the game is lost.
+     *
+     * @param row    The row of the clicked cell.
+     * @param col    The column of the clicked cell.
+     * @param button The MouseButton representing the type of click.
+     */
+    private void handleCellClick(int row, int col, MouseButton button) {
+        if (board.isLost()) {
+            return;
+        }
+        if (button == MouseButton.SECONDARY) {
+            if (board.toggleFlag(row, col)) {
+                canvasView.markDirty(row, col);
+            }
+        } else {
+            long revealed = board.isRevealed(row, col) ? board.chord(row, col) : board.reveal(row, col);
+            if (revealed == 1) {
+                canvasView.markDirty(row, col);
+            } else {
+                // An opening can spread past the viewport, repainting the viewport covers it
+                canvasView.markAllDirty();
+            }
+        }
+        updateLabels();
+
+        if (board.isLost()) {
+            canvasView.showMines();
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Game Over");
+            alert.setHeaderText("Game Over");
+            alert.setContentText("You hit a mine after revealing " + board.getRevealedCount() + " cells.");
+            alert.show();
+        }
+    }
+
+    /**
+     * Updates the score and flag labels.
+     */
+    private void updateLabels() {
+        scoreLabel.setText("Revealed: " + board.getRevealedCount());
+        flagsLabel.setText("Flags: " + board.getFlagsPlaced());
+    }
+
+    // Removes the spilled chunks when the application exits
+    @Override
+    public void stop() throws IOException {
+        if (storeDirectory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(storeDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Main method to launch the application
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
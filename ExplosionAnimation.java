@@ -0,0 +1,267 @@
+import javafx.animation.AnimationTimer;
+
+/**
+ * Game-over animation that sets off the mines in waves spreading out from the
+ * mine that was hit, driven by a single AnimationTimer.
+ *
+ * One pass over the board collects the unflagged mines and the wrong flags and
+ * orders them by their distance from the origin with a counting sort. Each
+ * ring of equal distance starts a little after the previous one and every
+ * cell is marked when its ring starts, so the marking of mines and wrong flags
+ * happens in the same pass as the animation. The rings are squeezed so the
+ * whole animation never takes longer than MAX_DURATION_NANOS, and every frame
+ * touches a bounded number of cells: MAX_MARKS_PER_FRAME cells are marked at
+ * most, and mines only pulse in size when there are few enough of them to
+ * scale all at once. The duration wins over the frame limit: on boards with
+ * more cells to mark than fit in the duration at that limit, the cells left
+ * are spread evenly over the frames left instead.
+ */
+public class ExplosionAnimation {
+    /**
+     * The view the animation is played on. All methods are called on the JavaFX
+     * Application Thread.
+     */
+    public interface Target {
+        /**
+         * Marks an unflagged mine.
+         *
+         * @param row The row of the mine.
+         * @param col The column of the mine.
+         */
+        void markMine(int row, int col);
+
+        /**
+         * Marks a flag on a cell without a mine.
+         *
+         * @param row The row of the flag.
+         * @param col The column of the flag.
+         */
+        void markWrongFlag(int row, int col);
+
+        /**
+         * Sets the size of a mine relative to its cell.
+         *
+         * @param row   The row of the mine.
+         * @param col   The column of the mine.
+         * @param scale The scale factor, 1 for the normal size.
+         */
+        void setCellScale(int row, int col, double scale);
+    }
+
+    // Duration of one mine growing and shrinking back, and of the whole animation
+    private static final long PULSE_NANOS = 400_000_000L;
+    private static final long MAX_DURATION_NANOS = 2_500_000_000L;
+
+    // Delay between two rings when the rings fit in the duration as they are
+    private static final long WAVE_DELAY_NANOS = 80_000_000L;
+
+    // Largest growth of a pulsing mine
+    private static final double MAX_SCALE = 1.5;
+
+    // Per-frame limits: cells marked, and mines pulsing at the same time
+    private static final int MAX_MARKS_PER_FRAME = 5000;
+    private static final int MAX_SCALED_CELLS = 500;
+
+    // Frame interval assumed until the first one is measured
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    private final Target target;
+    private final int cols;
+
+    // Cells in the order they go off, as flat indices, and the ring of each
+    private final int[] cells;
+    private final int[] rings;
+    private final boolean[] mines;
+    private final long waveDelayNanos;
+    private final boolean scaling;
+
+    // Cells [activeFrom, nextMark) are marked and may still be pulsing
+    private int nextMark;
+    private int activeFrom;
+    private long startNanos = -1;
+    private long lastElapsed = -1;
+    private Runnable onFinished;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (startNanos < 0) {
+                startNanos = now;
+            }
+            step(now - startNanos);
+        }
+    };
+
+    /**
+     * Prepares the animation of a lost board.
+     *
+     * @param board     The board whose mines go off.
+     * @param originRow The row the waves spread from, usually the mine that was hit.
+     * @param originCol The column the waves spread from.
+     * @param target    The view to play the animation on.
+     */
+    public ExplosionAnimation(Board board, int originRow, int originCol, Target target) {
+        this.target = target;
+        this.cols = board.getCols();
+        int rows = board.getRows();
+
+        // One pass over the board: count the marked cells of every ring
+        int maxRing = (int) Math.ceil(Math.hypot(Math.max(originRow, rows - 1 - originRow),
+                Math.max(originCol, cols - 1 - originCol)));
+        int[] ringStarts = new int[maxRing + 2];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (board.isMine(row, col) != board.isFlagged(row, col)) {
+                    ringStarts[ringOf(row - originRow, col - originCol) + 1]++;
+                    count++;
+                }
+            }
+        }
+        for (int ring = 1; ring < ringStarts.length; ring++) {
+            ringStarts[ring] += ringStarts[ring - 1];
+        }
+
+        // Second pass over the same cells: place them ring by ring
+        cells = new int[count];
+        rings = new int[count];
+        mines = new boolean[count];
+        int lastRing = 0;
+        int mineCount = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                boolean mine = board.isMine(row, col);
+                if (mine != board.isFlagged(row, col)) {
+                    int ring = ringOf(row - originRow, col - originCol);
+                    int position = ringStarts[ring]++;
+                    cells[position] = row * cols + col;
+                    rings[position] = ring;
+                    mines[position] = mine;
+                    lastRing = Math.max(lastRing, ring);
+                    if (mine) {
+                        mineCount++;
+                    }
+                }
+            }
+        }
+
+        waveDelayNanos = lastRing == 0 ? 0 : Math.min(WAVE_DELAY_NANOS, (MAX_DURATION_NANOS - PULSE_NANOS) / lastRing);
+        scaling = mineCount <= MAX_SCALED_CELLS;
+    }
+
+    /**
+     * Starts the animation.
+     *
+     * @param onFinished Called on the JavaFX Application Thread once every cell is marked and at rest.
+     */
+    public void play(Runnable onFinished) {
+        this.onFinished = onFinished;
+        timer.start();
+    }
+
+    /**
+     * Ends the animation at once, marking the remaining cells and returning every
+     * mine to its normal size. The finish callback is not called.
+     */
+    public void stop() {
+        timer.stop();
+        onFinished = null;
+        finish();
+    }
+
+    /**
+     * Advances the animation to a point in time.
+     */
+    private void step(long elapsed) {
+        // Mark the cells whose ring has started, within the frame budget
+        int marksLeft = markBudget(elapsed);
+        while (nextMark < cells.length && startOf(nextMark) <= elapsed && marksLeft-- > 0) {
+            mark(nextMark++);
+        }
+
+        // Settle the cells whose pulse is over
+        while (activeFrom < nextMark && startOf(activeFrom) + PULSE_NANOS <= elapsed) {
+            if (scaling && mines[activeFrom]) {
+                target.setCellScale(cells[activeFrom] / cols, cells[activeFrom] % cols, 1);
+            }
+            activeFrom++;
+        }
+
+        // Grow and shrink the pulsing mines
+        if (scaling) {
+            for (int i = activeFrom; i < nextMark; i++) {
+                if (mines[i]) {
+                    double progress = (double) (elapsed - startOf(i)) / PULSE_NANOS;
+                    double scale = 1 + (MAX_SCALE - 1) * Math.sin(Math.PI * Math.max(0, Math.min(1, progress)));
+                    target.setCellScale(cells[i] / cols, cells[i] % cols, scale);
+                }
+            }
+        }
+
+        if (activeFrom == cells.length) {
+            timer.stop();
+            Runnable callback = onFinished;
+            onFinished = null;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cells a frame may mark: MAX_MARKS_PER_FRAME, or more
+     * when the cells left would otherwise not all be marked before the last
+     * pulses have to start.
+     */
+    private int markBudget(long elapsed) {
+        long frameNanos = lastElapsed >= 0 && elapsed > lastElapsed ? elapsed - lastElapsed : FRAME_NANOS;
+        lastElapsed = elapsed;
+        long framesLeft = Math.max(1, (MAX_DURATION_NANOS - PULSE_NANOS - elapsed) / frameNanos);
+        long share = (cells.length - nextMark + framesLeft - 1) / framesLeft;
+        return (int) Math.max(MAX_MARKS_PER_FRAME, share);
+    }
+
+    /**
+     * Marks every remaining cell and puts every mine back to its normal size.
+     */
+    private void finish() {
+        while (nextMark < cells.length) {
+            mark(nextMark++);
+        }
+        if (scaling) {
+            for (int i = activeFrom; i < cells.length; i++) {
+                if (mines[i]) {
+                    target.setCellScale(cells[i] / cols, cells[i] % cols, 1);
+                }
+            }
+        }
+        activeFrom = cells.length;
+    }
+
+    /**
+     * Marks a cell as a mine or a wrong flag.
+     */
+    private void mark(int i) {
+        int row = cells[i] / cols;
+        int col = cells[i] % cols;
+        if (mines[i]) {
+            target.markMine(row, col);
+        } else {
+            target.markWrongFlag(row, col);
+        }
+    }
+
+    /**
+     * Gets the time a cell goes off, relative to the start of the animation.
+     */
+    private long startOf(int i) {
+        return rings[i] * waveDelayNanos;
+    }
+
+    /**
+     * Gets the ring of a cell: its distance from the origin, rounded down.
+     */
+    private static int ringOf(int dr, int dc) {
+        return (int) Math.sqrt((double) dr * dr + (double) dc * dc);
+    }
+}
@@ -0,0 +1,112 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the game's hot paths. Record them with
+ * -XX:StartFlightRecording and open the recording in JDK Mission Control, or
+ * read it with "jfr print --categories Minesweeper".
+ *
+ * While no recording is running the events are disabled: creating one is
+ * removed by the JIT and begin, end and commit do nothing, so the events are
+ * always compiled in. Stack traces are off as the events fire on every click.
+ */
+public final class GameEvents {
+    private GameEvents() {
+    }
+
+    /**
+     * Handling of one mouse click on the board, from the click until the changes
+     * are posted to the view.
+     */
+    @Name("minesweeper.Click")
+    @Label("Click")
+    @Category("Minesweeper")
+    @StackTrace(false)
+    public static class ClickEvent extends Event {
+        @Label("Row")
+        int row;
+
+        @Label("Column")
+        int col;
+
+        @Label("Flag")
+        @Description("True for a right click")
+        boolean secondary;
+    }
+
+    /**
+     * One reveal and the flood fill it started.
+     */
+    @Name("minesweeper.FloodFill")
+    @Label("Flood Fill")
+    @Category("Minesweeper")
+    @StackTrace(false)
+    public static class FloodFillEvent extends Event {
+        @Label("Revealed Cells")
+        int cells;
+
+        @Label("Spans")
+        @Description("Row spans the revealed cells form")
+        int spans;
+    }
+
+    /**
+     * Placement of the mines and building of the count table.
+     */
+    @Name("minesweeper.MinePlacement")
+    @Label("Mine Placement")
+    @Category("Minesweeper")
+    @StackTrace(false)
+    public static class MinePlacementEvent extends Event {
+        @Label("Cells")
+        int cells;
+
+        @Label("Mines")
+        int mines;
+    }
+
+    /**
+     * Check whether the game is won after a reveal.
+     */
+    @Name("minesweeper.WinCheck")
+    @Label("Win Check")
+    @Category("Minesweeper")
+    @StackTrace(false)
+    public static class WinCheckEvent extends Event {
+        @Label("Won")
+        boolean won;
+    }
+
+    /**
+     * Changes applied to the view in one pulse.
+     */
+    @Name("minesweeper.BoardUpdate")
+    @Label("Board Update")
+    @Category("Minesweeper")
+    @StackTrace(false)
+    public static class BoardUpdateEvent extends Event {
+        @Label("Cells")
+        long cells;
+
+        @Label("Full Update")
+        boolean full;
+    }
+
+    /**
+     * The game-over animation, from the pause before it until the last mine is
+     * at rest.
+     */
+    @Name("minesweeper.Explosion")
+    @Label("Explosion")
+    @Category("Minesweeper")
+    @StackTrace(false)
+    public static class ExplosionEvent extends Event {
+        @Label("Hit Mine")
+        @Description("False when the time ran out")
+        boolean hitMine;
+    }
+}
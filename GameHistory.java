@@ -0,0 +1,241 @@
+import java.util.Arrays;
+
+/**
+ * Undo and redo history of the reveals and flags of a game, stored as
+ * reversible delta records instead of board snapshots.
+ *
+ * A flag record holds the cell; a reveal record holds the clicked cell, the
+ * seed if the click placed the mines, and the row spans of the cells it
+ * revealed, straight from {@link Board#getRevealedSpans()}. Undoing a reveal
+ * hides those spans again and redoing it repeats the click, which reveals the
+ * same cells on the same board, so both cost as much as the original click
+ * and the history grows with the number of changed cells, not with the board
+ * size times the number of actions. All records are packed into one growing
+ * int array.
+ */
+public class GameHistory {
+    // Record types
+    private static final int FLAG = 0;
+    private static final int REVEAL = 1;
+
+    // Reveal header: type, row, col, placed-mines flag, seed as two ints, span count
+    private static final int REVEAL_HEADER_SIZE = 7;
+
+    private int[] records = new int[256];
+    private int[] actionStarts = new int[64];
+
+    // Actions recorded, including undone ones that can be redone
+    private int actionCount;
+
+    // Actions currently applied to the board
+    private int position;
+
+    /**
+     * Records a flag that was placed or removed.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void recordFlag(int row, int col) {
+        int start = beginAction(3);
+        records[start] = FLAG;
+        records[start + 1] = row;
+        records[start + 2] = col;
+    }
+
+    /**
+     * Records a reveal that was just made, with the cells it revealed. A reveal
+     * that changed nothing is not recorded.
+     *
+     * @param board       The board, right after the reveal.
+     * @param row         The row of the clicked cell.
+     * @param col         The column of the clicked cell.
+     * @param placedMines True if the click placed the mines before revealing.
+     */
+    public void recordReveal(Board board, int row, int col, boolean placedMines) {
+        int spanCount = board.getRevealedSpanCount();
+        if (spanCount == 0 && !placedMines) {
+            return;
+        }
+        int start = beginAction(REVEAL_HEADER_SIZE + 2 * spanCount);
+        records[start] = REVEAL;
+        records[start + 1] = row;
+        records[start + 2] = col;
+        records[start + 3] = placedMines ? 1 : 0;
+        records[start + 4] = (int) (board.getSeed() >>> 32);
+        records[start + 5] = (int) board.getSeed();
+        records[start + 6] = spanCount;
+        System.arraycopy(board.getRevealedSpans(), 0, records, start + REVEAL_HEADER_SIZE, 2 * spanCount);
+    }
+
+    /**
+     * Checks if there is an action to undo.
+     *
+     * @return True if {@link #undo} would change the board.
+     */
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    /**
+     * Checks if there is an undone action to redo.
+     *
+     * @return True if {@link #redo} would change the board.
+     */
+    public boolean canRedo() {
+        return position < actionCount;
+    }
+
+    /**
+     * Takes back the last applied action.
+     *
+     * @param board   The board the action was applied to.
+     * @param changed Receives the changed cells, or null.
+     * @return True if an action was undone.
+     */
+    public boolean undo(Board board, BoardDelta changed) {
+        if (!canUndo()) {
+            return false;
+        }
+        position--;
+        int start = actionStarts[position];
+        int row = records[start + 1];
+        int col = records[start + 2];
+        if (records[start] == FLAG) {
+            board.toggleFlag(row, col);
+            if (changed != null) {
+                changed.addCell(row * board.getCols() + col);
+            }
+            return true;
+        }
+
+        if (records[start + 3] != 0) {
+            // The click placed the mines, so taking it back leaves the board without mines
+            board.clearMines();
+            if (changed != null) {
+                changed.markAll();
+            }
+            return true;
+        }
+        int spanCount = records[start + 6];
+        for (int span = 0; span < spanCount; span++) {
+            int first = records[start + REVEAL_HEADER_SIZE + 2 * span];
+            int length = records[start + REVEAL_HEADER_SIZE + 2 * span + 1];
+            board.hideRun(first, length);
+            if (changed != null) {
+                changed.addRun(first, length);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the last undone action again.
+     *
+     * @param board   The board the action was undone on.
+     * @param changed Receives the changed cells, or null.
+     * @return True if an action was redone.
+     */
+    public boolean redo(Board board, BoardDelta changed) {
+        if (!canRedo()) {
+            return false;
+        }
+        int start = actionStarts[position];
+        position++;
+        int row = records[start + 1];
+        int col = records[start + 2];
+        if (records[start] == FLAG) {
+            board.toggleFlag(row, col);
+            if (changed != null) {
+                changed.addCell(row * board.getCols() + col);
+            }
+            return true;
+        }
+
+        // Repeating the click reveals the same cells, placing the same mines if it placed them
+        if (records[start + 3] != 0) {
+            board.placeMines(((long) records[start + 4] << 32) | (records[start + 5] & 0xFFFFFFFFL), row, col);
+        }
+        board.reveal(row, col);
+        if (changed != null) {
+            changed.addRevealed(board);
+        }
+        return true;
+    }
+
+    /**
+     * Forgets every action, for a new game.
+     */
+    public void clear() {
+        actionCount = 0;
+        position = 0;
+    }
+
+    /**
+     * Gets the number of actions that can be undone.
+     *
+     * @return The number of applied actions.
+     */
+    public int getUndoCount() {
+        return position;
+    }
+
+    /**
+     * Gets the row of the last applied action, such as the click that hit a mine.
+     *
+     * @return The row of the last applied action.
+     */
+    public int getLastRow() {
+        return records[actionStarts[position - 1] + 1];
+    }
+
+    /**
+     * Gets the column of the last applied action.
+     *
+     * @return The column of the last applied action.
+     */
+    public int getLastCol() {
+        return records[actionStarts[position - 1] + 2];
+    }
+
+    /**
+     * Gets the number of ints the records take, for checking the memory use.
+     *
+     * @return The size of the applied and redoable records.
+     */
+    public int getRecordSize() {
+        return actionCount == 0 ? 0 : actionEnd(actionCount - 1);
+    }
+
+    /**
+     * Starts a new action after the applied ones, dropping the actions that
+     * could have been redone, and makes room for its record.
+     *
+     * @param size The number of ints of the record.
+     * @return The index of the record in the records array.
+     */
+    private int beginAction(int size) {
+        int start = position == 0 ? 0 : actionEnd(position - 1);
+        if (position == actionStarts.length) {
+            actionStarts = Arrays.copyOf(actionStarts, actionStarts.length * 2);
+        }
+        if (start + size > records.length) {
+            records = Arrays.copyOf(records, Math.max(records.length * 2, start + size));
+        }
+        actionStarts[position] = start;
+        position++;
+        actionCount = position;
+        return start;
+    }
+
+    /**
+     * Gets the index just past the record of an action.
+     */
+    private int actionEnd(int action) {
+        int start = actionStarts[action];
+        if (records[start] == FLAG) {
+            return start + 3;
+        }
+        return start + REVEAL_HEADER_SIZE + 2 * records[start + 6];
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary journal of played games, cheap enough to write on every
+ * click. Many games are appended to the same file; {@link JournalReplayer}
+ * streams them back through the headless board.
+ *
+ * The file starts with a magic number and a version, followed by records that
+ * each begin with a one-byte type:
+ *
+ * GAME_START: rows, cols and mines as varints, the seed as a fixed 8-byte long,
+ * the start state as a byte and the wall clock time in epoch milliseconds as a
+ * varint.
+ * PRIMARY_CLICK, SECONDARY_CLICK: row and col as varints and the microseconds
+ * since the previous record of the game as a varint, taken from System.nanoTime.
+ * GAME_END: the outcome as a byte and the microseconds since the previous record.
+ * UNDO, REDO: the microseconds since the previous record; they take back or
+ * repeat the last reveal or flag the way {@link GameHistory} does.
+ *
+ * A click takes four to eight bytes. Records are collected in a memory buffer
+ * and written when it fills up and at the end of every game, so a click never
+ * costs a system call.
+ */
+public class GameJournal implements Closeable {
+    // "MSWJ" in ASCII
+    static final int MAGIC = 0x4D53574A;
+    static final int VERSION = 2;
+
+    // Record types
+    static final byte GAME_START = 1;
+    static final byte PRIMARY_CLICK = 2;
+    static final byte SECONDARY_CLICK = 3;
+    static final byte GAME_END = 4;
+    static final byte UNDO = 5;
+    static final byte REDO = 6;
+
+    // Longest possible record: type, three 5-byte varints, seed, state and a 10-byte varint
+    static final int MAX_RECORD_SIZE = 1 + 3 * 5 + 8 + 1 + 10;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * How the board of a game looked before its first recorded click.
+     */
+    public enum StartState {
+        // No mines placed yet, they are placed around the first left click
+        EMPTY,
+        // Mines placed with a safe cell in the middle, which is already opened
+        PRE_OPENED,
+        // Resumed from a save, so the clicks alone cannot rebuild the board
+        RESUMED
+    }
+
+    /**
+     * How a recorded game ended.
+     */
+    public enum Outcome {
+        WON,
+        LOST,
+        TIMED_OUT,
+        ABANDONED
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // Whether a game is open, and the time of its last record
+    private boolean inGame;
+    private long lastEventNanos;
+
+    /**
+     * Opens a journal for appending, creating it if needed. A journal written
+     * by an older version is moved aside to a file named after its version, so
+     * new records never mix with records of another version.
+     *
+     * @param file The journal file.
+     * @throws IOException If the file cannot be opened or is not a game journal.
+     */
+    public GameJournal(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        moveAsideOlderVersion(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+        }
+    }
+
+    /**
+     * Starts recording a game. A game that is still open is recorded as abandoned.
+     *
+     * @param board      The board of the game, before the first click.
+     * @param seed       The seed the mines are or will be placed with.
+     * @param startState How the board looks before the first click.
+     */
+    public void startGame(Board board, long seed, StartState startState) {
+        if (inGame) {
+            endGame(Outcome.ABANDONED);
+        }
+        ensureRoom();
+        buffer.put(GAME_START);
+        putVarLong(board.getRows());
+        putVarLong(board.getCols());
+        putVarLong(board.getMines());
+        buffer.putLong(seed);
+        buffer.put((byte) startState.ordinal());
+        putVarLong(System.currentTimeMillis());
+        lastEventNanos = System.nanoTime();
+        inGame = true;
+    }
+
+    /**
+     * Records a click of the open game. Clicks outside a game are ignored.
+     *
+     * @param row       The row of the clicked cell.
+     * @param col       The column of the clicked cell.
+     * @param secondary True for a right click, false for a left click.
+     */
+    public void recordClick(int row, int col, boolean secondary) {
+        if (!inGame) {
+            return;
+        }
+        ensureRoom();
+        buffer.put(secondary ? SECONDARY_CLICK : PRIMARY_CLICK);
+        putVarLong(row);
+        putVarLong(col);
+        putVarLong(microsSinceLastEvent());
+    }
+
+    /**
+     * Records that the last action of the open game was taken back.
+     */
+    public void recordUndo() {
+        recordHistoryEvent(UNDO);
+    }
+
+    /**
+     * Records that the last action taken back was applied again.
+     */
+    public void recordRedo() {
+        recordHistoryEvent(REDO);
+    }
+
+    /**
+     * Records the end of the open game and writes the buffered records.
+     *
+     * @param outcome How the game ended.
+     */
+    public void endGame(Outcome outcome) {
+        if (!inGame) {
+            return;
+        }
+        ensureRoom();
+        buffer.put(GAME_END);
+        buffer.put((byte) outcome.ordinal());
+        putVarLong(microsSinceLastEvent());
+        inGame = false;
+        flush();
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     */
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the game journal", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Records an open game as abandoned and closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        endGame(Outcome.ABANDONED);
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Records an undo or redo of the open game. Events outside a game are ignored.
+     */
+    private void recordHistoryEvent(byte type) {
+        if (!inGame) {
+            return;
+        }
+        ensureRoom();
+        buffer.put(type);
+        putVarLong(microsSinceLastEvent());
+    }
+
+    /**
+     * Renames an existing journal of an older version to FILE.vVERSION.
+     */
+    private static void moveAsideOlderVersion(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < 8) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(8);
+        try (FileChannel existing = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && existing.read(header) > 0) {
+                // Keep reading until the header is complete
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a game journal: " + file);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".v" + version),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the buffer out when the next record might not fit.
+     */
+    private void ensureRoom() {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Gets the time since the last record of the game and moves the mark.
+     */
+    private long microsSinceLastEvent() {
+        long now = System.nanoTime();
+        long micros = (now - lastEventNanos) / 1000;
+        lastEventNanos = now;
+        return micros;
+    }
+
+    /**
+     * Appends a non-negative value as an unsigned LEB128 varint.
+     */
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
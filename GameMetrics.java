@@ -0,0 +1,165 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of live gameplay metrics: a {@link LatencyHistogram} per metric,
+ * for the stats view and the summary printed when the game exits.
+ *
+ * Metrics are off unless {@link #enable()} is called at startup, with the
+ * --stats argument or the minesweeper.metrics system property. While they are
+ * off, {@link #start()} returns 0 without reading the clock and recording
+ * returns at once, so an instrumented path costs one field read and a branch.
+ * Histograms have a fixed size and recording into one is a few bit operations
+ * and an increment under its own lock, so metrics can be recorded from any
+ * thread.
+ */
+public final class GameMetrics {
+    /**
+     * The recorded metrics. Times are in nanoseconds, counts are plain numbers.
+     */
+    public enum Metric {
+        CLICK_TO_PAINT("Click to paint", true),
+        CLICK_HANDLER("Click handler", true),
+        FLOOD_FILL("Flood fill", true),
+        FLOOD_FILL_CELLS("Flood fill cells", false),
+        MINE_PLACEMENT("Mine placement", true),
+        WIN_CHECK("Win check", true),
+        PULSE_UPDATE("Pulse update", true),
+        FRAME("Frame interval", true),
+        EXPLOSION("Explosion", true);
+
+        private final String label;
+        private final boolean time;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        Metric(String label, boolean time) {
+            this.label = label;
+            this.time = time;
+        }
+
+        /**
+         * Gets the name shown in the stats view.
+         *
+         * @return The label of the metric.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Set once at startup, before any metric is recorded
+    private static boolean enabled;
+
+    // Time of the click whose changes have not been painted yet, only used on the JavaFX Application Thread
+    private static long clickNanos;
+
+    private GameMetrics() {
+    }
+
+    /**
+     * Turns the metrics on. Must be called at startup, before the game starts.
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Checks whether metrics are recorded.
+     *
+     * @return True if the metrics are on.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The current time in nanoseconds, or 0 when the metrics are off.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since {@link #start()}.
+     *
+     * @param metric The metric to record.
+     * @param start  The value returned by {@link #start()}; 0 records nothing.
+     */
+    public static void recordSince(Metric metric, long start) {
+        if (start != 0) {
+            record(metric, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param metric The metric to record.
+     * @param value  The time in nanoseconds, or the count.
+     */
+    public static void record(Metric metric, long value) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (metric.histogram) {
+            metric.histogram.record(Math.max(0, value));
+        }
+    }
+
+    /**
+     * Remembers the time of a click, until the view has painted what it changed.
+     *
+     * @param start The value returned by {@link #start()} at the click.
+     */
+    public static void clickStarted(long start) {
+        if (start != 0 && clickNanos == 0) {
+            clickNanos = start;
+        }
+    }
+
+    /**
+     * Forgets a click that did not change anything on the board.
+     */
+    public static void clickIgnored() {
+        clickNanos = 0;
+    }
+
+    /**
+     * Records the click-to-paint latency of the pending click, once the view has
+     * applied every change posted since.
+     */
+    public static void painted() {
+        if (clickNanos != 0) {
+            record(Metric.CLICK_TO_PAINT, System.nanoTime() - clickNanos);
+            clickNanos = 0;
+        }
+    }
+
+    /**
+     * Formats one line per metric with at least one value.
+     *
+     * @return The summary of all metrics.
+     */
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Metric metric : Metric.values()) {
+            synchronized (metric.histogram) {
+                LatencyHistogram histogram = metric.histogram;
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                summary.append(String.format("%-17s ", metric.label));
+                if (metric.time) {
+                    summary.append(histogram.summary(TimeUnit.MICROSECONDS));
+                } else {
+                    summary.append(String.format("n=%d mean=%.1f p50=%d p99=%d p99.9=%d max=%d",
+                            histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                            histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax()));
+                }
+                summary.append(System.lineSeparator());
+            }
+        }
+        return summary.toString();
+    }
+}
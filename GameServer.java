@@ -0,0 +1,620 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless multi-game server: many clients each play their own game over TCP,
+ * with the same rules as the desktop game (mines placed around the first left
+ * click, flags on right clicks, a time limit per difficulty).
+ *
+ * Connections are spread over a few event loops, each a single thread with a
+ * non-blocking Selector, so tens of thousands of sessions need no thread each.
+ * The time limits of all games of a loop are kept in one deadline queue that
+ * the loop checks between selects, replacing the per-game Timeline.
+ *
+ * Memory per session is bounded: a board of at most the Advanced size, a small
+ * request buffer, and an output buffer that only exists while the client is
+ * slower than the server. A session with unsent output is not read from, so a
+ * client that stops reading cannot make the server queue more replies.
+ *
+ * Requests are fixed-size binary messages, big-endian:
+ * NEW_GAME: the difficulty ordinal as a byte.
+ * REVEAL, FLAG: row and col as shorts.
+ *
+ * Replies start with their length as an int (not counting the length itself)
+ * and a one-byte type:
+ * STARTED: rows, cols and mines as shorts and the time limit in seconds as an int.
+ * REVEALED: the game state as a byte, the number of spans as an int, then for
+ * every span of newly revealed cells its first flat index as an int, its length
+ * as a short and the adjacent mine counts of its cells packed two per byte.
+ * FLAGGED: row and col as shorts, then 1 if the cell is now flagged and 0 if not.
+ * TIMED_OUT: sent unasked when the time limit of the game runs out.
+ * ERROR: one of the error codes as a byte.
+ *
+ * Only the cells a click opened are sent, so a click usually costs a few bytes.
+ *
+ * Usage: java GameServer [--port=N] [--loops=N]
+ */
+public class GameServer {
+    static final int DEFAULT_PORT = 7463;
+
+    // Request types and sizes, including the type byte
+    static final byte NEW_GAME = 'N';
+    static final byte REVEAL = 'R';
+    static final byte FLAG = 'F';
+    static final int NEW_GAME_SIZE = 2;
+    static final int CLICK_SIZE = 5;
+
+    // Reply types
+    static final byte STARTED = 'S';
+    static final byte REVEALED = 'D';
+    static final byte FLAGGED = 'G';
+    static final byte TIMED_OUT = 'T';
+    static final byte ERROR = 'E';
+
+    // Game states sent with every reveal
+    static final byte PLAYING = 0;
+    static final byte WON = 1;
+    static final byte LOST = 2;
+
+    // Error codes
+    static final byte ERROR_UNKNOWN_REQUEST = 1;
+    static final byte ERROR_NO_GAME = 2;
+    static final byte ERROR_OUT_OF_BOUNDS = 3;
+    static final byte ERROR_BAD_DIFFICULTY = 4;
+
+    // Largest reply: a reveal of every cell of the largest board, one cell per span
+    static final int MAX_REPLY_SIZE;
+
+    static {
+        int maxCells = 0;
+        for (Difficulty difficulty : Difficulty.values()) {
+            maxCells = Math.max(maxCells, difficulty.getRows() * difficulty.getCols());
+        }
+        MAX_REPLY_SIZE = Integer.BYTES + 2 + Integer.BYTES + maxCells * (Integer.BYTES + Short.BYTES + 1);
+    }
+
+    // Requests read at once; a few clicks of a client that pipelines them
+    private static final int INPUT_SIZE = 64;
+
+    private final EventLoop[] loops;
+    private final ServerSocketChannel serverChannel;
+
+    // Totals over all loops, for the periodic report
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * Opens the server socket and starts the event loops.
+     *
+     * @param port      The port to listen on, or 0 for any free port.
+     * @param loopCount The number of event loop threads.
+     * @throws IOException If the socket or a selector cannot be opened.
+     */
+    public GameServer(int port, int loopCount) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop();
+            Thread thread = new Thread(loops[i], "game-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The local port.
+     * @throws IOException If the socket is closed.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Accepts connections and hands them to the event loops in turn, until the
+     * server is closed. Loops that stopped after an error are skipped.
+     *
+     * @throws IOException If accepting fails for another reason than closing.
+     */
+    public void acceptConnections() throws IOException {
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!serverChannel.isOpen()) {
+                    return;
+                }
+                throw e;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            for (int tries = 0; tries < loops.length && !loops[next].isOpen(); tries++) {
+                next = (next + 1) % loops.length;
+            }
+            loops[next].register(channel);
+            next = (next + 1) % loops.length;
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes all sessions.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    public void close() throws IOException {
+        serverChannel.close();
+        for (EventLoop loop : loops) {
+            loop.close();
+        }
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return The number of connected clients.
+     */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * A connected client and its current game.
+     */
+    private static final class Session {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(INPUT_SIZE);
+        SelectionKey key;
+
+        // Reply bytes the socket did not take yet, null while nothing is pending
+        ByteBuffer pending;
+
+        Board board;
+        Difficulty difficulty;
+        boolean playing;
+        long deadlineNanos;
+
+        // A session is queued at most once, under the deadline it had when queued
+        boolean queued;
+        long queuedNanos;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * One selector thread serving a share of the sessions.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+        private final PriorityQueue<Session> deadlines =
+                new PriorityQueue<>((a, b) -> Long.compare(a.queuedNanos - b.queuedNanos, 0));
+
+        // Replies are built here and only copied to a session when the socket is full
+        private final ByteBuffer reply = ByteBuffer.allocateDirect(MAX_REPLY_SIZE);
+        private final SplittableRandom random = new SplittableRandom();
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        /**
+         * Hands a new connection to the loop, or closes it if the loop has stopped.
+         */
+        void register(SocketChannel channel) {
+            newChannels.add(channel);
+            if (selector.isOpen()) {
+                selector.wakeup();
+            } else {
+                closeNewChannels();
+            }
+        }
+
+        /**
+         * Checks whether the loop still serves its sessions.
+         */
+        boolean isOpen() {
+            return selector.isOpen();
+        }
+
+        /**
+         * Closes the selector and with it the loop.
+         */
+        void close() throws IOException {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (selector.isOpen()) {
+                    selector.select(millisUntilNextDeadline());
+                    registerNewChannels();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                    expireDeadlines();
+                }
+            } catch (ClosedSelectorException e) {
+                // The server was closed
+            } catch (IOException e) {
+                System.err.println("Game loop stopped, closing its sessions: " + e.getMessage());
+                closeAll();
+            }
+        }
+
+        /**
+         * Closes every session of the loop and its selector after the loop failed,
+         * so that no client waits on a loop that no longer runs.
+         */
+        private void closeAll() {
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                closeSession((Session) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // The sessions are closed either way
+            }
+            closeNewChannels();
+        }
+
+        /**
+         * Closes the connections handed to the loop that it has not registered.
+         */
+        private void closeNewChannels() {
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // The connection is gone either way
+                }
+            }
+        }
+
+        /**
+         * Gets how long the selector may block before the next time limit runs
+         * out, where 0 means no limit.
+         */
+        private long millisUntilNextDeadline() {
+            Session first = deadlines.peek();
+            if (first == null) {
+                return 0;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(first.queuedNanos - System.nanoTime());
+            return Math.max(1, millis + 1);
+        }
+
+        /**
+         * Registers the connections accepted since the last select.
+         */
+        private void registerNewChannels() throws IOException {
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                Session session = new Session(channel);
+                session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                sessions.incrementAndGet();
+            }
+        }
+
+        /**
+         * Reads requests from or writes pending replies to a ready session.
+         */
+        private void handle(SelectionKey key) {
+            Session session = (Session) key.attachment();
+            try {
+                if (key.isWritable() && !flushPending(session)) {
+                    return;
+                }
+                if (key.isReadable() || session.input.position() > 0) {
+                    if (session.channel.read(session.input) < 0) {
+                        closeSession(session);
+                        return;
+                    }
+                    processRequests(session);
+                }
+            } catch (IOException e) {
+                closeSession(session);
+            }
+        }
+
+        /**
+         * Handles every complete request in the input buffer, stopping early when
+         * a reply could not be sent in full.
+         */
+        private void processRequests(Session session) throws IOException {
+            ByteBuffer input = session.input;
+            input.flip();
+            while (input.hasRemaining() && session.pending == null && session.channel.isOpen()) {
+                byte type = input.get(input.position());
+                int size = type == NEW_GAME ? NEW_GAME_SIZE : CLICK_SIZE;
+                if (type != NEW_GAME && type != REVEAL && type != FLAG) {
+                    // The stream cannot be resynchronised after an unknown request
+                    sendError(session, ERROR_UNKNOWN_REQUEST);
+                    closeSession(session);
+                    return;
+                }
+                if (input.remaining() < size) {
+                    break;
+                }
+                input.get();
+                requests.increment();
+                if (type == NEW_GAME) {
+                    startGame(session, input.get());
+                } else {
+                    int row = input.getShort();
+                    int col = input.getShort();
+                    click(session, row, col, type == FLAG);
+                }
+            }
+            input.compact();
+        }
+
+        /**
+         * Starts a new game for a session, reusing its board when the size stays
+         * the same.
+         */
+        private void startGame(Session session, int ordinal) throws IOException {
+            Difficulty[] difficulties = Difficulty.values();
+            if (ordinal < 0 || ordinal >= difficulties.length) {
+                sendError(session, ERROR_BAD_DIFFICULTY);
+                return;
+            }
+            Difficulty difficulty = difficulties[ordinal];
+            if (session.difficulty == difficulty) {
+                session.board.reset();
+            } else {
+                session.board = new Board(difficulty.getRows(), difficulty.getCols(), difficulty.getMines());
+                session.difficulty = difficulty;
+            }
+            session.playing = true;
+            session.deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(difficulty.getTimeLimit());
+            if (!session.queued) {
+                queueDeadline(session);
+            }
+            gamesStarted.increment();
+
+            reply.clear();
+            reply.putInt(0);
+            reply.put(STARTED);
+            reply.putShort((short) difficulty.getRows());
+            reply.putShort((short) difficulty.getCols());
+            reply.putShort((short) difficulty.getMines());
+            reply.putInt(difficulty.getTimeLimit());
+            send(session);
+        }
+
+        /**
+         * Applies a click the way the desktop game does and sends the result.
+         */
+        private void click(Session session, int row, int col, boolean secondary) throws IOException {
+            Board board = session.board;
+            if (!session.playing) {
+                sendError(session, ERROR_NO_GAME);
+                return;
+            }
+            if (!board.isInBounds(row, col)) {
+                sendError(session, ERROR_OUT_OF_BOUNDS);
+                return;
+            }
+
+            reply.clear();
+            reply.putInt(0);
+            if (secondary) {
+                board.toggleFlag(row, col);
+                reply.put(FLAGGED);
+                reply.putShort((short) row);
+                reply.putShort((short) col);
+                reply.put((byte) (board.isFlagged(row, col) ? 1 : 0));
+                send(session);
+                return;
+            }
+
+            if (!board.isMinesPlaced()) {
+                board.placeMines(random.nextLong(), row, col);
+            }
+            board.reveal(row, col);
+            byte state = board.isLost() ? LOST : board.isWon() ? WON : PLAYING;
+            session.playing = state == PLAYING;
+
+            reply.put(REVEALED);
+            reply.put(state);
+            int spanCount = board.getRevealedSpanCount();
+            int[] spans = board.getRevealedSpans();
+            int cols = board.getCols();
+            reply.putInt(spanCount);
+            for (int span = 0; span < spanCount; span++) {
+                int first = spans[2 * span];
+                int length = spans[2 * span + 1];
+                reply.putInt(first);
+                reply.putShort((short) length);
+
+                // Spans never cross a row, so the counts can be read along the row
+                int spanRow = first / cols;
+                int spanCol = first % cols;
+                for (int i = 0; i < length; i += 2) {
+                    int low = board.getAdjacentMines(spanRow, spanCol + i);
+                    int high = i + 1 < length ? board.getAdjacentMines(spanRow, spanCol + i + 1) : 0;
+                    reply.put((byte) (low | high << 4));
+                }
+            }
+            send(session);
+        }
+
+        /**
+         * Sends an error reply.
+         */
+        private void sendError(Session session, byte code) throws IOException {
+            reply.clear();
+            reply.putInt(0);
+            reply.put(ERROR);
+            reply.put(code);
+            send(session);
+        }
+
+        /**
+         * Queues the time limit of a session's game.
+         */
+        private void queueDeadline(Session session) {
+            session.queued = true;
+            session.queuedNanos = session.deadlineNanos;
+            deadlines.add(session);
+        }
+
+        /**
+         * Ends the games whose time limit ran out and tells their clients. A
+         * session that started a new game since it was queued only gets queued
+         * again under its new deadline, so the queue never holds more entries
+         * than there are sessions.
+         */
+        private void expireDeadlines() {
+            long now = System.nanoTime();
+            while (!deadlines.isEmpty() && deadlines.peek().queuedNanos - now <= 0) {
+                Session session = deadlines.poll();
+                session.queued = false;
+                if (!session.playing || !session.channel.isOpen()) {
+                    continue;
+                }
+                if (session.deadlineNanos - now > 0) {
+                    queueDeadline(session);
+                    continue;
+                }
+                session.playing = false;
+                try {
+                    reply.clear();
+                    reply.putInt(0);
+                    reply.put(TIMED_OUT);
+                    send(session);
+                } catch (IOException e) {
+                    closeSession(session);
+                }
+            }
+        }
+
+        /**
+         * Writes the reply in the loop buffer to a session, filling in its length.
+         * Whatever the socket does not take is kept for the next writable event,
+         * and reading from the session stops until it is written.
+         */
+        private void send(Session session) throws IOException {
+            reply.putInt(0, reply.position() - Integer.BYTES);
+            reply.flip();
+            if (session.pending == null) {
+                session.channel.write(reply);
+                if (!reply.hasRemaining()) {
+                    return;
+                }
+                session.pending = ByteBuffer.allocate(reply.remaining());
+            } else {
+                // An unsolicited reply while output is already pending
+                ByteBuffer grown = ByteBuffer.allocate(session.pending.remaining() + reply.remaining());
+                grown.put(session.pending);
+                session.pending = grown;
+            }
+            session.pending.put(reply);
+            session.pending.flip();
+            session.key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Writes pending output of a session.
+         *
+         * @return True if nothing is pending any more.
+         */
+        private boolean flushPending(Session session) throws IOException {
+            session.channel.write(session.pending);
+            if (session.pending.hasRemaining()) {
+                return false;
+            }
+            session.pending = null;
+            session.key.interestOps(SelectionKey.OP_READ);
+            return true;
+        }
+
+        /**
+         * Closes a session and forgets its game.
+         */
+        private void closeSession(Session session) {
+            if (!session.channel.isOpen()) {
+                return;
+            }
+            session.playing = false;
+            session.key.cancel();
+            try {
+                session.channel.close();
+            } catch (IOException e) {
+                // The connection is gone either way
+            }
+            sessions.decrementAndGet();
+        }
+    }
+
+    // Entry point of the server
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int loopCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--loops=")) {
+                loopCount = Integer.parseInt(arg.substring("--loops=".length()));
+            } else {
+                System.err.println("Usage: java GameServer [--port=N] [--loops=N]");
+                System.exit(2);
+            }
+        }
+
+        GameServer server = new GameServer(port, loopCount);
+        System.out.printf("Listening on port %d with %d event loops%n", server.getPort(), loopCount);
+
+        // Report the load every ten seconds
+        Thread reporter = new Thread(() -> {
+            long lastRequests = 0;
+            while (true) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long totalRequests = server.requests.sum();
+                System.out.printf("%d sessions, %d games, %.0f requests/s%n", server.getSessionCount(),
+                        server.gamesStarted.sum(), (totalRequests - lastRequests) / 10.0);
+                lastRequests = totalRequests;
+            }
+        }, "server-report");
+        reporter.setDaemon(true);
+        reporter.start();
+
+        server.acceptConnections();
+    }
+}
@@ -0,0 +1,373 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a {@link GameJournal} back through the headless board, rebuilding
+ * every game from its seed and clicks exactly as the game applied them, and
+ * checks that the rebuilt game ends the way the journal says it did.
+ *
+ * Replay runs either as fast as possible, for verifying large journals, or at
+ * the recorded speed, for watching a game through a listener. The journal is
+ * read in large blocks and boards of the same size are reused between games.
+ *
+ * Usage: java JournalReplayer FILE [--real-time]
+ */
+public class JournalReplayer {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Receives the replayed games.
+     */
+    public interface Listener {
+        /**
+         * Called after a click has been applied to the board.
+         *
+         * @param board     The board of the game.
+         * @param row       The row of the clicked cell.
+         * @param col       The column of the clicked cell.
+         * @param secondary True for a right click, false for a left click.
+         */
+        void clickReplayed(Board board, int row, int col, boolean secondary);
+
+        /**
+         * Called at the end of every replayed game.
+         *
+         * @param board    The board of the game.
+         * @param recorded The outcome stored in the journal.
+         * @param verified True if the rebuilt board agrees with the recorded outcome.
+         */
+        void gameReplayed(Board board, GameJournal.Outcome recorded, boolean verified);
+    }
+
+    /**
+     * Totals of a replay run.
+     */
+    public static class Result {
+        long games;
+        long clicks;
+        long mismatches;
+        long skipped;
+
+        /**
+         * Gets the number of games that were replayed and checked.
+         *
+         * @return The number of replayed games.
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of clicks applied.
+         *
+         * @return The number of replayed clicks.
+         */
+        public long getClicks() {
+            return clicks;
+        }
+
+        /**
+         * Gets the number of games whose rebuilt board disagrees with the journal.
+         *
+         * @return The number of mismatching games.
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * Gets the number of games that could not be rebuilt: resumed games and a
+         * game cut off at the end of the file.
+         *
+         * @return The number of skipped games.
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+
+    private final Path file;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // Board of the last replayed game, reused while the size stays the same
+    private Board board;
+
+    // Seed of a board whose mines are placed on the first left click
+    private long pendingSeed;
+
+    // Actions of the game being replayed, for its undo and redo records
+    private final GameHistory history = new GameHistory();
+
+    /**
+     * Creates a replayer for a journal file.
+     *
+     * @param file The journal file.
+     */
+    public JournalReplayer(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays every game of the journal.
+     *
+     * @param realTime True to wait between clicks as long as the player did.
+     * @param listener The listener receiving the games, or null.
+     * @return The totals of the run.
+     * @throws IOException          If the journal cannot be read or is malformed.
+     * @throws InterruptedException If a real-time replay is interrupted.
+     */
+    public Result replay(boolean realTime, Listener listener) throws IOException, InterruptedException {
+        Result result = new Result();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear().limit(0);
+            fill(channel);
+            if (buffer.remaining() < 8 || buffer.getInt() != GameJournal.MAGIC) {
+                throw new IOException("Not a game journal: " + file);
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > GameJournal.VERSION) {
+                throw new IOException("Unsupported journal version " + version + " in " + file);
+            }
+
+            boolean inGame = false;
+            boolean replayable = false;
+            while (true) {
+                if (buffer.remaining() < GameJournal.MAX_RECORD_SIZE) {
+                    fill(channel);
+                }
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+
+                // A crash while writing can leave a partial record at the end of the file
+                if (buffer.remaining() < GameJournal.MAX_RECORD_SIZE && !isCompleteRecord()) {
+                    break;
+                }
+
+                byte type = buffer.get();
+                switch (type) {
+                    case GameJournal.GAME_START: {
+                        if (inGame) {
+                            result.skipped++;
+                        }
+                        int rows = (int) getVarLong();
+                        int cols = (int) getVarLong();
+                        int mines = (int) getVarLong();
+                        long seed = buffer.getLong();
+                        GameJournal.StartState startState = GameJournal.StartState.values()[buffer.get()];
+                        getVarLong();
+                        inGame = true;
+                        replayable = startState != GameJournal.StartState.RESUMED;
+                        if (replayable) {
+                            prepareBoard(rows, cols, mines, seed, startState);
+                        }
+                        break;
+                    }
+                    case GameJournal.PRIMARY_CLICK:
+                    case GameJournal.SECONDARY_CLICK: {
+                        int row = (int) getVarLong();
+                        int col = (int) getVarLong();
+                        long micros = getVarLong();
+                        if (!replayable) {
+                            break;
+                        }
+                        if (realTime) {
+                            sleepMicros(micros);
+                        }
+                        boolean secondary = type == GameJournal.SECONDARY_CLICK;
+                        applyClick(row, col, secondary);
+                        result.clicks++;
+                        if (listener != null) {
+                            listener.clickReplayed(board, row, col, secondary);
+                        }
+                        break;
+                    }
+                    case GameJournal.UNDO:
+                    case GameJournal.REDO: {
+                        long micros = getVarLong();
+                        if (!replayable) {
+                            break;
+                        }
+                        if (realTime) {
+                            sleepMicros(micros);
+                        }
+                        if (type == GameJournal.UNDO) {
+                            history.undo(board, null);
+                        } else {
+                            history.redo(board, null);
+                        }
+                        break;
+                    }
+                    case GameJournal.GAME_END: {
+                        GameJournal.Outcome outcome = GameJournal.Outcome.values()[buffer.get()];
+                        getVarLong();
+                        if (!replayable) {
+                            result.skipped++;
+                        } else {
+                            boolean verified = matches(outcome);
+                            result.games++;
+                            if (!verified) {
+                                result.mismatches++;
+                            }
+                            if (listener != null) {
+                                listener.gameReplayed(board, outcome, verified);
+                            }
+                        }
+                        inGame = false;
+                        replayable = false;
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown record type " + type + " in " + file);
+                }
+            }
+            if (inGame) {
+                result.skipped++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets up the board of a game as it was before its first click.
+     */
+    private void prepareBoard(int rows, int cols, int mines, long seed, GameJournal.StartState startState) {
+        history.clear();
+        if (board == null || board.getRows() != rows || board.getCols() != cols || board.getMines() != mines) {
+            board = new Board(rows, cols, mines);
+        } else {
+            board.reset();
+        }
+        if (startState == GameJournal.StartState.PRE_OPENED) {
+            board.placeMines(seed, rows / 2, cols / 2);
+            board.reveal(rows / 2, cols / 2);
+        } else {
+            // The seed is stored for boards whose mines wait for the first click
+            pendingSeed = seed;
+        }
+    }
+
+    /**
+     * Applies a click the way the game handles it.
+     */
+    private void applyClick(int row, int col, boolean secondary) {
+        if (secondary) {
+            if (board.toggleFlag(row, col)) {
+                history.recordFlag(row, col);
+            }
+            return;
+        }
+        boolean placedMines = !board.isMinesPlaced();
+        if (placedMines) {
+            board.placeMines(pendingSeed, row, col);
+        }
+        board.reveal(row, col);
+        history.recordReveal(board, row, col, placedMines);
+    }
+
+    /**
+     * Checks whether the rebuilt board agrees with the recorded outcome. Games
+     * that timed out or were abandoned must be neither won nor lost.
+     */
+    private boolean matches(GameJournal.Outcome outcome) {
+        switch (outcome) {
+            case WON:
+                return board.isWon();
+            case LOST:
+                return board.isLost();
+            default:
+                return !board.isWon() && !board.isLost();
+        }
+    }
+
+    /**
+     * Checks whether the buffer holds a whole record, without consuming it.
+     */
+    private boolean isCompleteRecord() {
+        int start = buffer.position();
+        try {
+            byte type = buffer.get();
+            if (type == GameJournal.GAME_START) {
+                getVarLong();
+                getVarLong();
+                getVarLong();
+                buffer.getLong();
+                buffer.get();
+                getVarLong();
+            } else if (type == GameJournal.GAME_END) {
+                buffer.get();
+                getVarLong();
+            } else if (type == GameJournal.UNDO || type == GameJournal.REDO) {
+                getVarLong();
+            } else {
+                getVarLong();
+                getVarLong();
+                getVarLong();
+            }
+            return true;
+        } catch (BufferUnderflowException e) {
+            return false;
+        } finally {
+            buffer.position(start);
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more.
+     */
+    private void fill(FileChannel channel) throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     */
+    private long getVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Waits for the recorded time between two clicks.
+     */
+    private static void sleepMicros(long micros) throws InterruptedException {
+        Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+    }
+
+    // Entry point of the replay tool
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: java JournalReplayer FILE [--real-time]");
+            System.exit(2);
+        }
+        boolean realTime = args.length > 1 && args[1].equals("--real-time");
+        JournalReplayer replayer = new JournalReplayer(Paths.get(args[0]));
+
+        long startTime = System.nanoTime();
+        Result result = replayer.replay(realTime, null);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("%d games, %d clicks, %d mismatches, %d skipped in %.2f s (%.0f games/s)%n",
+                result.getGames(), result.getClicks(), result.getMismatches(), result.getSkipped(), seconds,
+                result.getGames() / seconds);
+        if (result.getMismatches() > 0) {
+            System.exit(1);
+        }
+    }
+}
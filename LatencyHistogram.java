@@ -0,0 +1,195 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size histogram of latencies in nanoseconds with a relative error of
+ * about 3%. Values are grouped by their highest bit and the next five bits, so
+ * recording is a few bit operations and an array increment, and the histogram
+ * covers the whole long range in under 2000 counters without ever resizing.
+ *
+ * A histogram is not thread-safe; give each thread its own and merge them with
+ * {@link #add}.
+ */
+public class LatencyHistogram {
+    // Sub-buckets per power of two, as a number of bits
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds; negative values count as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values recorded by another histogram.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void clear() {
+        java.util.Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Writes the recorded values, skipping the empty buckets, so a histogram can
+     * be saved and restored with {@link #readFrom}.
+     *
+     * @param out The output to write to.
+     * @throws IOException If writing fails.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (long bucketCount : counts) {
+            if (bucketCount != 0) {
+                used++;
+            }
+        }
+        out.writeLong(count);
+        out.writeLong(total);
+        out.writeLong(max);
+        out.writeInt(used);
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] != 0) {
+                out.writeShort(bucket);
+                out.writeLong(counts[bucket]);
+            }
+        }
+    }
+
+    /**
+     * Adds the values written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @throws IOException If reading fails or the data is not a histogram.
+     */
+    void readFrom(DataInput in) throws IOException {
+        count += in.readLong();
+        total += in.readLong();
+        max = Math.max(max, in.readLong());
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int bucket = in.readUnsignedShort();
+            if (bucket >= counts.length) {
+                throw new IOException("Histogram bucket out of range: " + bucket);
+            }
+            counts[bucket] += in.readLong();
+        }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return The mean latency in nanoseconds.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The maximum latency in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets a percentile of the recorded values, as the upper bound of the bucket
+     * it falls in.
+     *
+     * @param percentile The percentile between 0 and 100.
+     * @return The latency in nanoseconds at that percentile.
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, upperBoundOf(bucket));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Formats the usual summary: count, mean, median, tail percentiles and max.
+     *
+     * @param unit The unit to show the latencies in.
+     * @return The summary line.
+     */
+    public String summary(TimeUnit unit) {
+        double scale = unit.toNanos(1);
+        String suffix = unit == TimeUnit.MICROSECONDS ? "us" : unit == TimeUnit.MILLISECONDS ? "ms" : unit.name();
+        return String.format("n=%d mean=%.1f%s p50=%.1f%s p99=%.1f%s p99.9=%.1f%s max=%.1f%s",
+                count, getMean() / scale, suffix, getPercentile(50) / scale, suffix, getPercentile(99) / scale,
+                suffix, getPercentile(99.9) / scale, suffix, max / scale, suffix);
+    }
+
+    /**
+     * Gets the bucket of a value: values below SUB_BUCKETS have a bucket each,
+     * larger values share a bucket with the values that agree in their highest
+     * SUB_BUCKET_BITS + 1 bits.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - SUB_BUCKET_BITS - 1 - Long.numberOfLeadingZeros(value);
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Gets the largest value that falls in a bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long first = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return first + (1L << shift) - 1;
+    }
+}
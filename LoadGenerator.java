@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for {@link GameServer}: opens many connections that each play
+ * games back to back by revealing random hidden cells, with one request in
+ * flight per connection, and reports throughput and request latency.
+ *
+ * The connections are shared by a few threads, each driving its share through
+ * one non-blocking Selector, so a single machine can hold tens of thousands of
+ * sessions open against the server.
+ *
+ * Usage: java LoadGenerator [--host=H] [--port=N] [--connections=N] [--threads=N]
+ *        [--seconds=N] [--difficulty=BEGINNER|INTERMEDIATE|ADVANCED]
+ */
+public class LoadGenerator {
+    /**
+     * One simulated player and what it knows about its board.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(GameServer.MAX_REPLY_SIZE + Integer.BYTES);
+        final ByteBuffer output = ByteBuffer.allocate(GameServer.CLICK_SIZE);
+        int rows;
+        int cols;
+        boolean[] revealed;
+        long sentNanos;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * One thread driving a share of the connections.
+     */
+    private static final class Driver implements Runnable {
+        private final Selector selector;
+        private final Difficulty difficulty;
+        private final SplittableRandom random;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final List<Connection> connections = new ArrayList<>();
+
+        // When the run ends, set before the thread starts
+        long endNanos;
+
+        long games;
+        long wins;
+        long timeouts;
+        long errors;
+
+        Driver(Difficulty difficulty, long seed) throws IOException {
+            this.selector = Selector.open();
+            this.difficulty = difficulty;
+            this.random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Connects a new session to the server.
+         */
+        void connect(InetSocketAddress address) throws IOException {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Connection connection : connections) {
+                    sendNewGame(connection);
+                }
+                while (System.nanoTime() < endNanos) {
+                    selector.select(100);
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        read((Connection) key.attachment());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Load driver stopped early, closing its connections: " + e.getMessage());
+            } finally {
+                closeAll();
+            }
+        }
+
+        /**
+         * Closes every connection of the driver and its selector.
+         */
+        private void closeAll() {
+            for (Connection connection : connections) {
+                try {
+                    connection.channel.close();
+                } catch (IOException e) {
+                    // The connection is gone either way
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // The connections are closed either way
+            }
+        }
+
+        /**
+         * Reads and handles every complete reply of a connection.
+         */
+        private void read(Connection connection) throws IOException {
+            ByteBuffer input = connection.input;
+            if (connection.channel.read(input) < 0) {
+                throw new IOException("The server closed a connection");
+            }
+            input.flip();
+            while (input.remaining() >= Integer.BYTES
+                    && input.remaining() >= Integer.BYTES + input.getInt(input.position())) {
+                int length = input.getInt();
+                int end = input.position() + length;
+                handleReply(connection, input);
+                input.position(end);
+            }
+            input.compact();
+        }
+
+        /**
+         * Handles one reply and sends the next request.
+         */
+        private void handleReply(Connection connection, ByteBuffer reply) throws IOException {
+            byte type = reply.get();
+            if (type == GameServer.TIMED_OUT) {
+                // Unasked; the reply to the request in flight is still coming
+                timeouts++;
+                return;
+            }
+            latencies.record(System.nanoTime() - connection.sentNanos);
+
+            switch (type) {
+                case GameServer.STARTED:
+                    connection.rows = reply.getShort();
+                    connection.cols = reply.getShort();
+                    int cells = connection.rows * connection.cols;
+                    if (connection.revealed == null || connection.revealed.length != cells) {
+                        connection.revealed = new boolean[cells];
+                    } else {
+                        Arrays.fill(connection.revealed, false);
+                    }
+                    sendRandomReveal(connection);
+                    break;
+                case GameServer.REVEALED:
+                    byte state = reply.get();
+                    int spanCount = reply.getInt();
+                    for (int span = 0; span < spanCount; span++) {
+                        int first = reply.getInt();
+                        int length = reply.getShort();
+                        Arrays.fill(connection.revealed, first, first + length, true);
+                        reply.position(reply.position() + (length + 1) / 2);
+                    }
+                    if (state == GameServer.PLAYING) {
+                        sendRandomReveal(connection);
+                    } else {
+                        games++;
+                        if (state == GameServer.WON) {
+                            wins++;
+                        }
+                        sendNewGame(connection);
+                    }
+                    break;
+                default:
+                    // Errors happen after a timeout ended the game under a click
+                    errors++;
+                    sendNewGame(connection);
+                    break;
+            }
+        }
+
+        /**
+         * Asks for a new game.
+         */
+        private void sendNewGame(Connection connection) throws IOException {
+            connection.output.clear();
+            connection.output.put(GameServer.NEW_GAME);
+            connection.output.put((byte) difficulty.ordinal());
+            send(connection);
+        }
+
+        /**
+         * Reveals a random cell that is not known to be revealed.
+         */
+        private void sendRandomReveal(Connection connection) throws IOException {
+            int index;
+            do {
+                index = random.nextInt(connection.revealed.length);
+            } while (connection.revealed[index]);
+            connection.output.clear();
+            connection.output.put(GameServer.REVEAL);
+            connection.output.putShort((short) (index / connection.cols));
+            connection.output.putShort((short) (index % connection.cols));
+            send(connection);
+        }
+
+        /**
+         * Writes a request. Requests are a few bytes and only one is in flight, so
+         * the socket buffer always has room for it.
+         */
+        private void send(Connection connection) throws IOException {
+            connection.output.flip();
+            connection.sentNanos = System.nanoTime();
+            while (connection.output.hasRemaining()) {
+                connection.channel.write(connection.output);
+            }
+        }
+    }
+
+    // Entry point of the load generator
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = GameServer.DEFAULT_PORT;
+        int connectionCount = 1000;
+        int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int seconds = 30;
+        Difficulty difficulty = Difficulty.INTERMEDIATE;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--host=")) {
+                host = value;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(value);
+            } else if (arg.startsWith("--connections=")) {
+                connectionCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--threads=")) {
+                threadCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(value);
+            } else if (arg.startsWith("--difficulty=")) {
+                difficulty = Difficulty.valueOf(value);
+            } else {
+                System.err.println("Usage: java LoadGenerator [--host=H] [--port=N] [--connections=N] [--threads=N]"
+                        + " [--seconds=N] [--difficulty=BEGINNER|INTERMEDIATE|ADVANCED]");
+                System.exit(2);
+            }
+        }
+
+        // Open every connection before the clock starts
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        Driver[] drivers = new Driver[threadCount];
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < threadCount; i++) {
+            drivers[i] = new Driver(difficulty, seeds.nextLong());
+        }
+        for (int i = 0; i < connectionCount; i++) {
+            drivers[i % threadCount].connect(address);
+        }
+        System.out.printf("Connected %d sessions, running for %d s%n", connectionCount, seconds);
+
+        long startTime = System.nanoTime();
+        long endNanos = startTime + TimeUnit.SECONDS.toNanos(seconds);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            drivers[i].endNanos = endNanos;
+            threads[i] = new Thread(drivers[i], "load-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - startTime) / 1e9;
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        long games = 0;
+        long wins = 0;
+        long timeouts = 0;
+        long errors = 0;
+        for (Driver driver : drivers) {
+            latencies.add(driver.latencies);
+            games += driver.games;
+            wins += driver.wins;
+            timeouts += driver.timeouts;
+            errors += driver.errors;
+        }
+        System.out.printf("%d games (%d won, %d timed out), %d errors, %.0f games/s, %.0f requests/s%n",
+                games, wins, timeouts, errors, games / elapsed, latencies.getCount() / elapsed);
+        System.out.println("Latency: " + latencies.summary(TimeUnit.MICROSECONDS));
+    }
+}
@@ -1,55 +1,107 @@
+import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.PauseTransition;
-import javafx.animation.ScaleTransition;
-import javafx.animation.SequentialTransition;
 import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseButton;
+import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import java.awt.Toolkit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javafx.util.Duration;
 
 public class MinesweeperGame extends Application {
     // Constants for cell size
     private static final int CELL_SIZE = 32;
 
-    // Constants for Beginner difficulty for number of rows ,
-    // number of columns and total number of mines.
-    private static final int BEGINNER_ROWS = 6;
-    private static final int BEGINNER_COLS = 9;
-    private static final int BEGINNER_MINES = 11;
+    // Boards with at least this many cells use the Canvas renderer by default
+    private static final int CANVAS_CELL_THRESHOLD = 10_000;
 
-    // Constants for Intermediate difficulty for number of rows ,
-    // number of columns and total number of mines.
-    private static final int INTERMEDIATE_ROWS = 12;
-    private static final int INTERMEDIATE_COLS = 18;
-    private static final int INTERMEDIATE_MINES = 36;
+    // The game in progress is saved to this file at most every few seconds
+    private static final Path AUTOSAVE_FILE = Paths.get(System.getProperty("user.home"), ".minesweeper", "autosave.bin");
+    private static final int AUTOSAVE_INTERVAL_SECONDS = 5;
 
-    // Constants for Advanced difficulty for number of rows ,
-    // number of columns and total number of mines.
-    private static final int ADVANCED_ROWS = 21;
-    private static final int ADVANCED_COLS = 26;
-    private static final int ADVANCED_MINES = 92;
+    // Most buttons refreshed in one pulse; the rest of a large opening follows in the next pulses
+    private static final int BUTTON_UPDATES_PER_PULSE = 500;
+
+    // Every game and click is appended to this journal
+    private static final Path JOURNAL_FILE = Paths.get(System.getProperty("user.home"), ".minesweeper", "journal.bin");
 
     // Game parameters
     private int rows;
     private int cols;
     private int mines;
     private Button[][] buttons;
-    private boolean[][] isMine;
-    private boolean[][] isRevealed;
+    private Board board;
+
+    // Canvas renderer, used instead of the buttons when it is selected
+    private CanvasBoardView canvasView;
+
+    // Applies the cells changed by each action to the buttons or canvas once per pulse
+    private BoardUpdatePipeline updates;
+    private final BoardDelta delta = new BoardDelta();
+
+    // Reveals and flags of the current game that can be undone and redone
+    private final GameHistory history = new GameHistory();
+
+    // Seed of the current board, shown in the title so a board can be reproduced
+    private long seed;
+
+    // Ready-made no-guess boards, only created in no-guess mode
+    private BoardPool boardPool;
+
+    // Saves are written on this thread so a large board never blocks input
+    private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Set when the game changed since the last autosave
+    private boolean unsavedChanges;
+
+    // Journal of the played games, or null if it could not be opened
+    private GameJournal journal;
+
+    // Results of finished games for the statistics and the leaderboard, opened
+    // in the background at startup; only the end of a game waits for them
+    private CompletableFuture<ResultStore> results;
+
+    // Clicks on the board in this game, and whether its result was recorded
+    private int clicks;
+    private boolean resultRecorded;
+
+    // Sound effects, started when first needed; null when muted or not needed yet
+    private SoundEngine sound;
+
+    // Set while the current game is one resumed from the autosave
+    private boolean resumedGame;
 
     // Timer variables
     private Timeline timer;
@@ -59,20 +111,99 @@ public class MinesweeperGame extends Application {
     // Mines label to display remaining flags
     private Label minesLabel;
 
-    // Difficulty
+    // Difficulty, or null for a custom board
     private Difficulty updatedDifficulty;
 
-    // Time Limits
-    private static final int BEGINNER_TIME_LIMIT = 60;
-    private static final int INTERMEDIATE_TIME_LIMIT = 180;
-    private static final int ADVANCED_TIME_LIMIT = 660;
+    // Builds new games off the JavaFX Application Thread; a cancelled build may
+    // still be generating its board while the next one starts
+    private final ExecutorService buildExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "game-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The game being built, or null once it is shown
+    private GameBuilder pendingBuild;
 
-    // Flags counter
-    private int flagsPlaced;
+    // Root node of the game last shown, replaced by the progress view during a build
+    private Parent gameView;
 
     // Stage reference
     private Stage primaryStage;
 
+    // Starts filling the board pool before the first window is shown; the sound
+    // engine and the statistics are left until they are needed
+    @Override
+    public void init() {
+        if (getParameters().getUnnamed().contains("--startup-profile")) {
+            StartupProfile.enable();
+        }
+        if (getParameters().getUnnamed().contains("--stats") || Boolean.getBoolean("minesweeper.metrics")) {
+            GameMetrics.enable();
+        }
+        if (isNoGuessSelected()) {
+            boardPool = new BoardPool();
+        }
+        try {
+            journal = new GameJournal(JOURNAL_FILE);
+        } catch (IOException e) {
+            System.err.println("Playing without a game journal: " + e.getMessage());
+        }
+        // Opened on a thread of its own, so autosaves on the save thread never queue behind it
+        results = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new ResultStore(ResultStore.DEFAULT_DIRECTORY);
+            } catch (IOException e) {
+                System.err.println("Playing without statistics: " + e.getMessage());
+                return null;
+            }
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "result-store-open");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        StartupProfile.mark("init");
+    }
+
+    // Saves the game in progress and stops the background work when the application exits
+    @Override
+    public void stop() throws InterruptedException {
+        cancelBuild();
+        buildExecutor.shutdownNow();
+        if (boardPool != null) {
+            boardPool.shutdown();
+        }
+        if (sound != null) {
+            sound.close();
+        }
+        if (unsavedChanges && board != null && !board.isLost() && !board.isWon()) {
+            autosave();
+        }
+        saveExecutor.shutdown();
+        saveExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        if (GameMetrics.isEnabled()) {
+            System.out.print(GameMetrics.summary());
+        }
+        // In practice mode a lost game stays open until the losing click is kept
+        if (board != null && !board.isWon()) {
+            endGame(board.isLost() ? GameJournal.Outcome.LOST : GameJournal.Outcome.ABANDONED);
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the game journal: " + e.getMessage());
+            }
+        }
+        if (getResults() != null) {
+            try {
+                getResults().close();
+            } catch (IOException e) {
+                System.err.println("Could not close the statistics: " + e.getMessage());
+            }
+        }
+    }
+
     // Entry point of the JavaFX application
     @Override
     public void start(Stage primaryStage) {
@@ -80,41 +211,290 @@ public class MinesweeperGame extends Application {
 
         primaryStage.setTitle("Minesweeper");
 
-        // Display difficulty selection dialog
-        DifficultySelectionDialog dialog = new DifficultySelectionDialog();
-        dialog.showAndWait();
+        // Create the labels for the game timer and the remaining flags
+        timerLabel = new Label("Time: 0 seconds");
+        minesLabel = new Label(" Flags left:  0 ");
+
+        // The scene shows the progress of the game being built until the game is ready
+        Scene scene = new Scene(new VBox());
+        primaryStage.setScene(scene);
 
-        if (dialog.getSelectedDifficulty() == null) {
+        // Undo with Ctrl+Z, redo with Ctrl+Y or Ctrl+Shift+Z (Cmd on macOS)
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undoMove);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redoMove);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                KeyCombination.SHIFT_DOWN), this::redoMove);
+
+        // A kiosk starts the --difficulty game at once; otherwise offer to resume the
+        // game that was in progress when the application was closed
+        String difficultyArgument = getParameters().getNamed().get("difficulty");
+        SavedGame savedGame = difficultyArgument == null ? askResume() : null;
+        if (difficultyArgument != null) {
+            Difficulty difficulty = Difficulty.valueOf(difficultyArgument.toUpperCase());
+            startNewGame(difficulty, difficulty.getRows(), difficulty.getCols(), difficulty.getMines());
+        } else if (savedGame != null) {
+            Board savedBoard = savedGame.getBoard();
+            resumedGame = true;
+            buildGame(savedGame.getDifficulty(), savedBoard.getRows(), savedBoard.getCols(), savedBoard.getMines(),
+                    savedBoard, savedGame.getElapsedSeconds());
+        } else if (!askNewGame()) {
             // Exit the application if the user cancels the dialog
             System.exit(0);
         }
 
-        // Get the selected difficulty from the dialog and update the difficulty
-        updatedDifficulty = dialog.getSelectedDifficulty();
-        setGameParameters(dialog.getSelectedDifficulty());
+        // Show the primary stage with the progress, the game follows once it is built
+        primaryStage.show();
+        StartupProfile.mark("window shown");
+        StartupProfile.markNextPulse(scene, "first frame", null);
+        if (GameMetrics.isEnabled()) {
+            new StatsView(primaryStage).show();
+        }
+    }
 
-        GridPane grid = createGameGrid();
+    /**
+     * Asks whether to resume the autosaved game, if there is one.
+     *
+     * @return The saved game to resume, or null to start a new game.
+     */
+    private SavedGame askResume() {
+        if (!Files.exists(AUTOSAVE_FILE)) {
+            return null;
+        }
+        SavedGame savedGame;
+        try {
+            savedGame = SavedGame.read(AUTOSAVE_FILE);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable autosave: " + e.getMessage());
+            return null;
+        }
+        Alert resumeAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        resumeAlert.setTitle("Minesweeper");
+        resumeAlert.setHeaderText("Resume Game");
+        Board savedBoard = savedGame.getBoard();
+        String name = savedGame.getDifficulty() != null ? savedGame.getDifficulty().toString()
+                : savedBoard.getRows() + "x" + savedBoard.getCols();
+        resumeAlert.setContentText("Do you want to resume your " + name + " game?");
+        ButtonType resumeButton = new ButtonType("Resume");
+        ButtonType newGameButton = new ButtonType("New Game", ButtonBar.ButtonData.CANCEL_CLOSE);
+        resumeAlert.getButtonTypes().setAll(resumeButton, newGameButton);
+
+        Optional<ButtonType> result = resumeAlert.showAndWait();
+        if (result.isPresent() && result.get() == resumeButton) {
+            return savedGame;
+        }
+        deleteAutosave();
+        return null;
+    }
 
-        // Create and add a label for the game timer to the grid
-        timerLabel = new Label("Time: 0 seconds");
-        grid.add(timerLabel, cols, 0);
+    /**
+     * Saves a copy of the game in progress on the save thread. Copying the board
+     * is a single array copy, the packing and writing happen in the background.
+     */
+    private void autosave() {
+        unsavedChanges = false;
+        SavedGame snapshot = new SavedGame(board.copy(), updatedDifficulty, elapsedTimeSeconds);
+        saveExecutor.execute(() -> {
+            try {
+                snapshot.write(AUTOSAVE_FILE);
+            } catch (IOException e) {
+                System.err.println("Autosave failed: " + e.getMessage());
+            }
+        });
+    }
 
-        // Create and add a label for the remaining flags to the grid
-        minesLabel = new Label(" Flags left:  0 ");
-        grid.add(minesLabel, cols, 1);
+    /**
+     * Removes the autosave once its game is over. Runs on the save thread, after
+     * any save that is still pending.
+     */
+    private void deleteAutosave() {
+        unsavedChanges = false;
+        saveExecutor.execute(() -> {
+            try {
+                Files.deleteIfExists(AUTOSAVE_FILE);
+            } catch (IOException e) {
+                System.err.println("Could not delete autosave: " + e.getMessage());
+            }
+        });
+    }
 
-        // Create a scene with the game grid and set it to the primary stage
-        Scene scene = new Scene(grid);
-        primaryStage.setScene(scene);
+    /**
+     * Shows the difficulty selection dialog and starts the chosen game.
+     *
+     * @return False if the dialog was cancelled.
+     */
+    private boolean askNewGame() {
+        DifficultySelectionDialog dialog = new DifficultySelectionDialog();
+        dialog.showAndWait();
+        Difficulty difficulty = dialog.getSelectedDifficulty();
+        if (!dialog.isCustomSelected() && difficulty == null) {
+            return false;
+        }
 
-        // Show the primary stage
-        primaryStage.show();
+        if (dialog.isCustomSelected()) {
+            startNewGame(null, dialog.getCustomRows(), dialog.getCustomCols(), dialog.getCustomMines());
+        } else {
+            startNewGame(difficulty, difficulty.getRows(), difficulty.getCols(), difficulty.getMines());
+        }
+        return true;
+    }
+
+    /**
+     * Starts a game of a difficulty or custom size. A game of the same size as
+     * the one on screen restarts in place, any other is built in the background.
+     *
+     * @param difficulty The difficulty, or null for a custom board.
+     * @param nextRows   The number of rows.
+     * @param nextCols   The number of columns.
+     * @param nextMines  The number of mines.
+     */
+    private void startNewGame(Difficulty difficulty, int nextRows, int nextCols, int nextMines) {
+        // The fields describe the game on screen, unless a build replaced its view and was then cancelled
+        boolean gameShown = gameView != null && primaryStage.getScene().getRoot() == gameView;
+        if (gameShown && difficulty == updatedDifficulty && nextRows == rows && nextCols == cols && nextMines == mines) {
+            restartGame();
+            return;
+        }
+        buildGame(difficulty, nextRows, nextCols, nextMines, null, 0);
+    }
 
-        // Initialize the game logic and state
+    /**
+     * Builds a game in the background and shows its progress in the window
+     * meanwhile. Once built, the game is shown on the JavaFX Application Thread
+     * and only then becomes the current difficulty and size; cancelling asks for
+     * the next game again.
+     *
+     * @param difficulty     The difficulty, or null for a custom board.
+     * @param nextRows       The number of rows.
+     * @param nextCols       The number of columns.
+     * @param nextMines      The number of mines.
+     * @param savedBoard     The board of a resumed game, or null to create a new board.
+     * @param elapsedSeconds The time already played on the saved board.
+     */
+    private void buildGame(Difficulty difficulty, int nextRows, int nextCols, int nextMines, Board savedBoard,
+                           int elapsedSeconds) {
+        if (timer != null) {
+            timer.stop();
+        }
+        cancelBuild();
+        // Changes still pending for the old view are dropped with it
+        if (updates != null) {
+            updates.clear();
+        }
+
+        GameBuilder builder = new GameBuilder(difficulty, nextRows, nextCols, nextMines, savedBoard,
+                !isCanvasRendererSelected());
+        pendingBuild = builder;
+        builder.setOnSucceeded(event -> showGame(builder, elapsedSeconds));
+        builder.setOnCancelled(event -> {
+            if (pendingBuild == builder) {
+                pendingBuild = null;
+                if (!askNewGame()) {
+                    Platform.exit();
+                }
+            }
+        });
+        builder.setOnFailed(event -> {
+            pendingBuild = null;
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Minesweeper");
+            alert.setHeaderText("Could not create the game");
+            alert.setContentText(String.valueOf(builder.getException()));
+            alert.showAndWait();
+            if (!askNewGame()) {
+                Platform.exit();
+            }
+        });
+
+        primaryStage.getScene().setRoot(createProgressView(builder));
+        primaryStage.sizeToScene();
+        buildExecutor.execute(builder);
+    }
+
+    /**
+     * Cancels the game being built, if any, without asking for another game.
+     */
+    private void cancelBuild() {
+        GameBuilder build = pendingBuild;
+        if (build != null) {
+            pendingBuild = null;
+            build.cancel();
+        }
+    }
+
+    /**
+     * Creates the view shown while a game is built: what is being done, how far
+     * it got and a button to cancel it.
+     *
+     * @param builder The build to show.
+     * @return The root node of the view.
+     */
+    private Parent createProgressView(GameBuilder builder) {
+        Label message = new Label();
+        message.textProperty().bind(builder.messageProperty());
+        // Generating the board shows as indeterminate, creating the buttons as a fraction
+        ProgressBar progress = new ProgressBar();
+        progress.setPrefWidth(300);
+        progress.progressProperty().bind(builder.progressProperty());
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(event -> builder.cancel());
+
+        VBox view = new VBox(10, new Label("Creating a " + builder.buildRows + "x" + builder.buildCols + " board with "
+                + builder.buildMines + " mines"),
+                message, progress, cancelButton);
+        view.setAlignment(Pos.CENTER);
+        view.setPadding(new Insets(20));
+        return view;
+    }
+
+    /**
+     * Shows a built game in the window and starts its timer. Runs on the JavaFX
+     * Application Thread.
+     *
+     * @param builder        The finished build.
+     * @param elapsedSeconds The time already played on a resumed board.
+     */
+    private void showGame(GameBuilder builder, int elapsedSeconds) {
+        if (pendingBuild != builder) {
+            return;
+        }
+        pendingBuild = null;
+        board = builder.getValue();
+        updatedDifficulty = builder.buildDifficulty;
+        rows = builder.buildRows;
+        cols = builder.buildCols;
+        mines = builder.buildMines;
+
+        Parent root;
+        if (builder.grid != null) {
+            buttons = builder.buttons;
+            canvasView = null;
+            updates = createButtonPipeline();
+
+            // Add the timer and remaining flags labels to the grid
+            builder.grid.add(timerLabel, cols, 0);
+            builder.grid.add(minesLabel, cols, 1);
+            root = builder.grid;
+        } else {
+            root = createCanvasLayout();
+        }
+        gameView = root;
+        primaryStage.getScene().setRoot(root);
+        primaryStage.sizeToScene();
         initializeGame();
 
-        // Initialize and start the game timer
-        initializeTimer();
+        // The timer is created with the first game, after the first frame
+        if (timer == null) {
+            initializeTimer();
+            StartupProfile.markNextPulse(primaryStage.getScene(), "first interactive frame", () -> {
+                if (StartupProfile.isEnabled()) {
+                    System.out.print(StartupProfile.summary());
+                    Platform.exit();
+                }
+            });
+        }
+        elapsedTimeSeconds = elapsedSeconds;
+        timerLabel.setText("Time: " + elapsedTimeSeconds + " seconds");
+        timer.playFromStart();
     }
 
     /**
@@ -124,7 +504,6 @@ public class MinesweeperGame extends Application {
         timer = new Timeline(new KeyFrame(Duration.seconds(1), this::updateTimer));
         timer.setCycleCount(Timeline.INDEFINITE);
         elapsedTimeSeconds = 0;
-        timer.play();
     }
 
     /**
@@ -135,11 +514,16 @@ public class MinesweeperGame extends Application {
     private void updateTimer(ActionEvent event) {
         elapsedTimeSeconds++;
 
+        // Save the game now and then while it is being played
+        if (unsavedChanges && elapsedTimeSeconds % AUTOSAVE_INTERVAL_SECONDS == 0) {
+            autosave();
+        }
+
         // Check if the time limit has been reached for the current difficulty
         int timeLimit = getTimeLimit();
         if (elapsedTimeSeconds >= timeLimit) {
             timer.stop();
-            showAlert(false);
+            showAlert(false, rows / 2, cols / 2);
         }
         // Set Label Text
         timerLabel.setText("Time: " + elapsedTimeSeconds + " seconds");
@@ -151,122 +535,206 @@ public class MinesweeperGame extends Application {
      * @return The time limit in seconds.
      */
     private int getTimeLimit() {
-        switch (updatedDifficulty) {
-            case BEGINNER:
-                return BEGINNER_TIME_LIMIT;
-            case INTERMEDIATE:
-                return INTERMEDIATE_TIME_LIMIT;
-            case ADVANCED:
-                return ADVANCED_TIME_LIMIT;
-            default:
-                return 0;
+        if (updatedDifficulty != null) {
+            return updatedDifficulty.getTimeLimit();
         }
+        // Custom boards get as much time per cell as the Advanced difficulty
+        Difficulty advanced = Difficulty.ADVANCED;
+        double secondsPerCell = (double) advanced.getTimeLimit() / (advanced.getRows() * advanced.getCols());
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(secondsPerCell * rows * cols));
     }
 
     /**
-     * Creates the game grid and initializes buttons.
+     * Creates the pipeline that applies board changes to the buttons, a limited
+     * number per pulse.
      *
-     * @return The GridPane representing the game grid.
-     */
-    private GridPane createGameGrid() {
-        GridPane grid = new GridPane();
-        grid.setPadding(new Insets(10));
-        grid.setHgap(5);
-        grid.setVgap(5);
-
-        // initialize variables
-        buttons = new Button[rows][cols];
-        isMine = new boolean[rows][cols];
-        isRevealed = new boolean[rows][cols];
-
-        // Loop through rows and columns to create buttons
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                Button button = new Button();
-                button.setMinSize(CELL_SIZE, CELL_SIZE);
-
-                // Create effectively final variables for lambda expression
-                final int finalRow = row;
-                final int finalCol = col;
-
-                // Add the event handler for the left and right mouse button clicks
-                button.setOnMouseClicked(event -> handleButtonClick(finalRow, finalCol, event.getButton()));
-
-                grid.add(button, col, row);
-                buttons[row][col] = button;
+     * @return The pipeline of the button renderer.
+     */
+    private BoardUpdatePipeline createButtonPipeline() {
+        return new BoardUpdatePipeline(cols, new BoardUpdatePipeline.CellRenderer() {
+            @Override
+            public void updateRun(int row, int firstCol, int length) {
+                for (int col = firstCol; col < firstCol + length; col++) {
+                    updateButton(row, col);
+                }
             }
+
+            @Override
+            public void updateAll() {
+                for (int row = 0; row < rows; row++) {
+                    updateRun(row, 0, cols);
+                }
+            }
+        }, BUTTON_UPDATES_PER_PULSE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a layout that draws the board on a single Canvas, with the labels
+     * to the right of it.
+     *
+     * @return The root node of the layout.
+     */
+    private Parent createCanvasLayout() {
+        buttons = null;
+        canvasView = new CanvasBoardView(board, CELL_SIZE);
+        canvasView.setOnCellClicked(this::handleButtonClick);
+
+        // The canvas only paints the visible cells, so it takes any batch in one pulse
+        updates = new BoardUpdatePipeline(cols, canvasView, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+        VBox labels = new VBox(5, timerLabel, minesLabel);
+        labels.setPadding(new Insets(0, 0, 0, 10));
+
+        BorderPane layout = new BorderPane(canvasView);
+        layout.setRight(labels);
+        layout.setPadding(new Insets(10));
+        return layout;
+    }
+
+    /**
+     * Checks whether the board is drawn on a Canvas instead of with buttons. The
+     * renderer can be chosen with the --renderer=canvas or --renderer=buttons
+     * argument, and large boards use the Canvas renderer by default.
+     *
+     * @return True if the Canvas renderer is used.
+     */
+    private boolean isCanvasRendererSelected() {
+        String renderer = getParameters().getNamed().get("renderer");
+        if (renderer != null) {
+            return renderer.equals("canvas");
         }
+        return (long) rows * cols >= CANVAS_CELL_THRESHOLD;
+    }
+
+    /**
+     * Checks whether boards must be solvable without guessing, selected with the
+     * --no-guess argument.
+     *
+     * @return True if no-guess boards are used.
+     */
+    private boolean isNoGuessSelected() {
+        return getParameters().getUnnamed().contains("--no-guess");
+    }
 
-        return grid;
+    /**
+     * Checks whether the losing click can be taken back, selected with the
+     * --practice argument.
+     *
+     * @return True in practice mode.
+     */
+    private boolean isPracticeSelected() {
+        return getParameters().getUnnamed().contains("--practice");
     }
 
     /**
-     * Initializes the game by placing mines and updating buttons.
+     * Initializes the game by choosing the board seed and updating buttons. The
+     * mines are placed on the first left click so that it never hits a mine,
+     * unless the board came with its mines already placed.
      */
     private void initializeGame() {
-        placeMines();
+        seed = board.isMinesPlaced() ? board.getSeed() : chooseSeed();
+        primaryStage.setTitle("Minesweeper - Seed " + seed);
+        if (journal != null) {
+            GameJournal.StartState startState = resumedGame ? GameJournal.StartState.RESUMED
+                    : board.isMinesPlaced() ? GameJournal.StartState.PRE_OPENED : GameJournal.StartState.EMPTY;
+            journal.startGame(board, seed, startState);
+        }
+        resumedGame = false;
+        clicks = 0;
+        resultRecorded = false;
+        history.clear();
         updateButtons();
-        flagsPlaced = 0; // Initialize the number of flags placed
     }
 
     /**
-     * Sets game parameters (rows, columns, mines) based on the selected difficulty.
+     * Chooses the seed of the next board: the value of the --seed argument when
+     * one is given, to replay a reported board, or a random seed otherwise.
      *
-     * @param difficulty The selected difficulty level.
+     * @return The seed of the next board.
      */
-    private void setGameParameters(Difficulty difficulty) {
-        switch (difficulty) {
-            case BEGINNER:
-                rows = BEGINNER_ROWS;
-                cols = BEGINNER_COLS;
-                mines = BEGINNER_MINES;
-                break;
-            case INTERMEDIATE:
-                rows = INTERMEDIATE_ROWS;
-                cols = INTERMEDIATE_COLS;
-                mines = INTERMEDIATE_MINES;
-                break;
-            case ADVANCED:
-                rows = ADVANCED_ROWS;
-                cols = ADVANCED_COLS;
-                mines = ADVANCED_MINES;
-                break;
+    private long chooseSeed() {
+        String seedArgument = getParameters().getNamed().get("seed");
+        if (seedArgument != null) {
+            return Long.parseLong(seedArgument);
         }
+        return new SplittableRandom().nextLong();
     }
 
     /**
-     * Randomly places mines on the game grid.
+     * Randomly places mines on the game grid, keeping the first clicked cell and
+     * its neighbours free of mines.
+     *
+     * @param row The row of the first clicked button.
+     * @param col The column of the first clicked button.
      */
-    private void placeMines() {
-        Random random = new Random();
-
-        for (int i = 0; i < mines; i++) {
-            int row, col;
-            do {
-                // assign values randomly
-                row = random.nextInt(rows);
-                col = random.nextInt(cols);
-            } while (isMine[row][col]);
-            isMine[row][col] = true;
+    private void placeMines(int row, int col) {
+        long start = GameMetrics.start();
+        GameEvents.MinePlacementEvent event = new GameEvents.MinePlacementEvent();
+        event.begin();
+        board.placeMines(seed, row, col);
+        GameMetrics.recordSince(GameMetrics.Metric.MINE_PLACEMENT, start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cells = rows * cols;
+            event.mines = mines;
+            event.commit();
         }
     }
 
     /**
-     * Handles button clicks based on the mouse button.
+     * Handles button clicks based on the mouse button. Clicks after the game
+     * ended, during the explosion and its dialogs included, are ignored.
      *
      * @param row    The row of the clicked button.
      * @param col    The column of the clicked button.
      * @param button The MouseButton representing the type of click.
      */
     private void handleButtonClick(int row, int col, MouseButton button) {
+        if (!isGameInProgress()) {
+            return;
+        }
+        long start = GameMetrics.start();
+        GameMetrics.clickStarted(start);
+        GameEvents.ClickEvent event = new GameEvents.ClickEvent();
+        event.begin();
+
+        unsavedChanges = true;
+        clicks++;
+        if (journal != null) {
+            journal.recordClick(row, col, button == MouseButton.SECONDARY);
+        }
+        boolean changed;
         if (button == MouseButton.SECONDARY) {
-            handleFlagClick(row, col);
-        } else if (isMine[row][col]) {
-            // if mine selected show alert
-            showAlert(true);
+            changed = handleFlagClick(row, col);
         } else {
-            revealCell(row, col);
-            checkGameWin();
+            boolean placedMines = !board.isMinesPlaced();
+            if (placedMines) {
+                placeMines(row, col);
+            }
+            changed = revealCell(row, col) > 0;
+            history.recordReveal(board, row, col, placedMines);
+        }
+
+        // The click is handled once its changes are posted; the game-over dialogs are not part of it
+        if (!changed) {
+            GameMetrics.clickIgnored();
+        }
+        GameMetrics.recordSince(GameMetrics.Metric.CLICK_HANDLER, start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.row = row;
+            event.col = col;
+            event.secondary = button == MouseButton.SECONDARY;
+            event.commit();
+        }
+
+        if (button != MouseButton.SECONDARY) {
+            if (board.isLost()) {
+                // if mine selected show alert
+                showAlert(true, row, col);
+            } else {
+                checkGameWin();
+            }
         }
     }
 
@@ -275,102 +743,186 @@ public class MinesweeperGame extends Application {
      *
      * @param row The row of the clicked button.
      * @param col The column of the clicked button.
+     * @return True if the flag was placed or removed.
      */
-    private void handleFlagClick(int row, int col) {
-        Button clickedButton = buttons[row][col];
-
-        if (!isRevealed[row][col]) {
-            if (clickedButton.getText().equals("F")) {
-                // Remove the flag
-                clickedButton.setText("");
-                flagsPlaced--;
-            } else {
-                // Place a flag
-                clickedButton.setText("F");
-                flagsPlaced++;
-            }
-
-            // Update the flags left display
-            updateFlagsLeftDisplay();
+    private boolean handleFlagClick(int row, int col) {
+        // Place or remove the flag on the board
+        if (!board.toggleFlag(row, col)) {
+            return false;
         }
+        history.recordFlag(row, col);
+        delta.addCell(row * cols + col);
+        updates.post(delta);
+        delta.clear();
+
+        // Update the flags left display
+        updateFlagsLeftDisplay();
+        return true;
     }
 
     /**
-     * Reveals a cell and adjacent cells recursively.
+     * Reveals a cell and adjacent cells on the board and posts the opened cells
+     * to the view, which shows them in the next pulse.
      *
      * @param row The row of the clicked button.
      * @param col The column of the clicked button.
+     * @return The number of revealed cells.
      */
-    private void revealCell(int row, int col) {
-        if (row < 0 || row >= rows || col < 0 || col >= cols || isRevealed[row][col]) {
-            return;
+    private int revealCell(int row, int col) {
+        long start = GameMetrics.start();
+        GameEvents.FloodFillEvent event = new GameEvents.FloodFillEvent();
+        event.begin();
+        int revealed = board.reveal(row, col);
+        event.end();
+        GameMetrics.recordSince(GameMetrics.Metric.FLOOD_FILL, start);
+        GameMetrics.record(GameMetrics.Metric.FLOOD_FILL_CELLS, revealed);
+        if (event.shouldCommit()) {
+            event.cells = revealed;
+            event.spans = board.getRevealedSpanCount();
+            event.commit();
         }
 
-        // default value is true
-        isRevealed[row][col] = true;
-        buttons[row][col].setDisable(true);
+        delta.addRevealed(board);
+        updates.post(delta);
+        delta.clear();
+        return revealed;
+    }
 
-        int mineCount = countAdjacentMines(row, col);
-        if (mineCount > 0) {
-            buttons[row][col].setText(String.valueOf(mineCount));
-        } else {
-            // Recursive reveal for adjacent cells with no mines
-            for (int i = row - 1; i <= row + 1; i++) {
-                for (int j = col - 1; j <= col + 1; j++) {
-                    revealCell(i, j);
-                }
+    /**
+     * Takes back the last reveal or flag of the game in progress.
+     */
+    private void undoMove() {
+        if (isGameInProgress() && history.undo(board, delta)) {
+            showHistoryMove();
+            if (journal != null) {
+                journal.recordUndo();
             }
         }
     }
 
     /**
-     * Counts the number of mines in adjacent cells.
-     *
-     * @param row The row of the clicked button.
-     * @param col The column of the clicked button.
-     * @return The number of mines in adjacent cells.
-     */
-    private int countAdjacentMines(int row, int col) {
-        int count = 0;
-        for (int i = row - 1; i <= row + 1; i++) {
-            for (int j = col - 1; j <= col + 1; j++) {
-                // Check if the neighboring cell is within the bounds of the grid and contains a
-                // mine
-                if (i >= 0 && i < rows && j >= 0 && j < cols && isMine[i][j]) {
-                    count++;
-                }
+     * Applies the last reveal or flag that was taken back again.
+     */
+    private void redoMove() {
+        if (isGameInProgress() && history.redo(board, delta)) {
+            showHistoryMove();
+            if (journal != null) {
+                journal.recordRedo();
+            }
+            if (board.isLost()) {
+                showAlert(true, history.getLastRow(), history.getLastCol());
+            } else {
+                checkGameWin();
             }
         }
-        return count;
     }
 
     /**
-     * Updates the state of revealed cells and the flags left display.
+     * Posts the cells changed by an undo or redo to the view.
      */
-    private void updateButtons() {
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                // Check if the current cell has been revealed
-                if (isRevealed[row][col]) {
-                    buttons[row][col].setDisable(true);
-                    int mineCount = countAdjacentMines(row, col);
-                    // If there are adjacent mines, display the mine count on the button
-                    if (mineCount > 0) {
-                        buttons[row][col].setText(String.valueOf(mineCount));
-                    }
+    private void showHistoryMove() {
+        unsavedChanges = true;
+        updates.post(delta);
+        delta.clear();
+        updateFlagsLeftDisplay();
+    }
+
+    /**
+     * Checks whether the game can still be played: the timer runs until the
+     * game is won, lost or out of time.
+     *
+     * @return True while the game is in progress.
+     */
+    private boolean isGameInProgress() {
+        return timer != null && timer.getStatus() == Animation.Status.RUNNING && !board.isLost() && !board.isWon();
+    }
+
+    /**
+     * Takes back the click that hit a mine in practice mode: the mine is hidden
+     * again, the marks of the explosion are cleared and the timer resumes.
+     */
+    private void takeBackLosingClick() {
+        history.undo(board, delta);
+        delta.clear();
+        if (journal != null) {
+            journal.recordUndo();
+        }
+        if (canvasView != null) {
+            canvasView.hideMines();
+        } else {
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    Button button = buttons[row][col];
+                    button.setStyle("");
+                    button.setScaleX(1);
+                    button.setScaleY(1);
+                    updateButton(row, col);
                 }
             }
         }
+        updateFlagsLeftDisplay();
+        unsavedChanges = true;
+        timer.play();
+    }
 
+    /**
+     * Shows the state of a board that did not come from clicks on this view: a
+     * pre-opened or resumed board. On the buttons, the revealed and flagged cells
+     * are collected from a copy of the board in the background and posted to the
+     * view when ready.
+     */
+    private void updateButtons() {
         // Display the number of flags left
         updateFlagsLeftDisplay();
+
+        if (canvasView != null) {
+            canvasView.markAllDirty();
+            return;
+        }
+        if (board.getSafeCellsRemaining() == rows * cols - mines && board.getFlagsPlaced() == 0) {
+            // Nothing to show on an untouched board
+            return;
+        }
+        Board snapshot = board.copy();
+        BoardUpdatePipeline target = updates;
+        CompletableFuture.supplyAsync(() -> BoardDelta.ofVisibleCells(snapshot))
+                .thenAccept(visible -> Platform.runLater(() -> {
+                    // Skip the result if the view was replaced in the meantime
+                    if (target == updates) {
+                        target.post(visible);
+                    }
+                }));
+    }
+
+    /**
+     * Updates the button of a single cell from the board: revealed cells show
+     * their mine count and hidden cells their flag.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    private void updateButton(int row, int col) {
+        Button button = buttons[row][col];
+        // Check if the current cell has been revealed
+        if (board.isRevealed(row, col) && !board.isMine(row, col)) {
+            button.setDisable(true);
+            int mineCount = board.getAdjacentMines(row, col);
+            // If there are adjacent mines, display the mine count on the button
+            if (mineCount > 0) {
+                button.setText(String.valueOf(mineCount));
+            }
+        } else if (!board.isRevealed(row, col)) {
+            // Cells hidden again by an undo become clickable again
+            button.setDisable(false);
+            button.setText(board.isFlagged(row, col) ? "F" : "");
+        }
     }
 
     /**
      * Updates the display of flags left.
      */
     private void updateFlagsLeftDisplay() {
-        int flagsLeft = mines - flagsPlaced;
+        int flagsLeft = mines - board.getFlagsPlaced();
         minesLabel.setText(" Flags left: " + flagsLeft);
     }
 
@@ -378,8 +930,10 @@ public class MinesweeperGame extends Application {
      * Shows a game-over alert.
      *
      * @param isGameOver Indicates whether the game is over due to a mine hit.
+     * @param originRow  The row the explosion spreads from: the hit mine, or the middle on a timeout.
+     * @param originCol  The column the explosion spreads from.
      */
-    private void showAlert(boolean isGameOver) {
+    private void showAlert(boolean isGameOver, int originRow, int originCol) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
 
         // Check if the game is over due to hitting a mine or time's up
@@ -397,49 +951,39 @@ public class MinesweeperGame extends Application {
         // Stop the game timer
         timer.stop();
 
-        Toolkit.getDefaultToolkit().beep();
-
-        // Cover the mines with an "X" flag
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                if (!isMine[row][col] && buttons[row][col].getText().equals("F")) {
-                    // Mark cells with a red "X" where the player marked a flag but there is no mine
-                    buttons[row][col].setText("X");
-                    buttons[row][col].setStyle("-fx-text-fill: red"); // Set text color to red
-                } else if (isMine[row][col] && !buttons[row][col].getText().equals("F")) {
-                    buttons[row][col].setText("X");
-                }
-            }
+        // A lost game cannot be resumed
+        deleteAutosave();
+        boolean canTakeBack = isGameOver && isPracticeSelected() && history.canUndo();
+        if (!canTakeBack) {
+            endGame(isGameOver ? GameJournal.Outcome.LOST : GameJournal.Outcome.TIMED_OUT);
         }
 
-        // Create a sequential transition for the explosion
-        SequentialTransition explosionTransition = new SequentialTransition();
-
-        // Play explosion animation for mine buttons one after another
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                // Check if the cell contains a mine and the button is not marked as a flag
-                if (isMine[row][col] && !buttons[row][col].getText().equals("F")) {
-                    ScaleTransition scaleIn = new ScaleTransition(Duration.millis(200), buttons[row][col]);
-                    scaleIn.setToX(1.5);
-                    scaleIn.setToY(1.5);
+        // A timeout gets its own sound, the mines of a lost game sound as they go off
+        SoundEngine engine = getSound();
+        if (engine != null && !isGameOver) {
+            engine.play(SoundEngine.Sound.TIME_UP);
+        }
 
-                    // Create a scale-out transition for the mine explosion
-                    ScaleTransition scaleOut = new ScaleTransition(Duration.millis(200), buttons[row][col]);
-                    scaleOut.setToX(1.0);
-                    scaleOut.setToY(1.0);
+        // Show the last opened cells before the mines are marked
+        updates.flush();
 
-                    // Add the mine explosion transition to the overall explosion transition
-                    SequentialTransition mineExplosion = new SequentialTransition(scaleIn, scaleOut);
-                    explosionTransition.getChildren().add(mineExplosion);
-                }
-            }
-        }
+        // Set off the mines in waves from the hit mine, marking mines and wrong flags as they go
+        long explosionStart = GameMetrics.start();
+        GameEvents.ExplosionEvent explosionEvent = new GameEvents.ExplosionEvent();
+        explosionEvent.begin();
+        ExplosionAnimation explosion = new ExplosionAnimation(board, originRow, originCol, createExplosionTarget());
 
         // Introduce a pause before showing the game-over alert
-        PauseTransition pause = new PauseTransition(Duration.seconds(1.5)); // Adjust the duration as needed
+        PauseTransition pause = new PauseTransition(Duration.seconds(0.5));
         pause.setOnFinished(event -> {
-            explosionTransition.setOnFinished(e -> {
+            explosion.play(() -> {
+                GameMetrics.recordSince(GameMetrics.Metric.EXPLOSION, explosionStart);
+                explosionEvent.end();
+                if (explosionEvent.shouldCommit()) {
+                    explosionEvent.hitMine = isGameOver;
+                    explosionEvent.commit();
+                }
+
                 // Run the following code on the JavaFX Application Thread
                 Platform.runLater(() -> {
                     // Show the game-over alert
@@ -450,79 +994,381 @@ public class MinesweeperGame extends Application {
                     restartAlert.setHeaderText("Game Over");
                     restartAlert.setContentText("Do you want to restart the game?");
 
-                    // Define restart and exit buttons for the alert
+                    // Define restart, difficulty and exit buttons for the alert
                     ButtonType restartButton = new ButtonType("Restart");
+                    ButtonType difficultyButton = new ButtonType("Change Difficulty");
                     ButtonType exitButton = new ButtonType("Exit", ButtonBar.ButtonData.CANCEL_CLOSE);
-                    restartAlert.getButtonTypes().setAll(restartButton, exitButton);
+                    restartAlert.getButtonTypes().setAll(restartButton, difficultyButton, exitButton);
+
+                    // In practice mode the losing click can be taken back instead
+                    ButtonType takeBackButton = new ButtonType("Take Back");
+                    if (canTakeBack) {
+                        restartAlert.getButtonTypes().add(0, takeBackButton);
+                    }
 
                     // Show the restart alert and wait for user input
                     Optional<ButtonType> result = restartAlert.showAndWait();
+                    if (result.isPresent() && result.get() == takeBackButton) {
+                        takeBackLosingClick();
+                        return;
+                    }
+                    if (canTakeBack) {
+                        endGame(GameJournal.Outcome.LOST);
+                    }
 
                     // Process user input from the restart alert
                     if (result.isPresent() && result.get() == restartButton) {
                         // Restart the game if the user chooses to restart
                         restartGame();
+                    } else if (result.isPresent() && result.get() == difficultyButton) {
+                        // Pick another difficulty and play it in the same window
+                        changeDifficulty();
                     } else {
                         // Gracefully exit the JavaFX application if the user chooses to exit
                         Platform.exit();
                     }
                 });
             });
-            explosionTransition.play(); // Start the explosion animation
         });
 
         pause.play();
     }
 
     /**
-     * Restarts the game.
+     * Creates the view side of the explosion animation: the buttons show an "X"
+     * on mines and a red "X" on wrong flags and grow and shrink, the canvas only
+     * draws the marks.
+     *
+     * @return The target of the explosion animation.
+     */
+    private ExplosionAnimation.Target createExplosionTarget() {
+        return new ExplosionAnimation.Target() {
+            @Override
+            public void markMine(int row, int col) {
+                if (sound != null) {
+                    sound.play(SoundEngine.Sound.EXPLOSION);
+                }
+                if (canvasView != null) {
+                    canvasView.showCell(row, col);
+                } else {
+                    buttons[row][col].setText("X");
+                }
+            }
+
+            @Override
+            public void markWrongFlag(int row, int col) {
+                if (canvasView != null) {
+                    canvasView.showCell(row, col);
+                } else {
+                    buttons[row][col].setText("X");
+                    buttons[row][col].setStyle("-fx-text-fill: red");
+                }
+            }
+
+            @Override
+            public void setCellScale(int row, int col, double scale) {
+                if (canvasView == null) {
+                    buttons[row][col].setScaleX(scale);
+                    buttons[row][col].setScaleY(scale);
+                }
+            }
+        };
+    }
+
+    /**
+     * Restarts the game with the same difficulty in the current window. In
+     * no-guess mode the next board comes from the pool, otherwise the current
+     * board is cleared and reused. No-guess boards that are not ready in the pool
+     * are generated in the background, like custom and seeded ones.
      */
     private void restartGame() {
-        // Reset game-related variables
-        elapsedTimeSeconds = 0;
-        flagsPlaced = 0;
+        if (boardPool == null) {
+            restartGame(null);
+            return;
+        }
 
-        // Reset mine, revealed, and button arrays
-        isMine = new boolean[rows][cols];
-        isRevealed = new boolean[rows][cols];
-        buttons = new Button[rows][cols];
+        // Generating a no-guess board can take tens of milliseconds, too long for the JavaFX thread
+        Board pooled = null;
+        if (updatedDifficulty != null && !getParameters().getNamed().containsKey("seed")) {
+            pooled = boardPool.poll(updatedDifficulty);
+        }
+        if (pooled == null) {
+            buildGame(updatedDifficulty, rows, cols, mines, null, 0);
+            return;
+        }
+        restartGame(pooled);
+    }
 
-        // Close the previous window
-        primaryStage.close();
+    /**
+     * Restarts the game with the same difficulty, reusing the window, the scene,
+     * the buttons or canvas and the timer instead of building them again.
+     *
+     * @param nextBoard A ready board of the same size, or null to clear and reuse the current board.
+     */
+    private void restartGame(Board nextBoard) {
+        timer.stop();
+
+        // Swap in the next board, or clear the current one in place
+        if (nextBoard == null) {
+            board.reset();
+        } else if (nextBoard.getRows() != rows || nextBoard.getCols() != cols || nextBoard.getMines() != mines) {
+            throw new IllegalArgumentException("Next board does not match the " + rows + "x" + cols + " board");
+        } else {
+            board = nextBoard;
+        }
+
+        // Clear what the last game left on the cells
+        updates.clear();
+        if (canvasView != null) {
+            canvasView.showNewGame(board);
+        } else {
+            resetButtons();
+        }
+        initializeGame();
 
-        // Create a new stage and start the game
-        Stage newStage = new Stage();
-        start(newStage);
+        // Reset game-related variables and restart the timer
+        elapsedTimeSeconds = 0;
+        timerLabel.setText("Time: 0 seconds");
+        timer.playFromStart();
     }
 
     /**
-     * Checks if the player has won the game.
+     * Returns every button that was opened, flagged or marked to its initial state.
+     * Untouched buttons are skipped.
      */
-    private void checkGameWin() {
-        int unrevealedCells = 0;
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                 // Check if the current cell is unrevealed and does not contain a mine
-                if (!isRevealed[row][col] && !isMine[row][col]) {
-                    unrevealedCells++;
+    private void resetButtons() {
+        for (Button[] buttonRow : buttons) {
+            for (Button button : buttonRow) {
+                if (button.isDisable() || !button.getText().isEmpty()) {
+                    button.setDisable(false);
+                    button.setText("");
+                    button.setStyle("");
                 }
             }
         }
+    }
+
+    /**
+     * Asks for a new difficulty or board size and starts a game with it in the
+     * current window. The board is only rebuilt when its size changes.
+     */
+    private void changeDifficulty() {
+        if (!askNewGame()) {
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Gets the sound engine, starting it on first use so the audio system is not
+     * loaded before a game ends. It starts up on its own thread during the pause
+     * before the explosion.
+     *
+     * @return The sound engine, or null when muted.
+     */
+    private SoundEngine getSound() {
+        if (sound == null && !getParameters().getUnnamed().contains("--mute")) {
+            sound = new SoundEngine();
+        }
+        return sound;
+    }
+
+    /**
+     * Gets the result store, waiting for it to open if it is still opening.
+     *
+     * @return The result store, or null if it could not be opened.
+     */
+    private ResultStore getResults() {
+        return results.join();
+    }
 
+    /**
+     * Ends the game in the journal and records its result in the statistics.
+     * Games abandoned before the first click are not recorded.
+     *
+     * @param outcome How the game ended.
+     */
+    private void endGame(GameJournal.Outcome outcome) {
+        int threeBV = 0;
+        if (getResults() != null && !resultRecorded && board.isMinesPlaced()) {
+            BoardAnalyzer analyzer = new BoardAnalyzer();
+            analyzer.analyze(board);
+            threeBV = analyzer.getThreeBV();
+        }
+        endGame(outcome, threeBV);
+    }
+
+    /**
+     * Ends the game in the journal and records its result in the statistics,
+     * with a 3BV that is already known.
+     *
+     * @param outcome How the game ended.
+     * @param threeBV The 3BV of the board.
+     */
+    private void endGame(GameJournal.Outcome outcome, int threeBV) {
+        if (journal != null) {
+            journal.endGame(outcome);
+        }
+        ResultStore results = getResults();
+        if (results == null || resultRecorded || (outcome == GameJournal.Outcome.ABANDONED && clicks == 0)) {
+            return;
+        }
+        resultRecorded = true;
+        results.record(new ResultStore.Result(updatedDifficulty, false, outcome, seed,
+                elapsedTimeSeconds * 1_000_000L, threeBV, clicks, System.currentTimeMillis() / 1000));
+        results.flush();
+    }
+
+    /**
+     * Checks if the player has won the game.
+     */
+    private void checkGameWin() {
         // Check if there are no unrevealed cells left (the board is cleared)
-        if (unrevealedCells == 0) {
+        long start = GameMetrics.start();
+        GameEvents.WinCheckEvent event = new GameEvents.WinCheckEvent();
+        event.begin();
+        boolean won = board.isWon();
+        GameMetrics.recordSince(GameMetrics.Metric.WIN_CHECK, start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.won = won;
+            event.commit();
+        }
+        if (won) {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Congratulations");
             alert.setHeaderText("Congratulations");
-            alert.setContentText("You've cleared the board! You win!");
+            // Score the game by the 3BV of the board per second played
+            timer.stop();
+            BoardAnalyzer analyzer = new BoardAnalyzer();
+            analyzer.analyze(board);
+            endGame(GameJournal.Outcome.WON, analyzer.getThreeBV());
+            String content = String.format("You've cleared the board! You win!%n3BV: %d, 3BV/s: %.2f",
+                    analyzer.getThreeBV(), analyzer.getThreeBVPerSecond(Math.max(1, elapsedTimeSeconds)));
+
+            // Show the best time and the streak of this difficulty
+            if (getResults() != null && updatedDifficulty != null) {
+                ResultStore.Leaderboard leaderboard = getResults().getLeaderboard(updatedDifficulty, false);
+                content += String.format("%nBest time: %d seconds, win streak: %d",
+                        leaderboard.getBestTimes(1).get(0).getElapsedMicros() / 1_000_000,
+                        leaderboard.getCurrentStreak());
+            }
+            alert.setContentText(content);
             // Show the winning alert and wait for user acknowledgment
+            deleteAutosave();
             alert.showAndWait();
-            System.exit(0);
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Builds the board of a new game and, for the button renderer, its buttons,
+     * off the JavaFX Application Thread. Nodes may be created on any thread as
+     * long as they are not part of a shown scene, so only attaching them is left
+     * to the application thread. The build stops after the current row of
+     * buttons when cancelled; generating a no-guess board runs to its end and is
+     * then discarded.
+     */
+    private class GameBuilder extends Task<Board> {
+        // The board of a resumed game, or null to create one
+        private final Board savedBoard;
+        private final boolean createButtons;
+
+        // The difficulty and size of the game, which become current only once it is shown
+        private final Difficulty buildDifficulty;
+        private final int buildRows;
+        private final int buildCols;
+        private final int buildMines;
+
+        // The buttons and their grid, left null for the Canvas renderer
+        private Button[][] buttons;
+        private GridPane grid;
+
+        /**
+         * Creates a build of a game.
+         *
+         * @param difficulty    The difficulty, or null for a custom board.
+         * @param rows          The number of rows.
+         * @param cols          The number of columns.
+         * @param mines         The number of mines.
+         * @param savedBoard    The board of a resumed game, or null to create a new board.
+         * @param createButtons True to create a button per cell as well.
+         */
+        GameBuilder(Difficulty difficulty, int rows, int cols, int mines, Board savedBoard, boolean createButtons) {
+            this.savedBoard = savedBoard;
+            this.createButtons = createButtons;
+            buildDifficulty = difficulty;
+            buildRows = rows;
+            buildCols = cols;
+            buildMines = mines;
+        }
+
+        @Override
+        protected Board call() {
+            updateMessage("Generating the board...");
+            Board nextBoard = savedBoard != null ? savedBoard : createBoard();
+            if (!createButtons) {
+                return nextBoard;
+            }
+
+            updateMessage("Creating the buttons...");
+            GridPane nextGrid = new GridPane();
+            nextGrid.setPadding(new Insets(10));
+            nextGrid.setHgap(5);
+            nextGrid.setVgap(5);
+            Button[][] nextButtons = new Button[buildRows][buildCols];
+
+            // Loop through rows and columns to create buttons
+            for (int row = 0; row < buildRows; row++) {
+                if (isCancelled()) {
+                    return null;
+                }
+                for (int col = 0; col < buildCols; col++) {
+                    Button button = new Button();
+                    button.setMinSize(CELL_SIZE, CELL_SIZE);
+
+                    // Create effectively final variables for lambda expression
+                    final int finalRow = row;
+                    final int finalCol = col;
+
+                    // Add the event handler for the left and right mouse button clicks
+                    button.setOnMouseClicked(event -> handleButtonClick(finalRow, finalCol, event.getButton()));
+
+                    nextGrid.add(button, col, row);
+                    nextButtons[row][col] = button;
+                }
+                updateProgress(row + 1, buildRows);
+            }
+            buttons = nextButtons;
+            grid = nextGrid;
+            return nextBoard;
+        }
+
+        /**
+         * Creates the board of the new game. In no-guess mode the board is taken
+         * from the pool with its first click already opened, or rebuilt from the
+         * --seed argument when one is given; otherwise it is empty until the first
+         * click. Runs on the game builder thread, as a no-guess board may be
+         * generated here.
+         *
+         * @return The board of the new game.
+         */
+        private Board createBoard() {
+            if (boardPool == null) {
+                return new Board(buildRows, buildCols, buildMines);
+            }
+            if (getParameters().getNamed().containsKey("seed")) {
+                return NoGuessGenerator.replay(buildRows, buildCols, buildMines, chooseSeed());
+            }
+            if (buildDifficulty == null) {
+                return boardPool.generate(buildRows, buildCols, buildMines, chooseSeed());
+            }
+            return boardPool.take(buildDifficulty);
         }
     }
 
     // Main method to launch the application
     public static void main(String[] args) {
+        StartupProfile.mark("main");
         launch(args);
     }
 }
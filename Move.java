@@ -0,0 +1,92 @@
+/**
+ * An action chosen by a {@link Player}: reveal a cell, place or remove a flag,
+ * or chord on a revealed number.
+ */
+public final class Move {
+    /**
+     * The kind of action.
+     */
+    public enum Type {
+        // Reveal a hidden cell, placing the mines around it on the first reveal
+        REVEAL,
+        // Place or remove a flag on a hidden cell
+        FLAG,
+        // Reveal the unflagged neighbours of a number whose mines are all flagged
+        CHORD
+    }
+
+    private final Type type;
+    private final int row;
+    private final int col;
+
+    private Move(Type type, int row, int col) {
+        this.type = type;
+        this.row = row;
+        this.col = col;
+    }
+
+    /**
+     * Creates a move that reveals a cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The move.
+     */
+    public static Move reveal(int row, int col) {
+        return new Move(Type.REVEAL, row, col);
+    }
+
+    /**
+     * Creates a move that places or removes a flag.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The move.
+     */
+    public static Move flag(int row, int col) {
+        return new Move(Type.FLAG, row, col);
+    }
+
+    /**
+     * Creates a move that chords on a revealed number.
+     *
+     * @param row The row of the number.
+     * @param col The column of the number.
+     * @return The move.
+     */
+    public static Move chord(int row, int col) {
+        return new Move(Type.CHORD, row, col);
+    }
+
+    /**
+     * Gets the kind of action.
+     *
+     * @return The type of the move.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the row of the cell the move acts on.
+     *
+     * @return The row of the cell.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the column of the cell the move acts on.
+     *
+     * @return The column of the cell.
+     */
+    public int getCol() {
+        return col;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + row + "," + col;
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates boards that can be cleared from the first click without guessing.
+ *
+ * Candidate boards are placed with the usual safe first click in the middle of
+ * the board and then played by a deterministic bot: it opens every cell the
+ * {@link Solver} proves safe and flags every proven mine, and the candidate is
+ * accepted only if the bot clears the board this way. Candidates are tried in
+ * parallel on a fork-join pool. Each attempt has its own seed derived from the
+ * base seed, and the accepted board is always the lowest successful attempt, so
+ * the same base seed always gives the same board on any number of threads.
+ *
+ * Generated boards are returned with the first click already opened.
+ */
+public class NoGuessGenerator {
+    // Attempts made before generation gives up, for densities that are almost never solvable
+    private static final int DEFAULT_MAX_ATTEMPTS = 100_000;
+
+    // Spacing of the attempt seeds, the golden ratio increment of SplittableRandom
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final ForkJoinPool pool;
+    private final Solver solver;
+    private final int maxAttempts;
+
+    /**
+     * Creates a generator that tries candidates on the given pool.
+     *
+     * @param pool The pool running the candidate checks.
+     */
+    public NoGuessGenerator(ForkJoinPool pool) {
+        this(pool, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Creates a generator that tries candidates on the given pool.
+     *
+     * @param pool        The pool running the candidate checks.
+     * @param maxAttempts The number of candidates tried before giving up.
+     */
+    public NoGuessGenerator(ForkJoinPool pool, int maxAttempts) {
+        this.pool = pool;
+        this.solver = new Solver(pool);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Generates a board that can be cleared without guessing from its first
+     * click in the middle of the board, which is already opened.
+     *
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @param mines The number of mines.
+     * @param seed  The base seed of the attempts.
+     * @return The generated board. Its seed replays it with {@link #replay}.
+     * @throws IllegalStateException If no attempt produced a solvable board.
+     */
+    public Board generate(int rows, int cols, int mines, long seed) {
+        // Best successful attempt so far, Long.MAX_VALUE while there is none
+        AtomicLong best = new AtomicLong(Long.MAX_VALUE);
+        AtomicLong nextAttempt = new AtomicLong();
+
+        List<ForkJoinTask<?>> workers = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            workers.add(pool.submit(() -> tryAttempts(rows, cols, mines, seed, nextAttempt, best)));
+        }
+        for (ForkJoinTask<?> worker : workers) {
+            worker.join();
+        }
+
+        if (best.get() == Long.MAX_VALUE) {
+            throw new IllegalStateException("No board without guessing found in " + maxAttempts + " attempts for "
+                    + rows + "x" + cols + " with " + mines + " mines");
+        }
+        return replay(rows, cols, mines, attemptSeed(seed, best.get()));
+    }
+
+    /**
+     * Claims attempts one at a time until an attempt with a lower index has
+     * succeeded or all attempts are used.
+     *
+     * @param rows        The number of rows.
+     * @param cols        The number of columns.
+     * @param mines       The number of mines.
+     * @param seed        The base seed of the attempts.
+     * @param nextAttempt The index of the next unclaimed attempt.
+     * @param best        The lowest successful attempt so far.
+     */
+    private void tryAttempts(int rows, int cols, int mines, long seed, AtomicLong nextAttempt, AtomicLong best) {
+        Board board = new Board(rows, cols, mines);
+        long attempt;
+        while ((attempt = nextAttempt.getAndIncrement()) < maxAttempts && attempt < best.get()) {
+            board.reset();
+            board.placeMines(attemptSeed(seed, attempt), rows / 2, cols / 2);
+            if (isSolvableWithoutGuessing(board, rows / 2, cols / 2)) {
+                best.accumulateAndGet(attempt, Math::min);
+            }
+        }
+    }
+
+    /**
+     * Plays a board with mines placed using only deductions, starting at the
+     * given cell. The board is left in the state the deductions reached.
+     *
+     * @param board    The board to play.
+     * @param startRow The row of the first click.
+     * @param startCol The column of the first click.
+     * @return True if the board was cleared without guessing.
+     */
+    public boolean isSolvableWithoutGuessing(Board board, int startRow, int startCol) {
+        int cols = board.getCols();
+        board.reveal(startRow, startCol);
+        while (!board.isWon()) {
+            Solution solution = solver.solve(board);
+            int[] safeCells = solution.getSafeCells();
+            if (!solution.isConsistent() || safeCells.length == 0) {
+                return false;
+            }
+
+            // Flag the proven mines so the next solve has fewer unknowns
+            for (int cell : solution.getMineCells()) {
+                board.toggleFlag(cell / cols, cell % cols);
+            }
+            for (int cell : safeCells) {
+                board.reveal(cell / cols, cell % cols);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds a generated board from its seed: the mines are placed with the
+     * safe first click in the middle of the board, which is then opened.
+     *
+     * @param rows  The number of rows.
+     * @param cols  The number of columns.
+     * @param mines The number of mines.
+     * @param seed  The seed of the generated board.
+     * @return The board with its first click opened.
+     */
+    public static Board replay(int rows, int cols, int mines, long seed) {
+        Board board = new Board(rows, cols, mines);
+        board.placeMines(seed, rows / 2, cols / 2);
+        board.reveal(rows / 2, cols / 2);
+        return board;
+    }
+
+    /**
+     * Derives the seed of one attempt from the base seed.
+     */
+    private static long attemptSeed(long seed, long attempt) {
+        return seed + attempt * SEED_GAMMA;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * A strategy that plays headless games, one move at a time. The game hands the
+ * player a {@link VisibleBoard} and applies the move it returns, until the
+ * game is won or lost.
+ *
+ * A player instance is only used by one thread, one game at a time, so it may
+ * keep state between moves and games. {@link Tournament} creates one instance
+ * per worker thread.
+ */
+public interface Player {
+    /**
+     * Called before the first move of every game.
+     *
+     * @param board The board of the new game, with nothing revealed yet.
+     * @param seed  A seed the player can use for its own random choices.
+     */
+    default void newGame(VisibleBoard board, long seed) {
+    }
+
+    /**
+     * Chooses the next move. The first reveal of a game never hits a mine.
+     *
+     * @param board The current state of the board; valid only during the call.
+     * @return The move to make.
+     */
+    Move nextMove(VisibleBoard board);
+}
@@ -0,0 +1,54 @@
+import java.util.SplittableRandom;
+
+/**
+ * Baseline bot that opens the middle of the board and then reveals random
+ * hidden cells, never flagging. Any bot should beat it.
+ */
+public class RandomPlayer implements Player {
+    // Random picks tried before falling back to a scan for the last hidden cells
+    private static final int MAX_PICKS = 64;
+
+    private SplittableRandom random = new SplittableRandom();
+
+    @Override
+    public void newGame(VisibleBoard board, long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public Move nextMove(VisibleBoard board) {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        if (board.isFirstMove()) {
+            return Move.reveal(rows / 2, cols / 2);
+        }
+
+        // Most of the board is usually hidden, so a few random picks find a cell
+        for (int pick = 0; pick < MAX_PICKS; pick++) {
+            int row = random.nextInt(rows);
+            int col = random.nextInt(cols);
+            if (!board.isRevealed(row, col) && !board.isFlagged(row, col)) {
+                return Move.reveal(row, col);
+            }
+        }
+
+        // Count the hidden cells and reveal one of them at random
+        int candidates = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (!board.isRevealed(row, col) && !board.isFlagged(row, col)) {
+                    candidates++;
+                }
+            }
+        }
+        int target = random.nextInt(Math.max(1, candidates));
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (!board.isRevealed(row, col) && !board.isFlagged(row, col) && target-- == 0) {
+                    return Move.reveal(row, col);
+                }
+            }
+        }
+        return Move.reveal(0, 0);
+    }
+}
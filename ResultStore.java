@@ -0,0 +1,875 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local store of finished games for the statistics and the leaderboard, built
+ * to hold millions of human and bot games.
+ *
+ * Results are appended to numbered log segments in one directory. A segment
+ * starts with a magic number, a version and the number of the first segment
+ * it holds, followed by 32-byte records:
+ *
+ * the difficulty ordinal or -1 for a custom board, the outcome, flags (bit 0
+ * set for a bot) and a spare byte; the elapsed time in microseconds as a long,
+ * so bot games that take microseconds still rank; the 3BV and the number of
+ * clicks as ints; the seed as a long and the end of the game in epoch seconds
+ * as an unsigned int.
+ *
+ * In memory the store keeps a {@link Leaderboard} per difficulty for humans
+ * and one for bots, holding the fastest wins, the win streaks and a histogram
+ * of the winning times, so top-K and percentile queries never touch the disk.
+ * Whenever a segment is full the leaderboards are written to a checkpoint with
+ * the position they cover, and opening the store only reads the records after
+ * that position: at most about one segment, however long the history is.
+ *
+ * Every COMPACTION_SEGMENTS sealed segments are merged into one on a
+ * background thread, dropping the abandoned games, which no statistic counts.
+ * The merged file takes the number of its last segment and records the first,
+ * so segments left behind by an interrupted compaction are removed on the next
+ * open. All methods may be called from any thread.
+ */
+public class ResultStore implements Closeable {
+    // Where the game and the tournament runner keep their results
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".minesweeper", "results");
+
+    // Fastest wins kept per leaderboard
+    public static final int MAX_BEST_TIMES = 100;
+
+    // "MSWR" and "MSWC" in ASCII
+    static final int SEGMENT_MAGIC = 0x4D535752;
+    static final int CHECKPOINT_MAGIC = 0x4D535743;
+    static final int VERSION = 1;
+
+    // Magic, version and first segment; then fixed-size records
+    static final int HEADER_SIZE = 12;
+    static final int RECORD_SIZE = 32;
+
+    // Records per segment, 2 MB
+    static final int DEFAULT_SEGMENT_RECORDS = 1 << 16;
+
+    // Sealed segments merged into one at a time
+    static final int COMPACTION_SEGMENTS = 8;
+
+    private static final int BUFFER_RECORDS = 2048;
+    private static final String CHECKPOINT_FILE = "checkpoint.bin";
+
+    /**
+     * The result of one finished game.
+     */
+    public static final class Result {
+        private final Difficulty difficulty;
+        private final boolean bot;
+        private final GameJournal.Outcome outcome;
+        private final long seed;
+        private final long elapsedMicros;
+        private final int threeBV;
+        private final int clicks;
+        private final long endedAt;
+
+        /**
+         * Creates a result.
+         *
+         * @param difficulty    The difficulty of the game, or null for a custom board.
+         * @param bot           True if a bot played the game.
+         * @param outcome       How the game ended.
+         * @param seed          The seed of the board.
+         * @param elapsedMicros The time played in microseconds.
+         * @param threeBV       The 3BV of the board, or 0 if no mines were placed.
+         * @param clicks        The number of clicks or moves.
+         * @param endedAt       The end of the game in epoch seconds.
+         */
+        public Result(Difficulty difficulty, boolean bot, GameJournal.Outcome outcome, long seed,
+                      long elapsedMicros, int threeBV, int clicks, long endedAt) {
+            this.difficulty = difficulty;
+            this.bot = bot;
+            this.outcome = outcome;
+            this.seed = seed;
+            this.elapsedMicros = elapsedMicros;
+            this.threeBV = threeBV;
+            this.clicks = clicks;
+            this.endedAt = endedAt;
+        }
+
+        /**
+         * Gets the difficulty of the game.
+         *
+         * @return The difficulty, or null for a custom board.
+         */
+        public Difficulty getDifficulty() {
+            return difficulty;
+        }
+
+        /**
+         * Checks whether a bot played the game.
+         *
+         * @return True for a bot game.
+         */
+        public boolean isBot() {
+            return bot;
+        }
+
+        /**
+         * Gets how the game ended.
+         *
+         * @return The outcome.
+         */
+        public GameJournal.Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Gets the seed of the board.
+         *
+         * @return The seed.
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Gets the time played.
+         *
+         * @return The elapsed time in microseconds.
+         */
+        public long getElapsedMicros() {
+            return elapsedMicros;
+        }
+
+        /**
+         * Gets the 3BV of the board.
+         *
+         * @return The 3BV, or 0 if no mines were placed.
+         */
+        public int getThreeBV() {
+            return threeBV;
+        }
+
+        /**
+         * Gets the number of clicks, or moves of a bot.
+         *
+         * @return The number of clicks.
+         */
+        public int getClicks() {
+            return clicks;
+        }
+
+        /**
+         * Gets the time the game ended.
+         *
+         * @return The end of the game in epoch seconds.
+         */
+        public long getEndedAt() {
+            return endedAt;
+        }
+    }
+
+    /**
+     * Statistics of the human or the bot games of one difficulty. Abandoned
+     * games are not counted and do not break a streak.
+     */
+    public static class Leaderboard {
+        private long games;
+        private long wins;
+        private int currentStreak;
+        private int longestStreak;
+
+        // The fastest wins, fastest first; ties keep the earlier game first
+        private final Result[] bestTimes = new Result[MAX_BEST_TIMES];
+        private int bestCount;
+
+        // Winning times in microseconds
+        private final LatencyHistogram winTimes = new LatencyHistogram();
+
+        /**
+         * Counts a game of this leaderboard.
+         */
+        synchronized void add(Result result) {
+            if (result.outcome == GameJournal.Outcome.ABANDONED) {
+                return;
+            }
+            games++;
+            if (result.outcome != GameJournal.Outcome.WON) {
+                currentStreak = 0;
+                return;
+            }
+            wins++;
+            currentStreak++;
+            longestStreak = Math.max(longestStreak, currentStreak);
+            winTimes.record(result.elapsedMicros);
+            insertBestTime(result);
+        }
+
+        /**
+         * Gets the number of finished games.
+         *
+         * @return The number of games won, lost or timed out.
+         */
+        public synchronized long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of games won.
+         *
+         * @return The number of wins.
+         */
+        public synchronized long getWins() {
+            return wins;
+        }
+
+        /**
+         * Gets the number of games won since the last game lost.
+         *
+         * @return The current win streak.
+         */
+        public synchronized int getCurrentStreak() {
+            return currentStreak;
+        }
+
+        /**
+         * Gets the most games won in a row.
+         *
+         * @return The longest win streak.
+         */
+        public synchronized int getLongestStreak() {
+            return longestStreak;
+        }
+
+        /**
+         * Gets the fastest wins.
+         *
+         * @param k The number of wins wanted, at most MAX_BEST_TIMES are kept.
+         * @return Up to k wins, fastest first.
+         */
+        public synchronized List<Result> getBestTimes(int k) {
+            return List.of(Arrays.copyOf(bestTimes, Math.min(Math.max(0, k), bestCount)));
+        }
+
+        /**
+         * Gets a percentile of the winning times, within about 3%.
+         *
+         * @param percentile The percentile between 0 and 100.
+         * @return The winning time in microseconds at that percentile, or 0 without wins.
+         */
+        public synchronized long getWinTimePercentile(double percentile) {
+            return winTimes.getPercentile(percentile);
+        }
+
+        /**
+         * Puts a win into the fastest wins if it is fast enough.
+         */
+        private void insertBestTime(Result result) {
+            int low = 0;
+            int high = bestCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (bestTimes[mid].elapsedMicros <= result.elapsedMicros) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == MAX_BEST_TIMES) {
+                return;
+            }
+            // The slowest win falls off the end when the list is full
+            System.arraycopy(bestTimes, low, bestTimes, low + 1, Math.min(bestCount, MAX_BEST_TIMES - 1) - low);
+            bestTimes[low] = result;
+            bestCount = Math.min(bestCount + 1, MAX_BEST_TIMES);
+        }
+
+        /**
+         * Writes the leaderboard to a checkpoint.
+         */
+        synchronized void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(games);
+            out.writeLong(wins);
+            out.writeInt(currentStreak);
+            out.writeInt(longestStreak);
+            out.writeInt(bestCount);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            for (int i = 0; i < bestCount; i++) {
+                record.clear();
+                encode(bestTimes[i], record);
+                out.write(record.array());
+            }
+            winTimes.writeTo(out);
+        }
+
+        /**
+         * Reads a leaderboard written by {@link #writeTo} into this empty one.
+         */
+        synchronized void readFrom(DataInputStream in) throws IOException {
+            games = in.readLong();
+            wins = in.readLong();
+            currentStreak = in.readInt();
+            longestStreak = in.readInt();
+            bestCount = in.readInt();
+            if (bestCount < 0 || bestCount > MAX_BEST_TIMES) {
+                throw new IOException("Invalid number of best times: " + bestCount);
+            }
+            byte[] record = new byte[RECORD_SIZE];
+            for (int i = 0; i < bestCount; i++) {
+                in.readFully(record);
+                bestTimes[i] = decode(ByteBuffer.wrap(record));
+            }
+            winTimes.readFrom(in);
+        }
+    }
+
+    private final Path directory;
+    private final int segmentRecords;
+
+    // Human and bot leaderboards by difficulty ordinal; custom boards are only logged
+    private final Leaderboard[][] leaderboards = new Leaderboard[2][Difficulty.values().length];
+
+    // The segment being appended to and its records, including the buffered ones
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private FileChannel active;
+    private int activeNumber;
+    private int activeRecords;
+    private boolean closed;
+
+    // Sealed segments that were not merged yet, in order
+    private final List<Integer> uncompacted = new ArrayList<>();
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "result-compaction");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Opens the store in a directory, creating it if needed.
+     *
+     * @param directory The directory of the segments and the checkpoint.
+     * @throws IOException If the store cannot be opened or holds files of another format.
+     */
+    public ResultStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens the store with a given segment size.
+     *
+     * @param directory      The directory of the segments and the checkpoint.
+     * @param segmentRecords The number of records after which a new segment is started.
+     * @throws IOException If the store cannot be opened or holds files of another format.
+     */
+    ResultStore(Path directory, int segmentRecords) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(directory);
+
+        // Segments by number, with the number of the first segment each one holds
+        TreeMap<Integer, Integer> segments = readSegments();
+        removeMergedSegments(segments);
+
+        // Start from the checkpoint, or from the first segment if it is missing or stale
+        resetLeaderboards();
+        long[] position = readCheckpoint(segments);
+        if (position == null) {
+            resetLeaderboards();
+            position = new long[] {segments.isEmpty() ? 1 : segments.firstKey(), 0};
+        }
+        for (Map.Entry<Integer, Integer> segment : segments.tailMap((int) position[0]).entrySet()) {
+            long skip = segment.getKey() == position[0] ? position[1] : 0;
+            replaySegment(segment.getKey(), skip);
+        }
+
+        // Append to the last segment unless it is a merged one
+        int lastMerged = 0;
+        for (Map.Entry<Integer, Integer> segment : segments.entrySet()) {
+            if (segment.getValue() < segment.getKey()) {
+                lastMerged = segment.getKey();
+            }
+        }
+        if (segments.isEmpty() || segments.lastKey() == lastMerged) {
+            activeNumber = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            createSegment(activeNumber);
+        } else {
+            activeNumber = segments.lastKey();
+            openSegment(activeNumber);
+        }
+        for (int number : segments.keySet()) {
+            if (number > lastMerged && number < activeNumber) {
+                uncompacted.add(number);
+            }
+        }
+        scheduleCompaction();
+    }
+
+    /**
+     * Appends the result of a finished game and counts it in its leaderboard.
+     * The record is buffered; call {@link #flush()} to write it out.
+     *
+     * @param result The result to record.
+     */
+    public synchronized void record(Result result) {
+        if (closed) {
+            throw new IllegalStateException("Result store is closed");
+        }
+        try {
+            if (activeRecords == segmentRecords) {
+                rollSegment();
+            }
+            encode(result, buffer);
+            activeRecords++;
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record the result", e);
+        }
+        if (result.difficulty != null) {
+            leaderboards[result.bot ? 1 : 0][result.difficulty.ordinal()].add(result);
+        }
+    }
+
+    /**
+     * Gets the statistics of the human or the bot games of a difficulty. The
+     * leaderboard stays up to date as results are recorded.
+     *
+     * @param difficulty The difficulty.
+     * @param bots       True for the bot games, false for the human games.
+     * @return The leaderboard.
+     */
+    public Leaderboard getLeaderboard(Difficulty difficulty, boolean bots) {
+        return leaderboards[bots ? 1 : 0][difficulty.ordinal()];
+    }
+
+    /**
+     * Writes the buffered results to the active segment.
+     */
+    public synchronized void flush() {
+        try {
+            writeBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the results", e);
+        }
+    }
+
+    /**
+     * Writes the buffered results and a checkpoint, waits for a running
+     * compaction and closes the store.
+     *
+     * @throws IOException If the results or the checkpoint cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBuffer();
+                writeCheckpoint();
+            } finally {
+                active.close();
+            }
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Seals the full segment, starts the next one and writes a checkpoint that
+     * covers everything before it.
+     */
+    private void rollSegment() throws IOException {
+        writeBuffer();
+        active.close();
+        uncompacted.add(activeNumber);
+        activeNumber++;
+        createSegment(activeNumber);
+        writeCheckpoint();
+        scheduleCompaction();
+    }
+
+    /**
+     * Hands the oldest sealed segments to the compaction thread once there are enough.
+     */
+    private void scheduleCompaction() {
+        while (uncompacted.size() >= COMPACTION_SEGMENTS) {
+            List<Integer> batch = new ArrayList<>(uncompacted.subList(0, COMPACTION_SEGMENTS));
+            uncompacted.subList(0, COMPACTION_SEGMENTS).clear();
+            compactor.execute(() -> compact(batch));
+        }
+    }
+
+    /**
+     * Merges consecutive sealed segments into one file named after the last of
+     * them, without the abandoned games. Runs on the compaction thread; sealed
+     * segments are never written again, so no lock is needed.
+     */
+    private void compact(List<Integer> numbers) {
+        int last = numbers.get(numbers.size() - 1);
+        Path merged = segmentPath(last);
+        Path temporary = merged.resolveSibling(merged.getFileName() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(out, header(numbers.get(0)));
+                ByteBuffer kept = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+                for (int number : numbers) {
+                    readRecords(number, 0, records -> {
+                        for (int offset = records.position(); offset < records.limit(); offset += RECORD_SIZE) {
+                            if (records.get(offset + 1) == GameJournal.Outcome.ABANDONED.ordinal()) {
+                                continue;
+                            }
+                            if (!kept.hasRemaining()) {
+                                kept.flip();
+                                writeFully(out, kept);
+                                kept.clear();
+                            }
+                            kept.put(records.array(), offset, RECORD_SIZE);
+                        }
+                    });
+                }
+                kept.flip();
+                writeFully(out, kept);
+            }
+            Files.move(temporary, merged, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (int number : numbers.subList(0, numbers.size() - 1)) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Result compaction failed: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // The next open removes it
+            }
+        }
+    }
+
+    /**
+     * Lists the segments and reads the first segment each one holds, removing
+     * files left behind by an interrupted compaction.
+     */
+    private TreeMap<Integer, Integer> readSegments() throws IOException {
+        TreeMap<Integer, Integer> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                    continue;
+                }
+                int number = Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    while (header.hasRemaining() && channel.read(header) > 0) {
+                        // Keep reading until the header is complete
+                    }
+                }
+                header.flip();
+                if (header.remaining() < HEADER_SIZE || header.getInt() != SEGMENT_MAGIC) {
+                    throw new IOException("Not a result segment: " + file);
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported result segment version " + version + ": " + file);
+                }
+                segments.put(number, header.getInt());
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Deletes the segments already held by a merged segment, left behind when a
+     * compaction was interrupted before it removed them.
+     */
+    private void removeMergedSegments(TreeMap<Integer, Integer> segments) throws IOException {
+        for (Map.Entry<Integer, Integer> segment : new ArrayList<>(segments.entrySet())) {
+            if (segment.getValue() < segment.getKey()) {
+                for (int number : new ArrayList<>(segments.subMap(segment.getValue(), segment.getKey()).keySet())) {
+                    Files.delete(segmentPath(number));
+                    segments.remove(number);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the leaderboards from the checkpoint.
+     *
+     * @return The segment and the number of its records the checkpoint covers,
+     *         or null if there is no usable checkpoint.
+     */
+    private long[] readCheckpoint(TreeMap<Integer, Integer> segments) {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int segment = in.readInt();
+            long records = in.readLong();
+            for (Leaderboard[] kind : leaderboards) {
+                for (Leaderboard leaderboard : kind) {
+                    leaderboard.readFrom(in);
+                }
+            }
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                return null;
+            }
+
+            // The covered records must still be there, in a segment that was not merged
+            Integer first = segments.get(segment);
+            boolean valid = first == null ? records == 0 && (segments.isEmpty() || segment > segments.lastKey())
+                    : first == segment && recordCount(segment) >= records;
+            return valid ? new long[] {segment, records} : null;
+        } catch (IOException e) {
+            System.err.println("Rebuilding the statistics, the checkpoint is unreadable: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the leaderboards and the position they cover to the checkpoint,
+     * replacing the old one at once.
+     */
+    private void writeCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path temporary = file.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(activeNumber);
+            out.writeLong(activeRecords);
+            for (Leaderboard[] kind : leaderboards) {
+                for (Leaderboard leaderboard : kind) {
+                    leaderboard.writeTo(out);
+                }
+            }
+            out.writeInt(CHECKPOINT_MAGIC);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Replaces the leaderboards with empty ones.
+     */
+    private void resetLeaderboards() {
+        for (Leaderboard[] kind : leaderboards) {
+            for (int i = 0; i < kind.length; i++) {
+                kind[i] = new Leaderboard();
+            }
+        }
+    }
+
+    /**
+     * Counts the records of a segment in the leaderboards.
+     */
+    private void replaySegment(int number, long skip) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        readRecords(number, skip, records -> {
+            while (records.hasRemaining()) {
+                record.clear();
+                record.put(records.array(), records.position(), RECORD_SIZE);
+                records.position(records.position() + RECORD_SIZE);
+                record.flip();
+                Result result = decode(record);
+                if (result.difficulty != null) {
+                    leaderboards[result.bot ? 1 : 0][result.difficulty.ordinal()].add(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * Receives the records of a segment a buffer at a time.
+     */
+    private interface RecordConsumer {
+        void accept(ByteBuffer records) throws IOException;
+    }
+
+    /**
+     * Reads the whole records of a segment in large chunks. A record cut short
+     * by a crash at the end of the file is ignored.
+     */
+    private void readRecords(int number, long skip, RecordConsumer consumer) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+            long end = HEADER_SIZE + (channel.size() - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+            long position = HEADER_SIZE + skip * RECORD_SIZE;
+            while (position < end) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), end - position));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, position + chunk.position()) < 0) {
+                        throw new IOException("Result segment ended early: " + segmentPath(number));
+                    }
+                }
+                chunk.flip();
+                position += chunk.limit();
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of whole records in a segment.
+     */
+    private long recordCount(int number) throws IOException {
+        return Math.max(0, (Files.size(segmentPath(number)) - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    /**
+     * Creates an empty segment and makes it the active one.
+     */
+    private void createSegment(int number) throws IOException {
+        active = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writeFully(active, header(number));
+        activeRecords = 0;
+    }
+
+    /**
+     * Opens an existing segment for appending, cutting off a record left
+     * incomplete by a crash.
+     */
+    private void openSegment(int number) throws IOException {
+        activeRecords = (int) recordCount(number);
+        active = FileChannel.open(segmentPath(number), StandardOpenOption.WRITE);
+        long end = HEADER_SIZE + (long) activeRecords * RECORD_SIZE;
+        active.truncate(end);
+        active.position(end);
+    }
+
+    /**
+     * Writes the buffered records to the active segment.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            writeFully(active, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Gets the path of a segment.
+     */
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%010d.log", number));
+    }
+
+    /**
+     * Creates the header of a segment holding the segments from first on.
+     */
+    private static ByteBuffer header(int first) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(SEGMENT_MAGIC);
+        header.putInt(VERSION);
+        header.putInt(first);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * Appends a result as a 32-byte record.
+     */
+    static void encode(Result result, ByteBuffer out) {
+        out.put((byte) (result.difficulty != null ? result.difficulty.ordinal() : -1));
+        out.put((byte) result.outcome.ordinal());
+        out.put((byte) (result.bot ? 1 : 0));
+        out.put((byte) 0);
+        out.putLong(result.elapsedMicros);
+        out.putInt(result.threeBV);
+        out.putInt(result.clicks);
+        out.putLong(result.seed);
+        out.putInt((int) result.endedAt);
+    }
+
+    /**
+     * Reads a result from a 32-byte record.
+     */
+    static Result decode(ByteBuffer in) throws IOException {
+        int difficulty = in.get();
+        int outcome = in.get();
+        int flags = in.get();
+        in.get();
+        if (difficulty < -1 || difficulty >= Difficulty.values().length
+                || outcome < 0 || outcome >= GameJournal.Outcome.values().length) {
+            throw new IOException("Invalid result record");
+        }
+        long elapsedMicros = in.getLong();
+        int threeBV = in.getInt();
+        int clicks = in.getInt();
+        long seed = in.getLong();
+        long endedAt = Integer.toUnsignedLong(in.getInt());
+        return new Result(difficulty >= 0 ? Difficulty.values()[difficulty] : null, (flags & 1) != 0,
+                GameJournal.Outcome.values()[outcome], seed, elapsedMicros, threeBV, clicks, endedAt);
+    }
+
+    // Prints the leaderboards: java ResultStore [DIRECTORY]
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : DEFAULT_DIRECTORY;
+        long start = System.nanoTime();
+        try (ResultStore store = new ResultStore(directory)) {
+            System.out.printf("Opened %s in %.1f ms%n", directory, (System.nanoTime() - start) / 1e6);
+            for (boolean bots : new boolean[] {false, true}) {
+                for (Difficulty difficulty : Difficulty.values()) {
+                    Leaderboard leaderboard = store.getLeaderboard(difficulty, bots);
+                    if (leaderboard.getGames() == 0) {
+                        continue;
+                    }
+                    System.out.printf("%n%s, %s: %d games, %.1f%% won, streak %d, longest %d%n",
+                            difficulty, bots ? "bots" : "humans", leaderboard.getGames(),
+                            100.0 * leaderboard.getWins() / leaderboard.getGames(),
+                            leaderboard.getCurrentStreak(), leaderboard.getLongestStreak());
+                    System.out.printf("Winning time p50=%.3fms p90=%.3fms p99=%.3fms%n",
+                            leaderboard.getWinTimePercentile(50) / 1e3, leaderboard.getWinTimePercentile(90) / 1e3,
+                            leaderboard.getWinTimePercentile(99) / 1e3);
+                    List<Result> best = leaderboard.getBestTimes(10);
+                    for (int i = 0; i < best.size(); i++) {
+                        Result result = best.get(i);
+                        System.out.printf("%3d. %12.3fms  3BV %4d  %5d clicks  seed %d%n", i + 1,
+                                result.elapsedMicros / 1e3, result.threeBV, result.clicks, result.seed);
+                    }
+                }
+            }
+        }
+    }
+}
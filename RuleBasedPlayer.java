@@ -0,0 +1,158 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Bot that plays like {@link SimplePlayer}, one move at a time: it applies the
+ * single-number rules (flag all hidden neighbours when they must all be mines,
+ * chord when all mines around a number are flagged) and guesses a random
+ * hidden cell when no rule applies.
+ *
+ * One scan of the board queues every move the rules find, and the queue is
+ * played out before the board is scanned again, so a move costs a full scan
+ * only when the previous scan has been used up. Queued moves are checked again
+ * before they are played, as an earlier move may have made them pointless.
+ */
+public class RuleBasedPlayer implements Player {
+    // Set on a queued flat cell index for a chord; other queued cells get a flag
+    private static final int CHORD_BIT = 1 << 31;
+
+    // Moves found by the last scan, played from queueNext on
+    private int[] queue = new int[64];
+    private int queueSize;
+    private int queueNext;
+    private SplittableRandom random = new SplittableRandom();
+
+    @Override
+    public void newGame(VisibleBoard board, long seed) {
+        random = new SplittableRandom(seed);
+        queueSize = 0;
+        queueNext = 0;
+    }
+
+    @Override
+    public Move nextMove(VisibleBoard board) {
+        if (board.isFirstMove()) {
+            return Move.reveal(board.getRows() / 2, board.getCols() / 2);
+        }
+        Move move = nextQueuedMove(board);
+        if (move == null) {
+            queueSize = 0;
+            queueNext = 0;
+            scan(board);
+            move = nextQueuedMove(board);
+        }
+        return move != null ? move : guess(board);
+    }
+
+    /**
+     * Takes the next queued move that still changes the board.
+     *
+     * @param board The board to play on.
+     * @return The move, or null when the queue is used up.
+     */
+    private Move nextQueuedMove(VisibleBoard board) {
+        int cols = board.getCols();
+        while (queueNext < queueSize) {
+            int entry = queue[queueNext++];
+            int index = entry & ~CHORD_BIT;
+            int row = index / cols;
+            int col = index % cols;
+            if ((entry & CHORD_BIT) != 0) {
+                if (countNeighbours(board, row, col, false) > 0) {
+                    return Move.chord(row, col);
+                }
+            } else if (!board.isRevealed(row, col) && !board.isFlagged(row, col)) {
+                return Move.flag(row, col);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies the single-number rules to every revealed number once, queueing
+     * the moves they find.
+     *
+     * @param board The board to play on.
+     */
+    private void scan(VisibleBoard board) {
+        int cols = board.getCols();
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < cols; col++) {
+                int mineCount = board.getAdjacentMines(row, col);
+                if (mineCount <= 0) {
+                    continue;
+                }
+                int hidden = countNeighbours(board, row, col, false);
+                if (hidden == 0) {
+                    continue;
+                }
+                int flags = countNeighbours(board, row, col, true);
+                if (flags == mineCount) {
+                    // Every mine is flagged, so the other neighbours are safe
+                    enqueue((row * cols + col) | CHORD_BIT);
+                } else if (flags + hidden == mineCount) {
+                    // Every hidden neighbour must be a mine
+                    for (int r = row - 1; r <= row + 1; r++) {
+                        for (int c = col - 1; c <= col + 1; c++) {
+                            if (board.isInBounds(r, c) && !board.isRevealed(r, c) && !board.isFlagged(r, c)) {
+                                enqueue(r * cols + c);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the hidden neighbours of a cell that are flagged or not flagged.
+     */
+    private static int countNeighbours(VisibleBoard board, int row, int col, boolean flagged) {
+        int count = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (board.isInBounds(r, c) && !board.isRevealed(r, c) && board.isFlagged(r, c) == flagged) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a move to the queue, growing it if needed.
+     */
+    private void enqueue(int entry) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, queue.length * 2);
+        }
+        queue[queueSize++] = entry;
+    }
+
+    /**
+     * Reveals a random hidden cell that is not flagged.
+     *
+     * @param board The board to play on.
+     * @return The move.
+     */
+    private Move guess(VisibleBoard board) {
+        int candidates = 0;
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                if (!board.isRevealed(row, col) && !board.isFlagged(row, col)) {
+                    candidates++;
+                }
+            }
+        }
+
+        int target = random.nextInt(Math.max(1, candidates));
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                if (!board.isRevealed(row, col) && !board.isFlagged(row, col) && target-- == 0) {
+                    return Move.reveal(row, col);
+                }
+            }
+        }
+        return Move.reveal(0, 0);
+    }
+}
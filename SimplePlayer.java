@@ -0,0 +1,117 @@
+import java.util.SplittableRandom;
+
+/**
+ * Plays a game on a headless board like a careful human would: it repeatedly
+ * applies the single-number rules (flag all hidden neighbours when they must
+ * all be mines, open them when all mines around a number are flagged) and
+ * guesses a random hidden cell when no rule applies.
+ */
+public class SimplePlayer {
+    /**
+     * Plays the game on a board until it is won or lost. The first click is made
+     * in the middle of the board, placing the mines around it if needed.
+     *
+     * @param board  The board to play on.
+     * @param seed   The seed used to place the mines if they are not placed yet.
+     * @param random The random source used for guesses.
+     * @return The number of cells revealed by the first click.
+     */
+    public int play(Board board, long seed, SplittableRandom random) {
+        int startRow = board.getRows() / 2;
+        int startCol = board.getCols() / 2;
+        if (!board.isMinesPlaced()) {
+            board.placeMines(seed, startRow, startCol);
+        }
+        int opening = board.reveal(startRow, startCol);
+
+        while (!board.isWon() && !board.isLost()) {
+            if (!applyRules(board)) {
+                guess(board, random);
+            }
+        }
+        return opening;
+    }
+
+    /**
+     * Applies the single-number rules to every revealed number once.
+     *
+     * @param board The board to play on.
+     * @return True if any cell was flagged or revealed.
+     */
+    private boolean applyRules(Board board) {
+        boolean progress = false;
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                if (!board.isRevealed(row, col) || board.getAdjacentMines(row, col) == 0) {
+                    continue;
+                }
+
+                // Count the hidden and flagged neighbours of the number
+                int hidden = 0;
+                int flags = 0;
+                for (int r = row - 1; r <= row + 1; r++) {
+                    for (int c = col - 1; c <= col + 1; c++) {
+                        if (board.isInBounds(r, c) && !board.isRevealed(r, c)) {
+                            if (board.isFlagged(r, c)) {
+                                flags++;
+                            } else {
+                                hidden++;
+                            }
+                        }
+                    }
+                }
+                if (hidden == 0) {
+                    continue;
+                }
+
+                int mineCount = board.getAdjacentMines(row, col);
+                if (flags == mineCount) {
+                    // Every mine is flagged, so the other neighbours are safe
+                    board.chord(row, col);
+                    progress = true;
+                } else if (flags + hidden == mineCount) {
+                    // Every hidden neighbour must be a mine
+                    for (int r = row - 1; r <= row + 1; r++) {
+                        for (int c = col - 1; c <= col + 1; c++) {
+                            if (board.isInBounds(r, c) && !board.isRevealed(r, c) && !board.isFlagged(r, c)) {
+                                board.toggleFlag(r, c);
+                            }
+                        }
+                    }
+                    progress = true;
+                }
+                if (board.isLost() || board.isWon()) {
+                    return true;
+                }
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * Reveals a random hidden cell that is not flagged.
+     *
+     * @param board  The board to play on.
+     * @param random The random source used to pick the cell.
+     */
+    private void guess(Board board, SplittableRandom random) {
+        int candidates = 0;
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                if (!board.isRevealed(row, col) && !board.isFlagged(row, col)) {
+                    candidates++;
+                }
+            }
+        }
+
+        int target = random.nextInt(candidates);
+        for (int row = 0; row < board.getRows(); row++) {
+            for (int col = 0; col < board.getCols(); col++) {
+                if (!board.isRevealed(row, col) && !board.isFlagged(row, col) && target-- == 0) {
+                    board.reveal(row, col);
+                    return;
+                }
+            }
+        }
+    }
+}
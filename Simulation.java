@@ -0,0 +1,277 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch mode that plays large numbers of headless games per board size with
+ * {@link SimplePlayer} and reports win rate, average 3BV, opening sizes and
+ * throughput. Boards can be filtered by 3BV, measured with a
+ * {@link BoardAnalyzer}; boards outside the range are replaced before play.
+ * Games are spread over a fork-join pool with one worker per core; each worker
+ * reuses its board and scratch buffers for all of its games and keeps private
+ * statistics, so the workers never share mutable state.
+ *
+ * Usage: java Simulation [--games=N] [--threads=N] [--seed=N] [--min-3bv=N] [--max-3bv=N]
+ *        [BEGINNER|INTERMEDIATE|ADVANCED|ROWSxCOLSxMINES ...]
+ */
+public class Simulation {
+    // Number of games a worker claims at a time
+    private static final int CHUNK_SIZE = 1024;
+
+    // Boards drawn for one game before a 3BV range is taken to be impossible
+    private static final int MAX_REJECTED_BOARDS = 1000;
+
+    // Defaults for the command line options
+    private static final long DEFAULT_GAMES = 100_000;
+
+    /**
+     * Board size and number of mines of a simulated configuration.
+     */
+    static class Configuration {
+        final String name;
+        final int rows;
+        final int cols;
+        final int mines;
+
+        Configuration(String name, int rows, int cols, int mines) {
+            this.name = name;
+            this.rows = rows;
+            this.cols = cols;
+            this.mines = mines;
+        }
+    }
+
+    /**
+     * Totals collected by one worker and merged at the end of a run.
+     */
+    static class Statistics {
+        long games;
+        long wins;
+        long totalThreeBV;
+        long totalOpenings;
+        long totalFirstOpening;
+        long rejectedBoards;
+
+        void add(Statistics other) {
+            games += other.games;
+            wins += other.wins;
+            totalThreeBV += other.totalThreeBV;
+            totalOpenings += other.totalOpenings;
+            totalFirstOpening += other.totalFirstOpening;
+            rejectedBoards += other.rejectedBoards;
+        }
+    }
+
+    /**
+     * Per-worker state reused between games.
+     */
+    private static class Worker {
+        final Board board;
+        final SimplePlayer player = new SimplePlayer();
+        final Statistics statistics = new Statistics();
+        final BoardAnalyzer analyzer = new BoardAnalyzer();
+
+        Worker(Configuration configuration) {
+            board = new Board(configuration.rows, configuration.cols, configuration.mines);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final long baseSeed;
+    private final int minThreeBV;
+    private final int maxThreeBV;
+
+    /**
+     * Creates a simulation.
+     *
+     * @param threads  The number of worker threads.
+     * @param baseSeed The seed every game seed is derived from.
+     */
+    public Simulation(int threads, long baseSeed) {
+        this(threads, baseSeed, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a simulation that only plays boards within a 3BV range.
+     *
+     * @param threads    The number of worker threads.
+     * @param baseSeed   The seed every game seed is derived from.
+     * @param minThreeBV The lowest 3BV of a played board.
+     * @param maxThreeBV The highest 3BV of a played board.
+     */
+    public Simulation(int threads, long baseSeed, int minThreeBV, int maxThreeBV) {
+        this.pool = new ForkJoinPool(threads);
+        this.baseSeed = baseSeed;
+        this.minThreeBV = minThreeBV;
+        this.maxThreeBV = maxThreeBV;
+    }
+
+    /**
+     * Plays a number of games of one configuration on all workers.
+     *
+     * @param configuration The board size and number of mines.
+     * @param games         The number of games to play.
+     * @return The merged statistics of all games.
+     */
+    public Statistics run(Configuration configuration, long games) {
+        AtomicLong nextGame = new AtomicLong();
+        List<Future<Statistics>> results = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            results.add(pool.submit(() -> playGames(configuration, games, nextGame)));
+        }
+
+        Statistics total = new Statistics();
+        try {
+            for (Future<Statistics> result : results) {
+                total.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }
+        return total;
+    }
+
+    /**
+     * Plays chunks of games until all games of a run are claimed.
+     *
+     * @param configuration The board size and number of mines.
+     * @param games         The total number of games of the run.
+     * @param nextGame      The index of the next unclaimed game.
+     * @return The statistics of the games played by this worker.
+     */
+    private Statistics playGames(Configuration configuration, long games, AtomicLong nextGame) {
+        Worker worker = new Worker(configuration);
+        long start;
+        while ((start = nextGame.getAndAdd(CHUNK_SIZE)) < games) {
+            long end = Math.min(games, start + CHUNK_SIZE);
+            for (long game = start; game < end; game++) {
+                playGame(worker, game);
+            }
+        }
+        return worker.statistics;
+    }
+
+    /**
+     * Plays a single game. Its seed only depends on the base seed and the game
+     * index, so results do not depend on the number of threads.
+     *
+     * @param worker The worker playing the game.
+     * @param game   The index of the game.
+     */
+    private void playGame(Worker worker, long game) {
+        SplittableRandom random = new SplittableRandom(baseSeed + game);
+        Board board = worker.board;
+        BoardAnalyzer analyzer = worker.analyzer;
+        Statistics statistics = worker.statistics;
+
+        // Draw boards until one falls in the 3BV range, giving up on impossible ranges
+        for (int attempt = 0; ; attempt++) {
+            board.reset();
+            board.placeMines(random.nextLong(), board.getRows() / 2, board.getCols() / 2);
+            analyzer.analyze(board);
+            int threeBV = analyzer.getThreeBV();
+            if (threeBV >= minThreeBV && threeBV <= maxThreeBV) {
+                break;
+            }
+            statistics.rejectedBoards++;
+            if (attempt == MAX_REJECTED_BOARDS) {
+                throw new IllegalStateException("No board with a 3BV between " + minThreeBV + " and "
+                        + maxThreeBV + " in " + MAX_REJECTED_BOARDS + " attempts");
+            }
+        }
+
+        statistics.totalThreeBV += analyzer.getThreeBV();
+        statistics.totalOpenings += analyzer.getOpeningCount();
+        statistics.totalFirstOpening += worker.player.play(board, board.getSeed(), random);
+        statistics.games++;
+        if (board.isWon()) {
+            statistics.wins++;
+        }
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Parses a configuration given as a difficulty name or as ROWSxCOLSxMINES.
+     *
+     * @param argument The command line argument.
+     * @return The parsed configuration.
+     */
+    static Configuration parseConfiguration(String argument) {
+        String[] parts = argument.toLowerCase().split("x");
+        if (parts.length == 3) {
+            return new Configuration(argument, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]));
+        }
+        Difficulty difficulty = Difficulty.valueOf(argument.toUpperCase());
+        return new Configuration(difficulty.name(), difficulty.getRows(), difficulty.getCols(), difficulty.getMines());
+    }
+
+    // Entry point of the batch mode
+    public static void main(String[] args) {
+        long games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = new SplittableRandom().nextLong();
+        int minThreeBV = 0;
+        int maxThreeBV = Integer.MAX_VALUE;
+        List<Configuration> configurations = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--games=")) {
+                games = Long.parseLong(arg.substring("--games=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--min-3bv=")) {
+                minThreeBV = Integer.parseInt(arg.substring("--min-3bv=".length()));
+            } else if (arg.startsWith("--max-3bv=")) {
+                maxThreeBV = Integer.parseInt(arg.substring("--max-3bv=".length()));
+            } else {
+                configurations.add(parseConfiguration(arg));
+            }
+        }
+        if (configurations.isEmpty()) {
+            for (Difficulty difficulty : Difficulty.values()) {
+                configurations.add(parseConfiguration(difficulty.name()));
+            }
+        }
+
+        System.out.printf("Seed %d, %d games per configuration on %d threads%n", seed, games, threads);
+        System.out.printf("%-16s %10s %9s %9s %12s %9s %10s %12s%n",
+                "Configuration", "Games", "Win rate", "Avg 3BV", "Avg opening", "Openings", "Rejected", "Games/s");
+
+        Simulation simulation = new Simulation(threads, seed, minThreeBV, maxThreeBV);
+        try {
+            for (Configuration configuration : configurations) {
+                long startTime = System.nanoTime();
+                Statistics statistics = simulation.run(configuration, games);
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+
+                System.out.printf("%-16s %10d %8.2f%% %9.1f %12.1f %9.1f %10d %12.0f%n",
+                        configuration.name,
+                        statistics.games,
+                        100.0 * statistics.wins / statistics.games,
+                        (double) statistics.totalThreeBV / statistics.games,
+                        (double) statistics.totalFirstOpening / statistics.games,
+                        (double) statistics.totalOpenings / statistics.games,
+                        statistics.rejectedBoards,
+                        statistics.games / seconds);
+            }
+        } finally {
+            simulation.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * Result of solving the visible state of a board: the hidden cells that are
+ * certainly safe or certainly mines, and the mine probability of every hidden
+ * cell that is not flagged.
+ */
+public class Solution {
+    private final int cols;
+    private final boolean consistent;
+    private final boolean exact;
+
+    // Hidden cells next to a revealed number, sorted by flat index, and their mine probabilities
+    private final int[] frontier;
+    private final double[] frontierProbabilities;
+
+    // Mine probability shared by every hidden cell that touches no revealed number
+    private final double interiorProbability;
+
+    // Sorted flat indices of the certainly safe cells and the certain mines
+    private final int[] safeCells;
+    private final int[] mineCells;
+
+    /**
+     * Creates a solution.
+     *
+     * @param cols                  The number of columns of the board.
+     * @param consistent            False if the numbers and flags contradict each other.
+     * @param exact                 False if some probabilities were approximated.
+     * @param frontier              The sorted indices of the cells next to revealed numbers.
+     * @param frontierProbabilities The mine probabilities of the frontier cells.
+     * @param interiorProbability   The mine probability of every other hidden cell.
+     * @param safeCells             The sorted indices of the certainly safe cells.
+     * @param mineCells             The sorted indices of the certain mines.
+     */
+    Solution(int cols, boolean consistent, boolean exact, int[] frontier, double[] frontierProbabilities,
+             double interiorProbability, int[] safeCells, int[] mineCells) {
+        this.cols = cols;
+        this.consistent = consistent;
+        this.exact = exact;
+        this.frontier = frontier;
+        this.frontierProbabilities = frontierProbabilities;
+        this.interiorProbability = interiorProbability;
+        this.safeCells = safeCells;
+        this.mineCells = mineCells;
+    }
+
+    /**
+     * Creates the solution of a board whose numbers and flags contradict each
+     * other, which has no certain cells and unknown probabilities.
+     *
+     * @param cols The number of columns of the board.
+     * @return The inconsistent solution.
+     */
+    static Solution inconsistent(int cols) {
+        return new Solution(cols, false, false, new int[0], new double[0], Double.NaN, new int[0], new int[0]);
+    }
+
+    /**
+     * Checks if the revealed numbers and placed flags allow at least one layout.
+     * Wrong flags can make a board inconsistent, in which case nothing is known.
+     *
+     * @return True if the visible state is consistent.
+     */
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    /**
+     * Checks if every probability is exact. Frontier regions too large to
+     * enumerate within the solver's budget are estimated instead.
+     *
+     * @return True if no probability was approximated.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Gets the flat indices (row * cols + col) of the hidden cells that cannot
+     * hold a mine, in ascending order.
+     *
+     * @return The certainly safe cells.
+     */
+    public int[] getSafeCells() {
+        return safeCells;
+    }
+
+    /**
+     * Gets the flat indices (row * cols + col) of the hidden, unflagged cells that
+     * must hold a mine, in ascending order.
+     *
+     * @return The certain mines.
+     */
+    public int[] getMineCells() {
+        return mineCells;
+    }
+
+    /**
+     * Gets the flat indices of the hidden cells next to a revealed number, in
+     * ascending order.
+     *
+     * @return The frontier cells.
+     */
+    public int[] getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * Gets the mine probability shared by all hidden cells away from the frontier.
+     *
+     * @return The interior mine probability.
+     */
+    public double getInteriorProbability() {
+        return interiorProbability;
+    }
+
+    /**
+     * Gets the probability that a hidden, unflagged cell holds a mine.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The mine probability of the cell.
+     */
+    public double getMineProbability(int row, int col) {
+        int position = Arrays.binarySearch(frontier, row * cols + col);
+        return position >= 0 ? frontierProbabilities[position] : interiorProbability;
+    }
+}
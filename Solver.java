@@ -0,0 +1,984 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Solves the visible state of a board: the revealed numbers and the placed
+ * flags, never the hidden mines. Flags are trusted to be correct.
+ *
+ * Every revealed number gives a constraint on its hidden neighbours. Simple
+ * constraint propagation (a number that is already satisfied or that needs all
+ * of its hidden neighbours, and the subset rule between overlapping numbers)
+ * settles the easy cells first. The cells that are left are split into
+ * independent connected components that are enumerated in parallel on a
+ * fork-join pool, counting the solutions of each component by number of mines.
+ * The components are then combined with the number of ways to place the
+ * remaining mines in the cells away from the frontier, which gives an exact
+ * mine probability for every hidden cell.
+ *
+ * Components that are too large to enumerate within a step budget are
+ * estimated from their constraints, and when there are too many components to
+ * combine exactly they are weighted independently; the solution is then
+ * flagged as not exact instead of taking exponential time.
+ */
+public class Solver {
+    // Search steps allowed per component before it is estimated instead of enumerated,
+    // about a millisecond and a half, which keeps a solve well within a frame
+    private static final int MAX_ENUMERATION_STEPS = 50_000;
+
+    // Components with more cells than this are estimated without enumerating them
+    private static final int MAX_ENUMERATED_COMPONENT_SIZE = 64;
+
+    // Components with at least this many cells are enumerated on the pool
+    private static final int PARALLEL_COMPONENT_SIZE = 12;
+
+    // Largest number of multiply-adds spent combining the components exactly
+    private static final long MAX_EXACT_WEIGHTING_STEPS = 50_000_000L;
+
+    // Propagation state of a frontier cell
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1;
+    private static final byte MINE = 2;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a solver that enumerates components on the common fork-join pool.
+     */
+    public Solver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a solver that enumerates components on the given pool.
+     *
+     * @param pool The pool running the component enumerations.
+     */
+    public Solver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Solves the visible state of a board.
+     *
+     * @param board The board to solve.
+     * @return The certain cells and mine probabilities of the board.
+     */
+    public Solution solve(Board board) {
+        Problem problem = new Problem(board);
+        if (!problem.propagate()) {
+            return Solution.inconsistent(board.getCols());
+        }
+        return problem.weigh(enumerateComponents(problem.components()));
+    }
+
+    /**
+     * Enumerates all components, the larger ones in parallel on the pool.
+     *
+     * @param components The independent components of the frontier.
+     * @return The solution counts of every component, in the same order.
+     */
+    private ComponentCounts[] enumerateComponents(List<Component> components) {
+        ComponentCounts[] counts = new ComponentCounts[components.size()];
+        List<ForkJoinTask<ComponentCounts>> tasks = new ArrayList<>();
+        boolean parallel = components.size() > 1;
+        for (Component component : components) {
+            if (parallel && component.size() >= PARALLEL_COMPONENT_SIZE) {
+                tasks.add(pool.submit(component::enumerate));
+            } else {
+                tasks.add(null);
+            }
+        }
+
+        // Small components are cheaper to enumerate here than to hand off
+        for (int i = 0; i < counts.length; i++) {
+            if (tasks.get(i) == null) {
+                counts[i] = components.get(i).enumerate();
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (tasks.get(i) != null) {
+                counts[i] = tasks.get(i).join();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The constraints of one board state and the propagation and weighting steps
+     * applied to them. Frontier cells are numbered in order of their flat index.
+     */
+    private static class Problem {
+        final int cols;
+        final int cellCount;
+        final int totalMines;
+        final int flagsPlaced;
+
+        // Flat cell index of every frontier variable, in ascending order
+        final int[] variableCells;
+        final byte[] state;
+
+        // Constraints in compressed form: the variables of constraint c are
+        // constraintVariables[constraintStart[c] .. constraintStart[c + 1])
+        final int[] constraintStart;
+        final int[] constraintVariables;
+        final int[] constraintTarget;
+
+        // Constraints of every variable, in the same compressed form
+        final int[] variableConstraintStart;
+        final int[] variableConstraints;
+
+        // Hidden unflagged cells that touch no revealed number
+        final int interiorCount;
+        final int[] interiorCells;
+
+        boolean consistent = true;
+
+        Problem(Board board) {
+            int rows = board.getRows();
+            cols = board.getCols();
+            cellCount = rows * cols;
+            totalMines = board.getMines();
+            flagsPlaced = board.getFlagsPlaced();
+
+            // Number the hidden cells next to a revealed number
+            int[] variableOf = new int[cellCount];
+            IntList variables = new IntList();
+            IntList interior = new IntList();
+            for (int index = 0; index < cellCount; index++) {
+                int row = index / cols;
+                int col = index % cols;
+                variableOf[index] = -1;
+                if (board.isRevealed(row, col) || board.isFlagged(row, col)) {
+                    continue;
+                }
+                if (touchesRevealedNumber(board, row, col)) {
+                    variableOf[index] = variables.size();
+                    variables.add(index);
+                } else {
+                    interior.add(index);
+                }
+            }
+            variableCells = variables.toArray();
+            interiorCells = interior.toArray();
+            interiorCount = interiorCells.length;
+            state = new byte[variableCells.length];
+
+            // Every revealed number constrains its hidden, unflagged neighbours
+            IntList starts = new IntList();
+            IntList members = new IntList();
+            IntList targets = new IntList();
+            for (int index = 0; index < cellCount; index++) {
+                int row = index / cols;
+                int col = index % cols;
+                if (!board.isRevealed(row, col) || board.getAdjacentMines(row, col) == 0) {
+                    continue;
+                }
+                int start = members.size();
+                int flags = 0;
+                for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                    for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                        if (board.isFlagged(r, c)) {
+                            flags++;
+                        } else if (variableOf[r * cols + c] >= 0) {
+                            members.add(variableOf[r * cols + c]);
+                        }
+                    }
+                }
+                int target = board.getAdjacentMines(row, col) - flags;
+                if (target < 0 || target > members.size() - start) {
+                    consistent = false;
+                }
+                if (members.size() > start) {
+                    starts.add(start);
+                    targets.add(target);
+                }
+            }
+            starts.add(members.size());
+            constraintStart = starts.toArray();
+            constraintVariables = members.toArray();
+            constraintTarget = targets.toArray();
+
+            // Invert the constraints to find the constraints of each variable
+            variableConstraintStart = new int[variableCells.length + 1];
+            for (int variable : constraintVariables) {
+                variableConstraintStart[variable + 1]++;
+            }
+            for (int v = 0; v < variableCells.length; v++) {
+                variableConstraintStart[v + 1] += variableConstraintStart[v];
+            }
+            variableConstraints = new int[constraintVariables.length];
+            int[] fill = Arrays.copyOf(variableConstraintStart, variableCells.length);
+            for (int c = 0; c < constraintTarget.length; c++) {
+                for (int i = constraintStart[c]; i < constraintStart[c + 1]; i++) {
+                    variableConstraints[fill[constraintVariables[i]]++] = c;
+                }
+            }
+        }
+
+        /**
+         * Checks if a hidden cell is next to a revealed number.
+         */
+        private static boolean touchesRevealedNumber(Board board, int row, int col) {
+            for (int r = row - 1; r <= row + 1; r++) {
+                for (int c = col - 1; c <= col + 1; c++) {
+                    if (board.isInBounds(r, c) && board.isRevealed(r, c) && board.getAdjacentMines(r, c) > 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Settles the cells that follow from single numbers and from pairs of
+         * overlapping numbers, until nothing changes.
+         *
+         * @return False if the constraints contradict each other.
+         */
+        boolean propagate() {
+            int constraints = constraintTarget.length;
+            // Ring buffer one longer than the constraints, as each is queued at most once
+            int[] queue = new int[constraints + 1];
+            boolean[] queued = new boolean[constraints];
+            // Pair (a, b) was tried in this round if seen[b] holds the stamp of a
+            int[] seen = new int[constraints];
+            int stamp = 0;
+
+            boolean changed = true;
+            while (changed && consistent) {
+                // Single-number rule, driven by a work queue of touched constraints
+                int head = 0;
+                int tail = 0;
+                for (int c = 0; c < constraints; c++) {
+                    queue[tail++] = c;
+                    queued[c] = true;
+                }
+                while (head != tail && consistent) {
+                    int c = queue[head];
+                    head = (head + 1) % queue.length;
+                    queued[c] = false;
+
+                    int unknown = 0;
+                    int mines = 0;
+                    for (int i = constraintStart[c]; i < constraintStart[c + 1]; i++) {
+                        byte s = state[constraintVariables[i]];
+                        unknown += s == UNKNOWN ? 1 : 0;
+                        mines += s == MINE ? 1 : 0;
+                    }
+                    int remaining = constraintTarget[c] - mines;
+                    if (remaining < 0 || remaining > unknown) {
+                        consistent = false;
+                    } else if (unknown > 0 && (remaining == 0 || remaining == unknown)) {
+                        byte value = remaining == 0 ? SAFE : MINE;
+                        for (int i = constraintStart[c]; i < constraintStart[c + 1]; i++) {
+                            int variable = constraintVariables[i];
+                            if (state[variable] == UNKNOWN) {
+                                state[variable] = value;
+                                for (int j = variableConstraintStart[variable]; j < variableConstraintStart[variable + 1]; j++) {
+                                    int touched = variableConstraints[j];
+                                    if (!queued[touched]) {
+                                        queued[touched] = true;
+                                        queue[tail] = touched;
+                                        tail = (tail + 1) % queue.length;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+
+                // Subset rule between constraints sharing a variable
+                changed = false;
+                for (int a = 0; a < constraints && consistent; a++) {
+                    stamp++;
+                    for (int i = constraintStart[a]; i < constraintStart[a + 1]; i++) {
+                        int variable = constraintVariables[i];
+                        for (int j = variableConstraintStart[variable]; j < variableConstraintStart[variable + 1]; j++) {
+                            int b = variableConstraints[j];
+                            if (b != a && seen[b] != stamp) {
+                                seen[b] = stamp;
+                                changed |= applySubsetRule(a, b);
+                            }
+                        }
+                    }
+                }
+            }
+            return consistent;
+        }
+
+        /**
+         * If the unknown cells of constraint a are all part of constraint b, the
+         * other unknown cells of b hold exactly the difference of their remaining
+         * mines, which settles them when that is none or all of them.
+         *
+         * @return True if any cell was settled.
+         */
+        private boolean applySubsetRule(int a, int b) {
+            int remainingA = constraintTarget[a];
+            int unknownA = 0;
+            for (int i = constraintStart[a]; i < constraintStart[a + 1]; i++) {
+                int variable = constraintVariables[i];
+                if (state[variable] == MINE) {
+                    remainingA--;
+                } else if (state[variable] == UNKNOWN) {
+                    unknownA++;
+                    if (!contains(b, variable)) {
+                        return false;
+                    }
+                }
+            }
+            if (unknownA == 0) {
+                return false;
+            }
+
+            int remainingB = constraintTarget[b];
+            int others = 0;
+            for (int i = constraintStart[b]; i < constraintStart[b + 1]; i++) {
+                int variable = constraintVariables[i];
+                if (state[variable] == MINE) {
+                    remainingB--;
+                } else if (state[variable] == UNKNOWN && !contains(a, variable)) {
+                    others++;
+                }
+            }
+            int difference = remainingB - remainingA;
+            if (others == 0 || (difference != 0 && difference != others)) {
+                return false;
+            }
+
+            byte value = difference == 0 ? SAFE : MINE;
+            for (int i = constraintStart[b]; i < constraintStart[b + 1]; i++) {
+                int variable = constraintVariables[i];
+                if (state[variable] == UNKNOWN && !contains(a, variable)) {
+                    state[variable] = value;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Checks if a constraint involves a variable.
+         */
+        private boolean contains(int constraint, int variable) {
+            for (int i = constraintStart[constraint]; i < constraintStart[constraint + 1]; i++) {
+                if (constraintVariables[i] == variable) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Splits the unsettled variables into groups that share no constraint,
+         * using union-find over the constraints.
+         *
+         * @return The independent components.
+         */
+        List<Component> components() {
+            int[] parent = new int[variableCells.length];
+            for (int v = 0; v < parent.length; v++) {
+                parent[v] = v;
+            }
+            for (int c = 0; c < constraintTarget.length; c++) {
+                int first = -1;
+                for (int i = constraintStart[c]; i < constraintStart[c + 1]; i++) {
+                    int variable = constraintVariables[i];
+                    if (state[variable] != UNKNOWN) {
+                        continue;
+                    }
+                    if (first < 0) {
+                        first = variable;
+                    } else {
+                        parent[find(parent, variable)] = find(parent, first);
+                    }
+                }
+            }
+
+            // Give every root a component number and collect its variables
+            int[] componentOf = new int[variableCells.length];
+            Arrays.fill(componentOf, -1);
+            List<IntList> members = new ArrayList<>();
+            for (int v = 0; v < variableCells.length; v++) {
+                if (state[v] != UNKNOWN) {
+                    continue;
+                }
+                int root = find(parent, v);
+                if (componentOf[root] < 0) {
+                    componentOf[root] = members.size();
+                    members.add(new IntList());
+                }
+                members.get(componentOf[root]).add(v);
+            }
+
+            List<Component> components = new ArrayList<>();
+            for (IntList variables : members) {
+                components.add(new Component(this, variables.toArray()));
+            }
+            return components;
+        }
+
+        /**
+         * Finds the root of a variable, halving the path on the way.
+         */
+        private static int find(int[] parent, int v) {
+            while (parent[v] != v) {
+                parent[v] = parent[parent[v]];
+                v = parent[v];
+            }
+            return v;
+        }
+
+        /**
+         * Combines the component counts with the ways to place the remaining mines
+         * in the interior and builds the solution.
+         *
+         * @param counts The solution counts of every component.
+         * @return The solution of the board.
+         */
+        Solution weigh(ComponentCounts[] counts) {
+            // Mines that are neither flagged nor settled by propagation
+            int settledMines = 0;
+            for (byte s : state) {
+                settledMines += s == MINE ? 1 : 0;
+            }
+            int remainingMines = totalMines - flagsPlaced - settledMines;
+            int frontierSize = 0;
+            long exactSteps = 0;
+            boolean exact = true;
+            for (ComponentCounts count : counts) {
+                frontierSize += count.size;
+                exact &= count.exact;
+                exactSteps += (long) count.size * frontierSize;
+            }
+            exactSteps *= counts.length;
+
+            // Relative log weight of t mines in the frontier: log C(interior, remaining - t)
+            int lowest = Math.max(0, remainingMines - interiorCount);
+            int highest = Math.min(frontierSize, remainingMines);
+            if (remainingMines < 0 || lowest > highest) {
+                return Solution.inconsistent(cols);
+            }
+            double[] logWeight = new double[frontierSize + 1];
+            Arrays.fill(logWeight, Double.NEGATIVE_INFINITY);
+            logWeight[lowest] = 0;
+            for (int t = lowest; t < highest; t++) {
+                logWeight[t + 1] = logWeight[t]
+                        + Math.log((double) (remainingMines - t) / (interiorCount - remainingMines + t + 1));
+            }
+
+            double[] probabilities = new double[variableCells.length];
+            double interiorProbability;
+            boolean interiorCertain;
+            if (exactSteps <= MAX_EXACT_WEIGHTING_STEPS) {
+                interiorProbability = weighExactly(counts, logWeight, remainingMines, probabilities);
+                interiorCertain = exact;
+            } else {
+                interiorProbability = weighIndependently(counts, remainingMines, probabilities);
+                interiorCertain = false;
+                exact = false;
+            }
+            if (Double.isNaN(interiorProbability)) {
+                return Solution.inconsistent(cols);
+            }
+
+            // Settled cells are certain, enumerated cells are certain at 0 or 1
+            boolean[] certain = new boolean[variableCells.length];
+            for (int v = 0; v < state.length; v++) {
+                if (state[v] != UNKNOWN) {
+                    probabilities[v] = state[v] == MINE ? 1 : 0;
+                    certain[v] = true;
+                }
+            }
+            for (ComponentCounts count : counts) {
+                for (int v : count.variables) {
+                    certain[v] = count.exact;
+                }
+            }
+            IntList safe = new IntList();
+            IntList mines = new IntList();
+            int interior = 0;
+            for (int v = 0; v <= variableCells.length; v++) {
+                // Merge the interior cells in so both lists stay sorted
+                int nextCell = v < variableCells.length ? variableCells[v] : cellCount;
+                while (interiorCertain && interior < interiorCount && interiorCells[interior] < nextCell) {
+                    if (interiorProbability == 0) {
+                        safe.add(interiorCells[interior]);
+                    } else if (interiorProbability == 1) {
+                        mines.add(interiorCells[interior]);
+                    }
+                    interior++;
+                }
+                if (v == variableCells.length) {
+                    break;
+                }
+                if (certain[v] && probabilities[v] == 0) {
+                    safe.add(variableCells[v]);
+                } else if (certain[v] && probabilities[v] == 1) {
+                    mines.add(variableCells[v]);
+                }
+            }
+            return new Solution(cols, true, exact, variableCells, probabilities, interiorProbability,
+                    safe.toArray(), mines.toArray());
+        }
+
+        /**
+         * Weighs every combination of component mine counts with the number of
+         * interior layouts. For each component the distribution of mines in all
+         * other components comes from prefix and suffix convolutions.
+         *
+         * @return The interior mine probability, or NaN if no layout fits.
+         */
+        private double weighExactly(ComponentCounts[] counts, double[] logWeight, int remainingMines,
+                                    double[] probabilities) {
+            int n = counts.length;
+            double[][] prefix = new double[n + 1][];
+            double[][] suffix = new double[n + 1][];
+            prefix[0] = new double[] {1};
+            suffix[n] = new double[] {1};
+            for (int i = 0; i < n; i++) {
+                prefix[i + 1] = convolve(prefix[i], counts[i].counts);
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                suffix[i] = convolve(counts[i].counts, suffix[i + 1]);
+            }
+
+            double[] weight = relativeWeights(logWeight);
+            double[] all = prefix[n];
+            double total = 0;
+            double interiorMines = 0;
+            for (int t = 0; t < all.length; t++) {
+                total += all[t] * weight[t];
+                interiorMines += all[t] * weight[t] * (remainingMines - t);
+            }
+            if (!(total > 0)) {
+                return Double.NaN;
+            }
+
+            for (int i = 0; i < n; i++) {
+                ComponentCounts component = counts[i];
+                double[] others = convolve(prefix[i], suffix[i + 1]);
+
+                // Weight of the rest of the board when this component holds k mines
+                double[] rest = new double[component.counts.length];
+                for (int k = 0; k < rest.length; k++) {
+                    for (int t = 0; t < others.length; t++) {
+                        rest[k] += others[t] * weight[k + t];
+                    }
+                }
+                component.assignProbabilities(rest, probabilities);
+            }
+            return interiorCount == 0 ? 0 : interiorMines / total / interiorCount;
+        }
+
+        /**
+         * Weighs the components independently, approximating the interior weight
+         * by its ratio between one and one fewer mine at the expected total.
+         *
+         * @return The interior mine probability, or NaN if no layout fits.
+         */
+        private double weighIndependently(ComponentCounts[] counts, int remainingMines, double[] probabilities) {
+            double expected = 0;
+            for (ComponentCounts component : counts) {
+                expected += component.mean(0);
+            }
+            double logRatio = 0;
+            for (int iteration = 0; iteration < 3 && interiorCount > 0; iteration++) {
+                double free = Math.max(0.5, remainingMines - expected);
+                logRatio = Math.log(free / (interiorCount - free + 1));
+                expected = 0;
+                for (ComponentCounts component : counts) {
+                    expected += component.mean(logRatio);
+                }
+            }
+
+            for (ComponentCounts component : counts) {
+                double[] rest = new double[component.counts.length];
+                for (int k = 0; k < rest.length; k++) {
+                    rest[k] = Math.exp(k * logRatio - (rest.length - 1) * Math.max(0, logRatio));
+                }
+                component.assignProbabilities(rest, probabilities);
+            }
+            if (interiorCount == 0) {
+                return 0;
+            }
+            return Math.max(0, Math.min(1, (remainingMines - expected) / interiorCount));
+        }
+
+        /**
+         * Converts log weights to weights relative to the largest one.
+         */
+        private static double[] relativeWeights(double[] logWeight) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (double w : logWeight) {
+                max = Math.max(max, w);
+            }
+            double[] weight = new double[logWeight.length];
+            for (int t = 0; t < weight.length; t++) {
+                weight[t] = Math.exp(logWeight[t] - max);
+            }
+            return weight;
+        }
+
+        /**
+         * Convolves two mine count distributions and rescales the result so its
+         * largest entry is one. Only ratios matter, so the scale is free.
+         */
+        private static double[] convolve(double[] a, double[] b) {
+            double[] result = new double[a.length + b.length - 1];
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == 0) {
+                    continue;
+                }
+                for (int j = 0; j < b.length; j++) {
+                    result[i + j] += a[i] * b[j];
+                }
+            }
+            double max = 0;
+            for (double value : result) {
+                max = Math.max(max, value);
+            }
+            if (max > 0) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] /= max;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A group of unsettled variables that shares no constraint with any other
+     * group, with the constraints on it in local numbering.
+     */
+    private static class Component {
+        final int[] variables;
+        final int[][] constraintMembers;
+        final int[] constraintRemaining;
+        final int[][] variableConstraints;
+
+        Component(Problem problem, int[] variables) {
+            this.variables = variables;
+            int[] localIndex = new int[problem.variableCells.length];
+            Arrays.fill(localIndex, -1);
+            for (int i = 0; i < variables.length; i++) {
+                localIndex[variables[i]] = i;
+            }
+
+            // Collect the constraints touching the component, without settled variables
+            List<int[]> members = new ArrayList<>();
+            IntList remaining = new IntList();
+            boolean[] taken = new boolean[problem.constraintTarget.length];
+            for (int variable : variables) {
+                for (int j = problem.variableConstraintStart[variable]; j < problem.variableConstraintStart[variable + 1]; j++) {
+                    int c = problem.variableConstraints[j];
+                    if (taken[c]) {
+                        continue;
+                    }
+                    taken[c] = true;
+                    IntList local = new IntList();
+                    int target = problem.constraintTarget[c];
+                    for (int i = problem.constraintStart[c]; i < problem.constraintStart[c + 1]; i++) {
+                        int member = problem.constraintVariables[i];
+                        if (problem.state[member] == MINE) {
+                            target--;
+                        } else if (problem.state[member] == UNKNOWN) {
+                            local.add(localIndex[member]);
+                        }
+                    }
+                    members.add(local.toArray());
+                    remaining.add(target);
+                }
+            }
+            constraintMembers = members.toArray(new int[0][]);
+            constraintRemaining = remaining.toArray();
+
+            int[] degree = new int[variables.length];
+            for (int[] constraint : constraintMembers) {
+                for (int v : constraint) {
+                    degree[v]++;
+                }
+            }
+            variableConstraints = new int[variables.length][];
+            for (int v = 0; v < variables.length; v++) {
+                variableConstraints[v] = new int[degree[v]];
+                degree[v] = 0;
+            }
+            for (int c = 0; c < constraintMembers.length; c++) {
+                for (int v : constraintMembers[c]) {
+                    variableConstraints[v][degree[v]++] = c;
+                }
+            }
+        }
+
+        int size() {
+            return variables.length;
+        }
+
+        /**
+         * Counts the solutions of the component by number of mines, or estimates
+         * them when the component is too large to enumerate.
+         *
+         * @return The solution counts of the component.
+         */
+        ComponentCounts enumerate() {
+            if (variables.length <= MAX_ENUMERATED_COMPONENT_SIZE) {
+                Enumeration enumeration = new Enumeration(this);
+                if (enumeration.run()) {
+                    return enumeration.result();
+                }
+            }
+            return estimate();
+        }
+
+        /**
+         * Estimates every cell's probability as the average share of remaining
+         * mines of its constraints, and puts all weight on the rounded total.
+         *
+         * @return The estimated counts of the component.
+         */
+        ComponentCounts estimate() {
+            double[] probability = new double[variables.length];
+            double expected = 0;
+            for (int v = 0; v < variables.length; v++) {
+                double sum = 0;
+                for (int c : variableConstraints[v]) {
+                    sum += (double) constraintRemaining[c] / constraintMembers[c].length;
+                }
+                probability[v] = sum / variableConstraints[v].length;
+                expected += probability[v];
+            }
+            double[] counts = new double[variables.length + 1];
+            counts[(int) Math.round(expected)] = 1;
+            return new ComponentCounts(variables, counts, null, probability);
+        }
+    }
+
+    /**
+     * Depth-first enumeration of the mine layouts of one component, pruning any
+     * branch in which a constraint can no longer be met.
+     */
+    private static class Enumeration {
+        final Component component;
+        final int n;
+        final int[] order;
+        final int[] assignedMines;
+        final int[] unassigned;
+        // Variables holding a mine on the current branch, the first `mines` entries
+        final int[] mineStack;
+        final double[] counts;
+        final double[][] cellCounts;
+        int steps;
+
+        Enumeration(Component component) {
+            this.component = component;
+            this.n = component.variables.length;
+            this.order = searchOrder(component);
+            this.assignedMines = new int[component.constraintMembers.length];
+            this.unassigned = new int[component.constraintMembers.length];
+            for (int c = 0; c < unassigned.length; c++) {
+                unassigned[c] = component.constraintMembers[c].length;
+            }
+            this.mineStack = new int[n];
+            this.counts = new double[n + 1];
+            this.cellCounts = new double[n][n + 1];
+        }
+
+        /**
+         * Orders the variables breadth-first through their constraints, so that
+         * constraints are completed early and failing branches are cut short.
+         */
+        private static int[] searchOrder(Component component) {
+            int n = component.variables.length;
+            int[] order = new int[n];
+            boolean[] visited = new boolean[n];
+            int head = 0;
+            int tail = 0;
+            for (int start = 0; start < n; start++) {
+                if (visited[start]) {
+                    continue;
+                }
+                visited[start] = true;
+                order[tail++] = start;
+                while (head < tail) {
+                    int v = order[head++];
+                    for (int c : component.variableConstraints[v]) {
+                        for (int neighbour : component.constraintMembers[c]) {
+                            if (!visited[neighbour]) {
+                                visited[neighbour] = true;
+                                order[tail++] = neighbour;
+                            }
+                        }
+                    }
+                }
+            }
+            return order;
+        }
+
+        /**
+         * Runs the enumeration.
+         *
+         * @return False if the step budget ran out.
+         */
+        boolean run() {
+            return search(0, 0);
+        }
+
+        private boolean search(int depth, int mines) {
+            if (++steps > MAX_ENUMERATION_STEPS) {
+                return false;
+            }
+            if (depth == n) {
+                counts[mines]++;
+                for (int i = 0; i < mines; i++) {
+                    cellCounts[mineStack[i]][mines]++;
+                }
+                return true;
+            }
+
+            int variable = order[depth];
+            for (byte candidate = 0; candidate <= 1; candidate++) {
+                if (assign(variable, candidate)) {
+                    mineStack[mines] = variable;
+                    if (!search(depth + 1, mines + candidate)) {
+                        return false;
+                    }
+                }
+                unassign(variable, candidate);
+            }
+            return true;
+        }
+
+        /**
+         * Assigns a value to a variable and checks its constraints. The caller
+         * always undoes the assignment with {@link #unassign}.
+         */
+        private boolean assign(int variable, int candidate) {
+            boolean feasible = true;
+            for (int c : component.variableConstraints[variable]) {
+                unassigned[c]--;
+                assignedMines[c] += candidate;
+                int remaining = component.constraintRemaining[c];
+                if (assignedMines[c] > remaining || assignedMines[c] + unassigned[c] < remaining) {
+                    feasible = false;
+                }
+            }
+            return feasible;
+        }
+
+        private void unassign(int variable, int candidate) {
+            for (int c : component.variableConstraints[variable]) {
+                unassigned[c]++;
+                assignedMines[c] -= candidate;
+            }
+        }
+
+        ComponentCounts result() {
+            return new ComponentCounts(component.variables, counts, cellCounts, null);
+        }
+    }
+
+    /**
+     * Solution counts of one component by number of mines: exact counts with the
+     * per-cell mine counts, or an estimate with per-cell probabilities.
+     */
+    private static class ComponentCounts {
+        final int[] variables;
+        final int size;
+        final double[] counts;
+        final double[][] cellCounts;
+        final double[] estimatedProbabilities;
+        final boolean exact;
+
+        ComponentCounts(int[] variables, double[] counts, double[][] cellCounts, double[] estimatedProbabilities) {
+            this.variables = variables;
+            this.size = variables.length;
+            this.cellCounts = cellCounts;
+            this.estimatedProbabilities = estimatedProbabilities;
+            this.exact = cellCounts != null;
+
+            // Rescale so the largest count is one, the scale cancels out in every ratio
+            double max = 0;
+            for (double count : counts) {
+                max = Math.max(max, count);
+            }
+            this.counts = counts;
+            if (max > 0) {
+                for (int k = 0; k < counts.length; k++) {
+                    counts[k] /= max;
+                }
+                if (cellCounts != null) {
+                    for (double[] cell : cellCounts) {
+                        for (int k = 0; k < cell.length; k++) {
+                            cell[k] /= max;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the mean number of mines when k mines are weighted by exp(k * logRatio).
+         */
+        double mean(double logRatio) {
+            double total = 0;
+            double mines = 0;
+            double shift = (counts.length - 1) * Math.max(0, logRatio);
+            for (int k = 0; k < counts.length; k++) {
+                double w = counts[k] * Math.exp(k * logRatio - shift);
+                total += w;
+                mines += w * k;
+            }
+            return total > 0 ? mines / total : 0;
+        }
+
+        /**
+         * Stores the mine probability of every cell given the weight of the rest
+         * of the board for each number of mines in this component.
+         */
+        void assignProbabilities(double[] rest, double[] probabilities) {
+            if (!exact) {
+                for (int v = 0; v < size; v++) {
+                    probabilities[variables[v]] = estimatedProbabilities[v];
+                }
+                return;
+            }
+            double total = 0;
+            for (int k = 0; k < counts.length; k++) {
+                total += counts[k] * rest[k];
+            }
+            for (int v = 0; v < size; v++) {
+                double mines = 0;
+                for (int k = 0; k < counts.length; k++) {
+                    mines += cellCounts[v][k] * rest[k];
+                }
+                probabilities[variables[v]] = total > 0 ? mines / total : 0;
+            }
+        }
+    }
+
+    /**
+     * Growable list of ints.
+     */
+    private static class IntList {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
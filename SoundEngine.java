@@ -0,0 +1,251 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays the game's sound effects on a dedicated audio thread that mixes them
+ * into a single output line.
+ *
+ * The clips are synthesized once as PCM samples on the audio thread, so
+ * starting the engine never delays the first window. {@link #play} only
+ * increments a counter for the sound, so it never blocks or allocates and can
+ * be called for every mine of an explosion. Once per mix block the audio
+ * thread turns each counter into at most one new voice, louder the more
+ * triggers it stands for, and at most MAX_VOICES voices play at once, the
+ * oldest giving way. However many mines go off in the same frame, the mixer
+ * does a bounded amount of work and rendering and input are never held up.
+ *
+ * Between sounds the audio thread sleeps and the line plays nothing. Without
+ * an audio device the engine stays silent and {@link #play} does nothing.
+ */
+public class SoundEngine implements AutoCloseable {
+    /**
+     * The sound effects of the game.
+     */
+    public enum Sound {
+        // A mine going off
+        EXPLOSION,
+        // The time limit was reached
+        TIME_UP
+    }
+
+    // Output format: 44.1 kHz, 16-bit signed, mono, little endian
+    private static final float SAMPLE_RATE = 44_100;
+    private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+
+    // Samples mixed at a time, about 6 ms, and the line buffer of four blocks
+    private static final int BLOCK_SAMPLES = 256;
+    private static final int LINE_BUFFER_BYTES = 4 * BLOCK_SAMPLES * 2;
+
+    // Most voices playing at once
+    private static final int MAX_VOICES = 8;
+
+    // Loudest voice, reached when many triggers of a sound fall in the same block
+    private static final float MAX_VOICE_GAIN = 2.5f;
+
+    // Scale of the mixed signal before it is clipped to 16 bits
+    private static final float MASTER_GAIN = 0.4f;
+
+    // Triggers of each sound since the last mix block
+    private final AtomicIntegerArray pending = new AtomicIntegerArray(Sound.values().length);
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Owned by the audio thread: the clips, and the voices as clip, position and gain
+    private float[][] clips;
+    private final int[] voiceClips = new int[MAX_VOICES];
+    private final int[] voicePositions = new int[MAX_VOICES];
+    private final float[] voiceGains = new float[MAX_VOICES];
+    private final long[] voiceStarts = new long[MAX_VOICES];
+    private int voiceCount;
+    private long blocksMixed;
+
+    /**
+     * Starts the audio thread, which opens the output line and prepares the clips.
+     */
+    public SoundEngine() {
+        thread = new Thread(this::run, "sound");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Plays a sound as soon as the next mix block. Never blocks; triggers of the
+     * same sound within one block are played together as one louder voice.
+     *
+     * @param sound The sound to play.
+     */
+    public void play(Sound sound) {
+        if (running) {
+            // Only the first trigger of a block needs to wake the audio thread
+            if (pending.getAndIncrement(sound.ordinal()) == 0) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Stops the audio thread and closes the output line.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Body of the audio thread: mixes the voices block by block into the line,
+     * whose blocking write paces the loop. With nothing to play the thread
+     * sleeps until the next trigger instead of writing silence.
+     */
+    private void run() {
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, LINE_BUFFER_BYTES);
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("Playing without sound: " + e.getMessage());
+            running = false;
+            return;
+        }
+
+        clips = new float[Sound.values().length][];
+        clips[Sound.EXPLOSION.ordinal()] = synthesizeExplosion();
+        clips[Sound.TIME_UP.ordinal()] = synthesizeTimeUp();
+
+        float[] mix = new float[BLOCK_SAMPLES];
+        byte[] output = new byte[BLOCK_SAMPLES * 2];
+        line.start();
+        try {
+            while (running) {
+                startPendingVoices();
+                if (voiceCount == 0) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                mixBlock(mix);
+                for (int i = 0; i < BLOCK_SAMPLES; i++) {
+                    int sample = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE,
+                            mix[i] * MASTER_GAIN * Short.MAX_VALUE));
+                    output[2 * i] = (byte) sample;
+                    output[2 * i + 1] = (byte) (sample >> 8);
+                }
+                line.write(output, 0, output.length);
+                blocksMixed++;
+            }
+        } finally {
+            line.stop();
+            line.close();
+        }
+    }
+
+    /**
+     * Turns the triggers since the last block into voices, one per sound.
+     */
+    private void startPendingVoices() {
+        for (int clip = 0; clip < clips.length; clip++) {
+            int triggers = pending.getAndSet(clip, 0);
+            if (triggers == 0) {
+                continue;
+            }
+
+            // Many mines at once sound louder, not many times as loud
+            float gain = Math.min(MAX_VOICE_GAIN, 1 + (float) Math.log(triggers) / 2);
+            int voice = voiceCount < MAX_VOICES ? voiceCount++ : oldestVoice();
+            voiceClips[voice] = clip;
+            voicePositions[voice] = 0;
+            voiceGains[voice] = gain;
+            voiceStarts[voice] = blocksMixed;
+        }
+    }
+
+    /**
+     * Finds the voice that started first, to make room for a new one.
+     */
+    private int oldestVoice() {
+        int oldest = 0;
+        for (int voice = 1; voice < voiceCount; voice++) {
+            if (voiceStarts[voice] < voiceStarts[oldest]) {
+                oldest = voice;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Adds up one block of every voice and drops the voices that have ended.
+     */
+    private void mixBlock(float[] mix) {
+        Arrays.fill(mix, 0);
+        for (int voice = 0; voice < voiceCount; ) {
+            float[] clip = clips[voiceClips[voice]];
+            int position = voicePositions[voice];
+            int length = Math.min(BLOCK_SAMPLES, clip.length - position);
+            float gain = voiceGains[voice];
+            for (int i = 0; i < length; i++) {
+                mix[i] += clip[position + i] * gain;
+            }
+            voicePositions[voice] = position + length;
+
+            if (voicePositions[voice] == clip.length) {
+                // Move the last voice into the slot of the finished one
+                voiceCount--;
+                voiceClips[voice] = voiceClips[voiceCount];
+                voicePositions[voice] = voicePositions[voiceCount];
+                voiceGains[voice] = voiceGains[voiceCount];
+                voiceStarts[voice] = voiceStarts[voiceCount];
+            } else {
+                voice++;
+            }
+        }
+    }
+
+    /**
+     * Synthesizes an explosion: a burst of noise that darkens as it fades, over
+     * a low thump dropping in pitch.
+     */
+    private static float[] synthesizeExplosion() {
+        int length = (int) (SAMPLE_RATE * 0.7);
+        float[] clip = new float[length];
+        SplittableRandom random = new SplittableRandom(1);
+        float filtered = 0;
+        double phase = 0;
+        for (int i = 0; i < length; i++) {
+            double t = i / SAMPLE_RATE;
+            double envelope = Math.min(1, t / 0.004) * Math.exp(-t * 7);
+
+            // One-pole low-pass over white noise, closing as the sound fades
+            float cutoff = (float) (0.5 * Math.exp(-t * 5) + 0.02);
+            filtered += cutoff * ((float) random.nextDouble(-1, 1) - filtered);
+
+            phase += 2 * Math.PI * (70 * Math.exp(-t * 4) + 30) / SAMPLE_RATE;
+            double thump = Math.sin(phase) * Math.exp(-t * 10);
+            clip[i] = (float) (envelope * (0.7 * filtered + 0.6 * thump));
+        }
+        return clip;
+    }
+
+    /**
+     * Synthesizes two short beeps with soft edges.
+     */
+    private static float[] synthesizeTimeUp() {
+        int beep = (int) (SAMPLE_RATE * 0.15);
+        int gap = (int) (SAMPLE_RATE * 0.08);
+        int fade = (int) (SAMPLE_RATE * 0.005);
+        float[] clip = new float[2 * beep + gap];
+        for (int start : new int[] {0, beep + gap}) {
+            for (int i = 0; i < beep; i++) {
+                double edge = Math.min(1, Math.min(i, beep - 1 - i) / (double) fade);
+                clip[start + i] = (float) (0.5 * edge * Math.sin(2 * Math.PI * 880 * i / SAMPLE_RATE));
+            }
+        }
+        return clip;
+    }
+}
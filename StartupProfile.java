@@ -0,0 +1,95 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+/**
+ * Timeline of the game's startup, printed with the --startup-profile argument
+ * and read by the scripts in the startup directory.
+ *
+ * Marking a phase only reads System.nanoTime, so the phases are always marked
+ * and only printed when asked for. The marks are turned into milliseconds
+ * since the JVM started with the JVM uptime read when the summary is made, so
+ * the management classes are only loaded after everything that is measured.
+ */
+public final class StartupProfile {
+    // Set once at startup, before the window is shown
+    private static boolean enabled;
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> nanos = new ArrayList<>();
+
+    private StartupProfile() {
+    }
+
+    /**
+     * Turns on printing the startup timeline.
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Checks whether the startup timeline is printed.
+     *
+     * @return True with the --startup-profile argument.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the end of a startup phase. May be called from any thread.
+     *
+     * @param phase The name of the phase.
+     */
+    public static synchronized void mark(String phase) {
+        nanos.add(System.nanoTime());
+        phases.add(phase);
+    }
+
+    /**
+     * Marks a phase once the next pulse has laid out the scene, right before the
+     * frame is rendered.
+     *
+     * @param scene The scene about to be shown.
+     * @param phase The name of the phase.
+     * @param then  What to do after the mark, or null.
+     */
+    public static void markNextPulse(Scene scene, String phase, Runnable then) {
+        scene.addPostLayoutPulseListener(new Runnable() {
+            private boolean marked;
+
+            @Override
+            public void run() {
+                if (marked) {
+                    return;
+                }
+                marked = true;
+                mark(phase);
+                // Listeners are removed after the pulse has run them all
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                if (then != null) {
+                    then.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Formats the phases marked so far, one line each.
+     *
+     * @return The startup timeline in milliseconds since the JVM started.
+     */
+    public static synchronized String summary() {
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long now = System.nanoTime();
+        StringBuilder summary = new StringBuilder("Startup, ms since JVM start:").append(System.lineSeparator());
+        for (int i = 0; i < phases.size(); i++) {
+            double millis = uptimeMillis - (now - nanos.get(i)) / 1e6;
+            summary.append(String.format("  %-24s %8.1f%n", phases.get(i), millis));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,82 @@
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+/**
+ * Small window showing the {@link GameMetrics} while the game is played,
+ * opened with the --stats argument.
+ *
+ * It also measures the frame interval with an AnimationTimer. Such a timer
+ * makes JavaFX pulse on every frame, so the view only exists while the metrics
+ * are on and the game paints on demand otherwise.
+ */
+public class StatsView {
+    // How often the shown numbers are refreshed
+    private static final Duration REFRESH_INTERVAL = Duration.seconds(1);
+
+    private final Stage stage = new Stage(StageStyle.UTILITY);
+    private final Label text = new Label();
+    private final Timeline refresh = new Timeline(new KeyFrame(REFRESH_INTERVAL, event -> refresh()));
+
+    // Time of the previous frame, or 0 before the first one
+    private long lastFrameNanos;
+
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (lastFrameNanos != 0) {
+                GameMetrics.record(GameMetrics.Metric.FRAME, now - lastFrameNanos);
+            }
+            lastFrameNanos = now;
+        }
+    };
+
+    /**
+     * Creates the stats window next to the game window.
+     *
+     * @param owner The game window.
+     */
+    public StatsView(Window owner) {
+        text.setStyle("-fx-font-family: monospace");
+        text.setPadding(new Insets(10));
+        stage.initOwner(owner);
+        stage.setTitle("Minesweeper Stats");
+        stage.setScene(new Scene(text));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /**
+     * Shows the window and starts measuring frames.
+     */
+    public void show() {
+        refresh();
+        stage.show();
+        frameTimer.start();
+        refresh.play();
+    }
+
+    /**
+     * Stops measuring and closes the window.
+     */
+    public void close() {
+        frameTimer.stop();
+        refresh.stop();
+        stage.close();
+    }
+
+    /**
+     * Shows the current metrics.
+     */
+    private void refresh() {
+        String summary = GameMetrics.summary();
+        text.setText(summary.isEmpty() ? "No metrics recorded yet" : summary.trim());
+        stage.sizeToScene();
+    }
+}
@@ -0,0 +1,493 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Plays {@link Player} bots against each other on the same seeded boards and
+ * reports their win rates and how long they take to decide.
+ *
+ * Every game index gets a board seed and a player seed derived from the base
+ * seed, and every bot plays that game with those seeds, so all bots see the
+ * same mines for the same first click and results do not depend on the number
+ * of threads. Games are spread over a fork-join pool in chunks like
+ * {@link Simulation}; each worker has its own bot instances, board and
+ * statistics, so the workers never share mutable state.
+ *
+ * Every decision is timed. A decision slower than the budget is counted, one
+ * slower than the timeout forfeits the game, and a watchdog interrupts a bot
+ * that is still deciding past the timeout so a cooperative bot can give up.
+ * Bots see the board through a {@link VisibleBoard} over the live board, so
+ * nothing is copied per move. Decision latencies go into a
+ * {@link LatencyHistogram} per bot and worker, merged at the end. With
+ * --record every game is also appended to the {@link ResultStore} as a bot
+ * game, timed by the decisions of the bot.
+ *
+ * Usage: java Tournament [--games=N] [--threads=N] [--seed=N] [--budget-ms=N] [--timeout-ms=N]
+ *        [--difficulty=BEGINNER|INTERMEDIATE|ADVANCED|ROWSxCOLSxMINES] [--record] [random|rules|CLASS ...]
+ */
+public class Tournament {
+    // Number of games a worker claims at a time
+    private static final int CHUNK_SIZE = 256;
+
+    // Defaults for the command line options
+    private static final long DEFAULT_GAMES = 10_000;
+    private static final long DEFAULT_BUDGET_MILLIS = 10;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+
+    // Moves per cell a bot gets before a game without progress is given up
+    private static final int MAX_MOVES_PER_CELL = 4;
+
+    /**
+     * A bot taking part in a tournament.
+     */
+    static class Entry {
+        final String name;
+        final Supplier<Player> factory;
+
+        Entry(String name, Supplier<Player> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Results of one bot, collected by one worker and merged at the end of a run.
+     */
+    static class Standing {
+        long games;
+        long wins;
+        long moves;
+        long invalidMoves;
+        long overBudget;
+        long timeouts;
+        long errors;
+        long stalled;
+        final LatencyHistogram latencies = new LatencyHistogram();
+
+        void add(Standing other) {
+            games += other.games;
+            wins += other.wins;
+            moves += other.moves;
+            invalidMoves += other.invalidMoves;
+            overBudget += other.overBudget;
+            timeouts += other.timeouts;
+            errors += other.errors;
+            stalled += other.stalled;
+            latencies.add(other.latencies);
+        }
+    }
+
+    /**
+     * Per-worker state reused between games: one player, board and standing per bot.
+     */
+    private static class Worker {
+        final Thread thread = Thread.currentThread();
+        final Board board;
+        final VisibleBoard view;
+        final Player[] players;
+        final Standing[] standings;
+        final BoardAnalyzer analyzer = new BoardAnalyzer();
+
+        // Decision time and moves of the game in progress
+        long gameNanos;
+        int gameMoves;
+
+        // Start of the decision in progress, or 0 between decisions; guarded by the worker
+        long decisionStartNanos;
+
+        Worker(Simulation.Configuration configuration, List<Entry> entries) {
+            board = new Board(configuration.rows, configuration.cols, configuration.mines);
+            view = new VisibleBoard(board);
+            players = new Player[entries.size()];
+            standings = new Standing[entries.size()];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = entries.get(i).factory.get();
+                standings[i] = new Standing();
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService watchdog;
+    private final long baseSeed;
+    private final long budgetNanos;
+    private final long timeoutNanos;
+
+    // Workers of the run in progress, checked by the watchdog
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+
+    // Where the results of the games are recorded, or null
+    private ResultStore results;
+
+    /**
+     * Creates a tournament.
+     *
+     * @param threads       The number of worker threads.
+     * @param baseSeed      The seed every game seed is derived from.
+     * @param budgetNanos   The time a decision should take at most.
+     * @param timeoutNanos  The time after which a decision forfeits the game.
+     */
+    public Tournament(int threads, long baseSeed, long budgetNanos, long timeoutNanos) {
+        this.pool = new ForkJoinPool(threads);
+        this.baseSeed = baseSeed;
+        this.budgetNanos = budgetNanos;
+        this.timeoutNanos = timeoutNanos;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), timeoutNanos / 4);
+        executor.scheduleAtFixedRate(this::interruptSlowDecisions, period, period, TimeUnit.NANOSECONDS);
+        this.watchdog = executor;
+    }
+
+    /**
+     * Plays a number of games of one configuration with every bot on all workers.
+     *
+     * @param configuration The board size and number of mines.
+     * @param entries       The bots taking part.
+     * @param games         The number of games each bot plays.
+     * @return The merged standing of every bot, in the order of the entries.
+     */
+    public Standing[] run(Simulation.Configuration configuration, List<Entry> entries, long games) {
+        AtomicLong nextGame = new AtomicLong();
+        List<Future<Standing[]>> results = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            results.add(pool.submit(() -> playGames(configuration, entries, games, nextGame)));
+        }
+
+        Standing[] total = new Standing[entries.size()];
+        for (int i = 0; i < total.length; i++) {
+            total[i] = new Standing();
+        }
+        try {
+            for (Future<Standing[]> result : results) {
+                Standing[] standings = result.get();
+                for (int i = 0; i < total.length; i++) {
+                    total[i].add(standings[i]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tournament failed", e.getCause());
+        }
+        return total;
+    }
+
+    /**
+     * Plays chunks of games until all games of a run are claimed.
+     *
+     * @param configuration The board size and number of mines.
+     * @param entries       The bots taking part.
+     * @param games         The total number of games of the run.
+     * @param nextGame      The index of the next unclaimed game.
+     * @return The standings of the bots in the games played by this worker.
+     */
+    private Standing[] playGames(Simulation.Configuration configuration, List<Entry> entries, long games,
+                                 AtomicLong nextGame) {
+        Worker worker = new Worker(configuration, entries);
+        Difficulty difficulty = difficultyOf(configuration);
+        workers.add(worker);
+        try {
+            long start;
+            while ((start = nextGame.getAndAdd(CHUNK_SIZE)) < games) {
+                long end = Math.min(games, start + CHUNK_SIZE);
+                for (long game = start; game < end; game++) {
+                    SplittableRandom random = new SplittableRandom(baseSeed + game);
+                    long boardSeed = random.nextLong();
+                    long playerSeed = random.nextLong();
+                    for (int i = 0; i < worker.players.length; i++) {
+                        GameJournal.Outcome outcome = playGame(worker, i, boardSeed, playerSeed);
+                        if (results != null) {
+                            recordResult(worker, difficulty, outcome, boardSeed);
+                        }
+                    }
+                }
+            }
+        } finally {
+            workers.remove(worker);
+            Thread.interrupted();
+        }
+        return worker.standings;
+    }
+
+    /**
+     * Plays a single game with one bot.
+     *
+     * @param worker     The worker playing the game.
+     * @param bot        The index of the bot.
+     * @param boardSeed  The seed the mines are placed with around the first reveal.
+     * @param playerSeed The seed handed to the bot.
+     * @return How the game ended; errors and stalled games count as abandoned.
+     */
+    private GameJournal.Outcome playGame(Worker worker, int bot, long boardSeed, long playerSeed) {
+        Board board = worker.board;
+        Player player = worker.players[bot];
+        Standing standing = worker.standings[bot];
+        board.reset();
+        standing.games++;
+        worker.gameNanos = 0;
+        worker.gameMoves = 0;
+
+        long maxMoves = (long) MAX_MOVES_PER_CELL * board.getRows() * board.getCols();
+        try {
+            player.newGame(worker.view, playerSeed);
+            for (long moves = 0; !board.isWon() && !board.isLost(); moves++) {
+                if (moves == maxMoves) {
+                    standing.stalled++;
+                    return GameJournal.Outcome.ABANDONED;
+                }
+
+                // Time the decision, with the watchdog looking over it
+                long start = System.nanoTime();
+                synchronized (worker) {
+                    worker.decisionStartNanos = start;
+                }
+                Move move;
+                try {
+                    move = player.nextMove(worker.view);
+                } finally {
+                    synchronized (worker) {
+                        worker.decisionStartNanos = 0;
+                        Thread.interrupted();
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                standing.latencies.record(elapsed);
+                standing.moves++;
+                worker.gameNanos += elapsed;
+                worker.gameMoves++;
+                if (elapsed > timeoutNanos) {
+                    standing.timeouts++;
+                    return GameJournal.Outcome.TIMED_OUT;
+                }
+                if (elapsed > budgetNanos) {
+                    standing.overBudget++;
+                }
+                if (move == null || !apply(board, move, boardSeed)) {
+                    standing.invalidMoves++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // A failing bot loses the game, not the tournament
+            standing.errors++;
+            return GameJournal.Outcome.ABANDONED;
+        }
+        if (board.isWon()) {
+            standing.wins++;
+            return GameJournal.Outcome.WON;
+        }
+        return GameJournal.Outcome.LOST;
+    }
+
+    /**
+     * Records the game just played by a worker in the result store.
+     *
+     * @param worker     The worker that played the game.
+     * @param difficulty The difficulty of the board, or null for a custom board.
+     * @param outcome    How the game ended.
+     * @param boardSeed  The seed the mines were placed with.
+     */
+    private void recordResult(Worker worker, Difficulty difficulty, GameJournal.Outcome outcome, long boardSeed) {
+        int threeBV = 0;
+        if (worker.board.isMinesPlaced()) {
+            worker.analyzer.analyze(worker.board);
+            threeBV = worker.analyzer.getThreeBV();
+        }
+        results.record(new ResultStore.Result(difficulty, true, outcome, boardSeed,
+                TimeUnit.NANOSECONDS.toMicros(worker.gameNanos), threeBV, worker.gameMoves,
+                System.currentTimeMillis() / 1000));
+    }
+
+    /**
+     * Finds the difficulty a configuration was parsed from.
+     *
+     * @param configuration The board size and number of mines.
+     * @return The difficulty, or null for a custom board.
+     */
+    private static Difficulty difficultyOf(Simulation.Configuration configuration) {
+        for (Difficulty difficulty : Difficulty.values()) {
+            if (difficulty.name().equals(configuration.name)) {
+                return difficulty;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies a move to the board, placing the mines around the first reveal.
+     *
+     * @param board     The board to play on.
+     * @param move      The move to apply.
+     * @param boardSeed The seed the mines are placed with.
+     * @return True if the move changed the board.
+     */
+    private static boolean apply(Board board, Move move, long boardSeed) {
+        int row = move.getRow();
+        int col = move.getCol();
+        if (!board.isInBounds(row, col)) {
+            return false;
+        }
+        switch (move.getType()) {
+            case REVEAL:
+                if (!board.isMinesPlaced()) {
+                    board.placeMines(boardSeed, row, col);
+                }
+                return board.reveal(row, col) > 0;
+            case FLAG:
+                return board.toggleFlag(row, col);
+            default:
+                return board.chord(row, col) > 0;
+        }
+    }
+
+    /**
+     * Interrupts the workers whose bot has been deciding for longer than the
+     * timeout. Runs on the watchdog thread.
+     */
+    private void interruptSlowDecisions() {
+        long now = System.nanoTime();
+        for (Worker worker : workers) {
+            synchronized (worker) {
+                if (worker.decisionStartNanos != 0 && now - worker.decisionStartNanos > timeoutNanos) {
+                    worker.thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the result of every game played from now on, as a bot game.
+     *
+     * @param results The store to record the results in.
+     */
+    public void recordResultsTo(ResultStore results) {
+        this.results = results;
+    }
+
+    /**
+     * Shuts down the worker and watchdog threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Creates the entry of a built-in bot or of a Player class with a public
+     * no-argument constructor on the class path.
+     *
+     * @param name "random", "rules" or a class name.
+     * @return The entry of the bot.
+     */
+    static Entry parseEntry(String name) {
+        switch (name) {
+            case "random":
+                return new Entry(name, RandomPlayer::new);
+            case "rules":
+                return new Entry(name, RuleBasedPlayer::new);
+            default:
+                Class<? extends Player> type;
+                try {
+                    type = Class.forName(name).asSubclass(Player.class);
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IllegalArgumentException("Not a Player class: " + name, e);
+                }
+                return new Entry(type.getSimpleName(), () -> {
+                    try {
+                        return type.getConstructor().newInstance();
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException("Cannot create " + name, e);
+                    }
+                });
+        }
+    }
+
+    // Entry point of the tournament runner
+    public static void main(String[] args) throws IOException {
+        long games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = new SplittableRandom().nextLong();
+        long budgetMillis = DEFAULT_BUDGET_MILLIS;
+        long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        Simulation.Configuration configuration = Simulation.parseConfiguration(Difficulty.ADVANCED.name());
+        List<Entry> entries = new ArrayList<>();
+        boolean record = false;
+
+        for (String arg : args) {
+            if (arg.startsWith("--games=")) {
+                games = Long.parseLong(arg.substring("--games=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--budget-ms=")) {
+                budgetMillis = Long.parseLong(arg.substring("--budget-ms=".length()));
+            } else if (arg.startsWith("--timeout-ms=")) {
+                timeoutMillis = Long.parseLong(arg.substring("--timeout-ms=".length()));
+            } else if (arg.startsWith("--difficulty=")) {
+                configuration = Simulation.parseConfiguration(arg.substring("--difficulty=".length()));
+            } else if (arg.equals("--record")) {
+                record = true;
+            } else {
+                entries.add(parseEntry(arg));
+            }
+        }
+        if (entries.isEmpty()) {
+            entries.add(parseEntry("random"));
+            entries.add(parseEntry("rules"));
+        }
+
+        System.out.printf("Seed %d, %d games of %s per bot on %d threads, budget %d ms, timeout %d ms%n",
+                seed, games, configuration.name, threads, budgetMillis, timeoutMillis);
+
+        Tournament tournament = new Tournament(threads, seed, TimeUnit.MILLISECONDS.toNanos(budgetMillis),
+                TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        try (ResultStore results = record ? new ResultStore(ResultStore.DEFAULT_DIRECTORY) : null) {
+            if (results != null) {
+                tournament.recordResultsTo(results);
+            }
+            long startTime = System.nanoTime();
+            Standing[] standings = tournament.run(configuration, entries, games);
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            System.out.printf("%-16s %10s %9s %10s %9s %11s %9s %7s %8s%n",
+                    "Bot", "Games", "Win rate", "Avg moves", "Invalid", "Over budget", "Timeouts", "Errors", "Stalled");
+            for (int i = 0; i < standings.length; i++) {
+                Standing standing = standings[i];
+                System.out.printf("%-16s %10d %8.2f%% %10.1f %9d %11d %9d %7d %8d%n",
+                        entries.get(i).name,
+                        standing.games,
+                        100.0 * standing.wins / standing.games,
+                        (double) standing.moves / standing.games,
+                        standing.invalidMoves,
+                        standing.overBudget,
+                        standing.timeouts,
+                        standing.errors,
+                        standing.stalled);
+            }
+            System.out.println();
+            for (int i = 0; i < standings.length; i++) {
+                System.out.printf("%-16s %s%n", entries.get(i).name,
+                        standings[i].latencies.summary(TimeUnit.MICROSECONDS));
+            }
+            System.out.printf("%nPlayed %d games in %.2f s%n", games * entries.size(), seconds);
+        } finally {
+            tournament.shutdown();
+        }
+    }
+}
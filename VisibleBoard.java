@@ -0,0 +1,122 @@
+/**
+ * What a player can see of a board: its size, the number of mines, the
+ * revealed numbers and the flags, but never the hidden mines.
+ *
+ * The view reads the live board it wraps instead of a copy, so handing it to
+ * a player costs nothing whatever the board size. It always shows the current
+ * state, and the board only changes between two decisions of the player.
+ */
+public final class VisibleBoard {
+    private final Board board;
+
+    /**
+     * Creates a view of a board. Only the game driving the board creates views.
+     *
+     * @param board The board to show.
+     */
+    VisibleBoard(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return board.getRows();
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return board.getCols();
+    }
+
+    /**
+     * Gets the number of mines on the board.
+     *
+     * @return The number of mines.
+     */
+    public int getMines() {
+        return board.getMines();
+    }
+
+    /**
+     * Checks if a position lies on the board.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the position is within the bounds of the board.
+     */
+    public boolean isInBounds(int row, int col) {
+        return board.isInBounds(row, col);
+    }
+
+    /**
+     * Checks if a cell has been revealed.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell has been revealed.
+     */
+    public boolean isRevealed(int row, int col) {
+        return board.isRevealed(row, col);
+    }
+
+    /**
+     * Checks if a cell is marked with a flag.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell is flagged.
+     */
+    public boolean isFlagged(int row, int col) {
+        return board.isFlagged(row, col);
+    }
+
+    /**
+     * Gets the number shown on a revealed cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The number of adjacent mines, or -1 if the cell is hidden.
+     */
+    public int getAdjacentMines(int row, int col) {
+        if (!board.isRevealed(row, col)) {
+            return -1;
+        }
+        return board.getAdjacentMines(row, col);
+    }
+
+    /**
+     * Gets the number of flags placed.
+     *
+     * @return The number of flags.
+     */
+    public int getFlagsPlaced() {
+        return board.getFlagsPlaced();
+    }
+
+    /**
+     * Gets the number of cells without a mine that are still hidden.
+     *
+     * @return The number of safe cells left to reveal.
+     */
+    public int getSafeCellsRemaining() {
+        return board.getSafeCellsRemaining();
+    }
+
+    /**
+     * Checks if no cell has been revealed yet, so the next reveal places the
+     * mines around it.
+     *
+     * @return True before the first reveal.
+     */
+    public boolean isFirstMove() {
+        return !board.isMinesPlaced();
+    }
+}
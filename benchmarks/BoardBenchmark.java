@@ -0,0 +1,238 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the game's hot paths on the headless board: mine
+ * placement, the first-click flood fill, adjacent mine count lookups, the win
+ * check and the per-cell refresh pass that updateButtons runs.
+ *
+ * Every benchmark runs for the three difficulty presets and large custom
+ * sizes, at the preset's own mine density and at a low and a high density.
+ * Sample time mode reports throughput together with tail percentiles, and
+ * allocation rates come from the gc profiler:
+ *
+ * mvn -P benchmarks package && java -jar target/benchmarks.jar -prof gc
+ *
+ * The game lives in the unnamed package, which JMH cannot generate benchmarks
+ * for and which named packages cannot import. The board is therefore driven
+ * through method handles held in static final fields; the JIT treats those as
+ * constants and inlines them like direct calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    // Handles to the Board API, typed with Object in place of Board
+    private static final MethodHandle NEW_BOARD;
+    private static final MethodHandle RESET;
+    private static final MethodHandle PLACE_MINES;
+    private static final MethodHandle REVEAL;
+    private static final MethodHandle IS_WON;
+    private static final MethodHandle IS_MINE;
+    private static final MethodHandle IS_REVEALED;
+    private static final MethodHandle GET_ADJACENT_MINES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> board = Class.forName("Board");
+            NEW_BOARD = lookup.findConstructor(board, MethodType.methodType(void.class, int.class, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class, int.class));
+            RESET = boardMethod(lookup, board, "reset", void.class);
+            PLACE_MINES = boardMethod(lookup, board, "placeMines", void.class, long.class, int.class, int.class);
+            REVEAL = boardMethod(lookup, board, "reveal", int.class, int.class, int.class);
+            IS_WON = boardMethod(lookup, board, "isWon", boolean.class);
+            IS_MINE = boardMethod(lookup, board, "isMine", boolean.class, int.class, int.class);
+            IS_REVEALED = boardMethod(lookup, board, "isRevealed", boolean.class, int.class, int.class);
+            GET_ADJACENT_MINES = boardMethod(lookup, board, "getAdjacentMines", int.class, int.class, int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A difficulty name or a custom ROWSxCOLS size.
+     */
+    @Param({"BEGINNER", "INTERMEDIATE", "ADVANCED", "1000x1000", "5000x5000"})
+    public String size;
+
+    /**
+     * The fraction of cells holding a mine, or "preset" for the density of the
+     * difficulty (Advanced density for custom sizes).
+     */
+    @Param({"preset", "0.05", "0.30"})
+    public String density;
+
+    /**
+     * A board with newly placed mines and nothing revealed, prepared before every
+     * invocation of the reveal benchmark so only the flood fill is measured.
+     */
+    @State(Scope.Thread)
+    public static class FreshBoard {
+        private Object board;
+        private long seed;
+
+        @Setup(Level.Invocation)
+        public void prepare(BoardBenchmark benchmark) throws Throwable {
+            if (board == null) {
+                board = (Object) NEW_BOARD.invokeExact(benchmark.rows, benchmark.cols, benchmark.mines);
+            }
+            RESET.invokeExact(board);
+            PLACE_MINES.invokeExact(board, seed++, benchmark.rows / 2, benchmark.cols / 2);
+        }
+    }
+
+    // Board size and number of mines of the current parameters
+    private int rows;
+    private int cols;
+    private int mines;
+
+    // Board with mines placed and the first click opened, shared by the read-only benchmarks
+    private Object playedBoard;
+
+    // Board that the placement benchmark refills on every invocation
+    private Object placementBoard;
+
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        double mineDensity;
+        String[] parts = size.toLowerCase().split("x");
+        if (parts.length == 2) {
+            rows = Integer.parseInt(parts[0]);
+            cols = Integer.parseInt(parts[1]);
+            int[] advanced = difficultySize("ADVANCED");
+            mineDensity = (double) advanced[2] / (advanced[0] * advanced[1]);
+        } else {
+            int[] preset = difficultySize(size);
+            rows = preset[0];
+            cols = preset[1];
+            mineDensity = (double) preset[2] / (rows * cols);
+        }
+        if (!density.equals("preset")) {
+            mineDensity = Double.parseDouble(density);
+        }
+        mines = (int) Math.round(rows * cols * mineDensity);
+
+        playedBoard = (Object) NEW_BOARD.invokeExact(rows, cols, mines);
+        PLACE_MINES.invokeExact(playedBoard, 42L, rows / 2, cols / 2);
+        REVEAL.invoke(playedBoard, rows / 2, cols / 2);
+
+        placementBoard = (Object) NEW_BOARD.invokeExact(rows, cols, mines);
+    }
+
+    /**
+     * Clears the board and places all mines, including the count table build.
+     */
+    @Benchmark
+    public Object placeMines() throws Throwable {
+        RESET.invokeExact(placementBoard);
+        PLACE_MINES.invokeExact(placementBoard, seed++, rows / 2, cols / 2);
+        return placementBoard;
+    }
+
+    /**
+     * Opens the first click on a freshly generated board.
+     */
+    @Benchmark
+    public int revealCell(FreshBoard fresh) throws Throwable {
+        return (int) REVEAL.invokeExact(fresh.board, rows / 2, cols / 2);
+    }
+
+    /**
+     * Reads the adjacent mine count of every cell once.
+     */
+    @Benchmark
+    public int countAdjacentMines() throws Throwable {
+        int total = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                total += (int) GET_ADJACENT_MINES.invokeExact(playedBoard, row, col);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Checks whether the game is won, as done after every left click.
+     */
+    @Benchmark
+    public boolean checkGameWin() throws Throwable {
+        return (boolean) IS_WON.invokeExact(playedBoard);
+    }
+
+    /**
+     * Runs the board side of updateButtons: every cell is checked and revealed
+     * numbers are turned into their label text.
+     */
+    @Benchmark
+    public void updateButtons(Blackhole blackhole) throws Throwable {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                boolean revealed = (boolean) IS_REVEALED.invokeExact(playedBoard, row, col);
+                if (revealed && !(boolean) IS_MINE.invokeExact(playedBoard, row, col)) {
+                    int mineCount = (int) GET_ADJACENT_MINES.invokeExact(playedBoard, row, col);
+                    if (mineCount > 0) {
+                        blackhole.consume(String.valueOf(mineCount));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up a board method and adapts it to take the board as an Object.
+     *
+     * @param lookup     The lookup used to find the method.
+     * @param board      The Board class.
+     * @param name       The name of the method.
+     * @param returnType The return type of the method.
+     * @param parameters The parameter types of the method.
+     * @return The adapted method handle.
+     * @throws ReflectiveOperationException If the method does not exist.
+     */
+    private static MethodHandle boardMethod(MethodHandles.Lookup lookup, Class<?> board, String name,
+                                            Class<?> returnType, Class<?>... parameters)
+            throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(board, name, MethodType.methodType(returnType, parameters));
+        return handle.asType(handle.type().changeParameterType(0, Object.class));
+    }
+
+    /**
+     * Gets the board size and number of mines of a difficulty preset.
+     *
+     * @param name The name of the difficulty.
+     * @return The rows, columns and mines of the preset.
+     * @throws ReflectiveOperationException If the difficulty cannot be read.
+     */
+    private static int[] difficultySize(String name) throws ReflectiveOperationException {
+        Class<?> difficultyClass = Class.forName("Difficulty");
+        Object difficulty = difficultyClass.getMethod("valueOf", String.class).invoke(null, name);
+        return new int[] {
+                (int) difficultyClass.getMethod("getRows").invoke(difficulty),
+                (int) difficultyClass.getMethod("getCols").invoke(difficulty),
+                (int) difficultyClass.getMethod("getMines").invoke(difficulty)
+        };
+    }
+}
@@ -0,0 +1,20 @@
+# Settings shared by the startup scripts; sourced, not run.
+# They launch the jar and the JavaFX modules built by "mvn -P startup package".
+
+ROOT=$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)
+APP_JAR="$ROOT/target/minesweeper-1.0-SNAPSHOT.jar"
+MODULE_PATH="$ROOT/target/lib"
+ARCHIVE="$ROOT/target/minesweeper.jsa"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+# The archive only matches a JVM started with the same class path and module path
+APP_OPTIONS=(--module-path "$MODULE_PATH" --add-modules javafx.controls -cp "$APP_JAR")
+
+# Kiosk launches map the classes from the archive and use the serial collector,
+# which starts fastest with the small heap of the game
+KIOSK_OPTIONS=(-XX:SharedArchiveFile="$ARCHIVE" -XX:+UseSerialGC)
+
+if [ ! -f "$APP_JAR" ] || [ ! -d "$MODULE_PATH" ]; then
+    echo "Build the game first: mvn -P startup package" >&2
+    exit 1
+fi
@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Measures the time from JVM start to the first interactive frame of a Beginner
+# game, as printed by --startup-profile, over several launches with the default
+# JVM settings and with the kiosk settings, and prints the median of each.
+#
+# The page cache is warm after the first launch. Run as root with DROP_CACHES=1
+# to drop it before every launch and measure true cold starts.
+#
+# Usage: startup/measure-startup.sh [RUNS]
+set -euo pipefail
+source "$(dirname "$0")/env.sh"
+
+RUNS=${1:-10}
+if [ ! -f "$ARCHIVE" ]; then
+    echo "Create the archive first: startup/create-cds-archive.sh" >&2
+    exit 1
+fi
+
+# Launches the game RUNS times with the given JVM options and prints the median time in ms
+measure() {
+    local times=()
+    for ((run = 0; run < RUNS; run++)); do
+        if [ "${DROP_CACHES:-0}" = 1 ]; then
+            sync
+            echo 3 > /proc/sys/vm/drop_caches
+        fi
+        local home
+        home=$(mktemp -d)
+        local output
+        output=$("$JAVA" "$@" -Duser.home="$home" "${APP_OPTIONS[@]}" \
+            MinesweeperGame --difficulty=BEGINNER --startup-profile)
+        rm -rf "$home"
+        times+=("$(awk '/first interactive frame/ { print $NF }' <<< "$output")")
+    done
+    printf '%s\n' "${times[@]}" | sort -n | awk '{ time[NR] = $1 }
+        END { print NR % 2 ? time[(NR + 1) / 2] : (time[NR / 2] + time[NR / 2 + 1]) / 2 }'
+}
+
+echo "Time to first interactive frame, median of $RUNS launches:"
+default=$(measure)
+echo "  default JVM settings  ${default} ms"
+kiosk=$(measure "${KIOSK_OPTIONS[@]}")
+echo "  kiosk settings        ${kiosk} ms"
+awk -v default="$default" -v kiosk="$kiosk" \
+    'BEGIN { printf "  %.0f%% faster\n", 100 * (default - kiosk) / default }'
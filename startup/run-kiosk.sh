@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Starts the game for a kiosk: straight into a game of the given difficulty,
+# with the class-data sharing archive when it has been created.
+#
+# Usage: startup/run-kiosk.sh [BEGINNER|INTERMEDIATE|ADVANCED] [GAME ARGUMENTS...]
+set -euo pipefail
+source "$(dirname "$0")/env.sh"
+
+DIFFICULTY=${1:-BEGINNER}
+shift || true
+if [ ! -f "$ARCHIVE" ]; then
+    echo "No class-data sharing archive, starting without it: run startup/create-cds-archive.sh" >&2
+    KIOSK_OPTIONS=(-XX:+UseSerialGC)
+fi
+exec "$JAVA" "${KIOSK_OPTIONS[@]}" "${APP_OPTIONS[@]}" MinesweeperGame --difficulty="$DIFFICULTY" "$@"